@@ -0,0 +1,5 @@
+interface AudioGenerator {
+    // Adds the next frames of a synthesized sound into out (interleaved stereo). Called on
+    // the mixer thread once per block.
+    void render(float[] out, int frames);
+}
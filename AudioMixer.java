@@ -0,0 +1,875 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import javax.sound.sampled.*;
+
+public class AudioMixer {
+    // Plays every sound in the game through one output line. A mixer thread adds up the
+    // playing voices - each a position in a shared decoded buffer with its own gain and
+    // loop points - into a preallocated block and writes it to the line, which paces the
+    // thread. The game only posts commands (start, stop, gain ramps) into a fixed-size
+    // lock-free queue, so it never touches the audio device and never waits for it.
+    //
+    // Gain changes are ramps evaluated per sample while mixing: linear, or exponential
+    // (even steps in decibels, which is how fades sound natural). A ramp can be scheduled
+    // to start later, and can free its voice when it ends, which is how fade-outs and
+    // stops work - every stop is a few milliseconds of fade, so nothing clicks.
+    //
+    // Long music tracks are not decoded: their voices play a PcmStream's ring buffer,
+    // which the stream keeps filled from disk just ahead of them.
+    //
+    // Voices can start in step with another voice playing the same loop, and ramps can
+    // wait for the next bar of such a loop, which is what the music's stems use. A plain
+    // voice can also get a low-pass tone of its own.
+    //
+    // Spatial voices (the monster's sounds) are placed relative to the player once per
+    // block from the two positions the game publishes each tick: quieter with distance,
+    // equal-power panned to the side the monster is on, and run through a low-pass
+    // filter when a wall or a floor is in between. Gains and filter settings glide across
+    // each block so moving sources do not zipper.
+    //
+    // The voices then go through the reverb of the room the player is in (RoomReverb).
+    // Generators (the synthesized heartbeat) render straight into the mixed block after
+    // that, dry, since they are inside the player's head; they keep all their state
+    // themselves and must not allocate.
+    //
+    // The line is opened with room for MAX_LINE_BLOCKS blocks, but the mixer only keeps
+    // lineBlocks of them queued and waits for the rest to drain, so the output latency can
+    // change while playing without reopening the line. It starts at the smallest size; a
+    // block found with the line already empty is an underrun, which is counted and adds a
+    // block, so the size settles on the smallest this machine keeps fed. Later mixers in
+    // the same run start from where the last one settled. -Daudio.blocks=N fixes the size.
+    //
+    // With -Daudio.latency every start is timestamped when it is posted, and once the
+    // line's frame position passes the voice's first frame the time it took to be heard
+    // is recorded against the sound; getLatencyReport() sums it up.
+    //
+    // Without an output device, or when made with AudioMixer(false), the mixer still
+    // accepts commands; mix() can then be called directly to render audio offline
+    // (MixerBenchmark does).
+    public static final float SAMPLE_RATE = 44100f;
+    public static final int CHANNELS = 2;
+    public static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false);
+    static final int BLOCK_FRAMES = 512; // about 12ms
+    private static final int MIN_LINE_BLOCKS = 2;
+    private static final int MAX_LINE_BLOCKS = 8;
+    // The line starts out empty, so underruns only count once this many blocks are out
+    private static final int WARMUP_BLOCKS = MAX_LINE_BLOCKS;
+    private static final double NANOS_PER_FRAME = 1e9 / SAMPLE_RATE;
+    static final boolean MEASURE_LATENCY = Boolean.getBoolean("audio.latency");
+    // Starts waiting to be heard, and sounds with latency figures, at most
+    private static final int MAX_TRIGGERS = 32;
+    private static final int MAX_MEASURED_SOUNDS = 16;
+    private static final int MAX_VOICES = 32;
+    private static final int QUEUE_SIZE = 256; // power of two
+    // Length of the fade on a stop, about 5ms
+    private static final int DECLICK_FRAMES = 220;
+    // Exponential ramps run between this (-60dB) and their target instead of from silence
+    static final float SILENCE_GAIN = 0.001f;
+
+    static final int CMD_START = 0;
+    static final int CMD_STOP = 1;
+    static final int CMD_RAMP = 2;
+    static final int CMD_SPATIAL = 3;
+    static final int CMD_TONE = 4;
+
+    // What lies between the player and a spatial source
+    public static final int OCCLUSION_NONE = 0;
+    public static final int OCCLUSION_ROOM = 1;  // a classroom wall
+    public static final int OCCLUSION_FLOOR = 2; // a floor
+    // The room the player is in, for the reverb
+    public static final int ENVIRONMENT_HALL = 0;
+    public static final int ENVIRONMENT_CLASSROOM = 1;
+    public static final int ENVIRONMENT_LOCKER = 2;
+    // Low-pass cutoff (Hz, 0 for none) and extra gain for each occlusion level
+    private static final float[] OCCLUSION_CUTOFF = {0f, 1500f, 500f};
+    private static final float[] OCCLUSION_GAIN = {1.0f, 0.6f, 0.35f};
+    // Full volume up to the reference distance, silent past the maximum (world pixels)
+    private static final float REFERENCE_DISTANCE = 200f;
+    private static final float MAX_DISTANCE = 2400f;
+    // Offset at which a source is panned fully to one side
+    private static final float PAN_RANGE = 1200f;
+    // Fraction of the way to a new filter setting covered each block
+    private static final float FILTER_GLIDE = 0.2f;
+
+    private final MixerVoice[] voices = new MixerVoice[MAX_VOICES];
+    private final float[] mixBlock = new float[BLOCK_FRAMES * CHANNELS];
+    private final float[] voiceBlock = new float[BLOCK_FRAMES * CHANNELS];
+    // Where mix() renders each block of a longer request before copying it out
+    private final float[] chunkBlock = new float[BLOCK_FRAMES * CHANNELS];
+    private final byte[] outBlock = new byte[BLOCK_FRAMES * CHANNELS * 2];
+    private final AtomicInteger nextVoiceId = new AtomicInteger(1);
+    // Frames mixed so far; ramp start times are counted in these
+    private long mixedFrames = 0;
+
+    // Bounded multi-producer queue: each slot has a sequence number saying whether it is
+    // free for the producer claiming that position or holds a command for the mixer
+    private final MixerCommand[] commands = new MixerCommand[QUEUE_SIZE];
+    private final AtomicLongArray sequences = new AtomicLongArray(QUEUE_SIZE);
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private long dequeuePosition = 0;
+    private final AtomicLong droppedCommands = new AtomicLong();
+
+    private SourceDataLine line = null;
+    private Thread thread = null;
+    private volatile boolean running = false;
+
+    // Shared by every mixer in this run, so a new one does not tune from scratch
+    private static volatile int tunedLineBlocks = MIN_LINE_BLOCKS;
+    private final boolean autoTune;
+    private volatile int lineBlocks;
+    private volatile long underruns = 0;
+    private long blocksWritten = 0;
+
+    // Latency measurement, mixer thread only: starts waiting for their first frame to
+    // leave the line, and per sound the number of starts heard, their total, worst and
+    // last latency, and when the last one was heard
+    private final long[] triggerPosted = new long[MAX_TRIGGERS];
+    private final long[] triggerFrame = new long[MAX_TRIGGERS];
+    private final String[] triggerName = new String[MAX_TRIGGERS];
+    private int triggerCount = 0;
+    private final String[] measuredName = new String[MAX_MEASURED_SOUNDS];
+    private final long[] measuredCount = new long[MAX_MEASURED_SOUNDS];
+    private final long[] measuredTotal = new long[MAX_MEASURED_SOUNDS];
+    private final long[] measuredWorst = new long[MAX_MEASURED_SOUNDS];
+    private final long[] measuredLast = new long[MAX_MEASURED_SOUNDS];
+    private final long[] measuredHeardAt = new long[MAX_MEASURED_SOUNDS];
+    private volatile int measuredSounds = 0;
+
+    // Listener x in the high half, source x in the low half, so both change together
+    private volatile long positions = 0;
+    private volatile int occlusion = OCCLUSION_NONE;
+    private volatile int environment = ENVIRONMENT_HALL;
+    private final RoomReverb reverb = new RoomReverb(SAMPLE_RATE);
+    private volatile boolean reverbEnabled = true;
+    // Replaced whole when one is added, so the mixer thread never sees a half-built array
+    private volatile AudioGenerator[] generators = new AudioGenerator[0];
+
+    public AudioMixer() {
+        this(true);
+    }
+
+    AudioMixer(boolean output) {
+        for (int i = 0; i < MAX_VOICES; i++) {
+            voices[i] = new MixerVoice();
+        }
+        for (int i = 0; i < QUEUE_SIZE; i++) {
+            commands[i] = new MixerCommand();
+            sequences.set(i, i);
+        }
+
+        int fixedBlocks = Integer.getInteger("audio.blocks", 0);
+        autoTune = fixedBlocks <= 0;
+        lineBlocks = autoTune ? tunedLineBlocks : Math.max(1, Math.min(MAX_LINE_BLOCKS, fixedBlocks));
+        if (!output) return;
+
+        try {
+            line = AudioSystem.getSourceDataLine(FORMAT);
+            line.open(FORMAT, outBlock.length * MAX_LINE_BLOCKS);
+            line.start();
+        } catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
+            System.err.println("No audio output available: " + e.getMessage());
+            line = null;
+            return;
+        }
+
+        running = true;
+        thread = new Thread(this::run, "audio-mixer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    // Starts a voice and returns its id for stop/ramp; 0 if there is nothing to play
+    public int play(PcmBuffer buffer, float gain, boolean loop) {
+        if (buffer == null) return 0;
+        int id = nextVoiceId.getAndIncrement();
+        post(CMD_START, id, buffer, gain, loop);
+        return id;
+    }
+
+    // Starts a voice on a streamed track, looping. All voices on one stream play in step.
+    public int play(PcmStream stream, float gain) {
+        return stream != null ? play(stream.ring, gain, true) : 0;
+    }
+
+    public int fadeIn(PcmStream stream, float gain, float seconds) {
+        return stream != null ? fadeIn(stream.ring, gain, seconds, true) : 0;
+    }
+
+    // Starts a voice at the position the reference voice is playing, so two voices of
+    // the same loop stay sample-aligned; plays from the start if the reference is gone
+    public int playSynced(PcmBuffer buffer, float gain, boolean loop, int referenceVoiceId) {
+        if (buffer == null) return 0;
+        int id = nextVoiceId.getAndIncrement();
+        post(CMD_START, id, buffer, gain, loop, 0, 0, false, false, 0f, referenceVoiceId);
+        return id;
+    }
+
+    // Starts a voice silent and fades it up to gain
+    public int fadeIn(PcmBuffer buffer, float gain, float seconds, boolean loop) {
+        int id = play(buffer, 0f, loop);
+        ramp(id, gain, seconds, true, 0f);
+        return id;
+    }
+
+    // Fades a voice out and frees it once silent
+    public void fadeOut(int voiceId, float seconds) {
+        if (voiceId != 0) post(CMD_RAMP, voiceId, null, 0f, false, toFrames(seconds), 0, true, true);
+    }
+
+    // Stops a voice after a declick fade of a few milliseconds
+    public void stop(int voiceId) {
+        if (voiceId != 0) post(CMD_STOP, voiceId, null, 0f, false, DECLICK_FRAMES, 0, false, true);
+    }
+
+    // Moves a voice's gain to the target over the given time, starting after the delay.
+    // A new ramp replaces any ramps scheduled to start at or after it.
+    public void ramp(int voiceId, float gain, float seconds, boolean exponential, float delaySeconds) {
+        if (voiceId != 0) post(CMD_RAMP, voiceId, null, gain, false, toFrames(seconds), toFrames(delaySeconds), exponential, false);
+    }
+
+    // Like ramp(), but starts on the next multiple of gridFrames in the reference voice's
+    // loop - the next bar or beat of the music - or at once if the reference is gone
+    public void rampOnGrid(int voiceId, float gain, float seconds, boolean exponential, int referenceVoiceId, float gridFrames) {
+        if (voiceId != 0) post(CMD_RAMP, voiceId, null, gain, false, toFrames(seconds), 0, exponential, false, gridFrames, referenceVoiceId);
+    }
+
+    // Low-passes a plain voice at the cutoff (Hz), 0 to open it again. Spatial voices
+    // take their filter from the occlusion instead.
+    public void setTone(int voiceId, float cutoff) {
+        if (voiceId != 0) post(CMD_TONE, voiceId, null, cutoff, false);
+    }
+
+    // Makes a voice follow the published source position. Spread is how far it pans
+    // (0 stays centred, 1 pans fully); distanceFloor is the least distance can turn it down.
+    public void setSpatial(int voiceId, float spread, float distanceFloor) {
+        if (voiceId != 0) post(CMD_SPATIAL, voiceId, null, spread, false, 0, 0, false, false, distanceFloor);
+    }
+
+    // Once per tick from the game thread: where the player and the monster are
+    public void setPositions(int listenerX, int sourceX) {
+        positions = ((long) listenerX << 32) | (sourceX & 0xFFFFFFFFL);
+    }
+
+    public void setOcclusion(int level) {
+        occlusion = level;
+    }
+
+    public void setEnvironment(int room) {
+        environment = room;
+    }
+
+    // Off leaves the voices dry, for measuring what the reverb costs
+    void setReverbEnabled(boolean enabled) {
+        reverbEnabled = enabled;
+    }
+
+    double getReverbMicros() { return reverb.getAverageProcessMicros(); }
+
+    public synchronized void addGenerator(AudioGenerator generator) {
+        AudioGenerator[] current = generators;
+        AudioGenerator[] added = new AudioGenerator[current.length + 1];
+        System.arraycopy(current, 0, added, 0, current.length);
+        added[current.length] = generator;
+        generators = added;
+    }
+
+    private static int toFrames(float seconds) {
+        return Math.max(0, Math.round(seconds * SAMPLE_RATE));
+    }
+
+    private void post(int type, int voiceId, PcmBuffer buffer, float gain, boolean loop) {
+        post(type, voiceId, buffer, gain, loop, 0, 0, false, false, 0f);
+    }
+
+    private void post(int type, int voiceId, PcmBuffer buffer, float gain, boolean loop,
+                      int frames, int delay, boolean exponential, boolean stopAtEnd) {
+        post(type, voiceId, buffer, gain, loop, frames, delay, exponential, stopAtEnd, 0f);
+    }
+
+    private void post(int type, int voiceId, PcmBuffer buffer, float gain, boolean loop,
+                      int frames, int delay, boolean exponential, boolean stopAtEnd, float extra) {
+        post(type, voiceId, buffer, gain, loop, frames, delay, exponential, stopAtEnd, extra, 0);
+    }
+
+    // Never blocks: a command that does not fit is dropped and counted
+    private void post(int type, int voiceId, PcmBuffer buffer, float gain, boolean loop,
+                      int frames, int delay, boolean exponential, boolean stopAtEnd, float extra, int reference) {
+        while (true) {
+            long position = enqueuePosition.get();
+            int slot = (int) (position & (QUEUE_SIZE - 1));
+            long sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    MixerCommand command = commands[slot];
+                    command.posted = MEASURE_LATENCY ? System.nanoTime() : 0L;
+                    command.type = type;
+                    command.voiceId = voiceId;
+                    command.buffer = buffer;
+                    command.gain = gain;
+                    command.loop = loop;
+                    command.frames = frames;
+                    command.delay = delay;
+                    command.exponential = exponential;
+                    command.stopAtEnd = stopAtEnd;
+                    command.extra = extra;
+                    command.reference = reference;
+                    sequences.set(slot, position + 1);
+                    return;
+                }
+            } else if (sequence < position) {
+                droppedCommands.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    // How long the blocks the mixer keeps queued in the line take to play
+    public double getLineMillis() { return lineBlocks * BLOCK_FRAMES * NANOS_PER_FRAME / 1e6; }
+
+    // When the last start of this sound was heard (System.nanoTime()), or 0 if none has
+    // been measured
+    public long getLastHeardNanos(PcmBuffer buffer) {
+        if (buffer == null) return 0L;
+        int sounds = measuredSounds;
+        for (int i = 0; i < sounds; i++) {
+            if (measuredName[i] == buffer.name) return measuredHeardAt[i];
+        }
+        return 0L;
+    }
+
+    // Line size, underruns, dropped commands and, when measuring, how long each sound took to be heard.
+    // Read while the mixer runs, so the figures of one sound can be a start apart.
+    public String getLatencyReport() {
+        StringBuilder report = new StringBuilder(String.format("Audio output: %d blocks queued (%.1f ms)%s, %d underruns, %d commands dropped",
+            lineBlocks, getLineMillis(), autoTune ? ", tuned" : "", underruns, droppedCommands.get()));
+        int sounds = measuredSounds;
+        for (int i = 0; i < sounds; i++) {
+            long count = measuredCount[i];
+            report.append(String.format("%n  %-24s %4d starts, average %5.1f ms, worst %5.1f ms, last %5.1f ms",
+                measuredName[i], count, measuredTotal[i] / 1e6 / Math.max(1L, count),
+                measuredWorst[i] / 1e6, measuredLast[i] / 1e6));
+        }
+        return report.toString();
+    }
+
+    private void applyCommands() {
+        while (true) {
+            int slot = (int) (dequeuePosition & (QUEUE_SIZE - 1));
+            if (sequences.get(slot) != dequeuePosition + 1) return;
+
+            MixerCommand command = commands[slot];
+            switch (command.type) {
+                case CMD_START: {
+                    MixerVoice reference = findVoice(command.reference);
+                    MixerVoice started = startVoice(command.voiceId, command.buffer, command.gain, command.loop);
+                    if (started != null && reference != null && reference != started) {
+                        started.position = reference.position % started.loopEnd;
+                    }
+                    if (MEASURE_LATENCY && started != null && line != null) {
+                        trackTrigger(command.posted, command.buffer.name);
+                    }
+                    break;
+                }
+                case CMD_STOP:
+                case CMD_RAMP: {
+                    long start = mixedFrames + command.delay;
+                    if (command.reference != 0) {
+                        start = mixedFrames + framesToBoundary(findVoice(command.reference), command.extra);
+                    }
+                    for (MixerVoice voice : voices) {
+                        if (voice.id == command.voiceId) {
+                            voice.schedule(start, command.gain, command.frames, command.exponential, command.stopAtEnd);
+                        }
+                    }
+                    break;
+                }
+                case CMD_SPATIAL:
+                    for (MixerVoice voice : voices) {
+                        if (voice.id == command.voiceId) {
+                            voice.spatial = true;
+                            voice.spread = command.gain;
+                            voice.distanceFloor = command.extra;
+                        }
+                    }
+                    break;
+                case CMD_TONE:
+                    for (MixerVoice voice : voices) {
+                        if (voice.id == command.voiceId) {
+                            voice.toneCoefficient = command.gain > 0f
+                                ? 1f - (float) Math.exp(-2.0 * Math.PI * command.gain / SAMPLE_RATE) : 1f;
+                        }
+                    }
+                    break;
+            }
+            command.buffer = null;
+            sequences.set(slot, dequeuePosition + QUEUE_SIZE);
+            dequeuePosition++;
+        }
+    }
+
+    private MixerVoice findVoice(int id) {
+        if (id == 0) return null;
+        for (MixerVoice voice : voices) {
+            if (voice.id == id) return voice;
+        }
+        return null;
+    }
+
+    // Frames until the reference voice's position reaches the next multiple of grid; its
+    // loop point counts as one too. A streamed voice goes by its place in the track.
+    private int framesToBoundary(MixerVoice reference, float grid) {
+        if (reference == null || grid <= 0f) return 0;
+        PcmStream stream = reference.buffer.stream;
+        int position = stream != null ? stream.trackPosition(mixedFrames) : reference.position;
+        int loopEnd = stream != null ? stream.frames : reference.loopEnd;
+        int boundary = (int) Math.round(Math.ceil(position / (double) grid) * grid);
+        if (reference.loop && boundary > loopEnd) {
+            boundary = loopEnd;
+        }
+        return Math.max(0, boundary - position);
+    }
+
+    // Takes a free voice, or failing that the oldest one-shot; loops are never cut off
+    private MixerVoice startVoice(int id, PcmBuffer buffer, float gain, boolean loop) {
+        MixerVoice chosen = null;
+        for (MixerVoice voice : voices) {
+            if (voice.id == 0) {
+                chosen = voice;
+                break;
+            }
+            if (!voice.loop && (chosen == null || voice.id < chosen.id)) {
+                chosen = voice;
+            }
+        }
+        if (chosen == null) return null;
+
+        chosen.id = id;
+        chosen.buffer = buffer;
+        chosen.position = buffer.stream != null ? buffer.stream.ringPosition(mixedFrames) : 0;
+        chosen.gain = gain;
+        // A stream's ring always wraps; the stream does the looping of the track
+        chosen.loop = loop || buffer.stream != null;
+        chosen.loopStart = 0;
+        chosen.loopEnd = buffer.frames;
+        chosen.finished = false;
+        chosen.rampRemaining = 0;
+        chosen.pendingCount = 0;
+        chosen.spatial = false;
+        chosen.placed = false;
+        chosen.toneCoefficient = 1f;
+        chosen.toneLeft = 0f;
+        chosen.toneRight = 0f;
+        return chosen;
+    }
+
+    // Applies pending commands and renders the next frames into out (interleaved stereo,
+    // -1 to 1). The mixer thread calls this for every block; more than a block's frames
+    // are rendered a block at a time, since the scratch blocks hold no more.
+    public void mix(float[] out, int frames) {
+        if (frames <= BLOCK_FRAMES) {
+            render(out, frames);
+            return;
+        }
+        for (int done = 0; done < frames; done += BLOCK_FRAMES) {
+            int count = Math.min(BLOCK_FRAMES, frames - done);
+            render(chunkBlock, count);
+            System.arraycopy(chunkBlock, 0, out, done * CHANNELS, count * CHANNELS);
+        }
+    }
+
+    private void render(float[] out, int frames) {
+        applyCommands();
+        for (int i = 0; i < frames * CHANNELS; i++) {
+            out[i] = 0f;
+        }
+        long published = positions;
+        float offset = (int) published - (int) (published >> 32);
+        int level = occlusion;
+        for (MixerVoice voice : voices) {
+            if (voice.id != 0 && voice.buffer.stream != null) {
+                voice.buffer.stream.prepare(mixedFrames, frames);
+            }
+        }
+        for (MixerVoice voice : voices) {
+            if (voice.id == 0) continue;
+
+            if (voice.spatial) {
+                for (int i = 0; i < frames * CHANNELS; i++) {
+                    voiceBlock[i] = 0f;
+                }
+                mixVoice(voice, voiceBlock, frames, mixedFrames);
+                place(voice, voiceBlock, out, frames, offset, level);
+            } else if (voice.toneCoefficient < 1f) {
+                for (int i = 0; i < frames * CHANNELS; i++) {
+                    voiceBlock[i] = 0f;
+                }
+                mixVoice(voice, voiceBlock, frames, mixedFrames);
+                tone(voice, voiceBlock, out, frames);
+            } else {
+                mixVoice(voice, out, frames, mixedFrames);
+            }
+        }
+        if (reverbEnabled) {
+            reverb.process(out, frames, environment);
+        }
+        for (AudioGenerator generator : generators) {
+            generator.render(out, frames);
+        }
+        mixedFrames += frames;
+    }
+
+    // Distance gain, equal-power pan and occlusion filter for one spatial voice's block.
+    // The gains move linearly from last block's values to this block's.
+    private static void place(MixerVoice voice, float[] in, float[] out, int frames, float offset, int level) {
+        float distance = Math.abs(offset);
+        float falloff = 1f;
+        if (distance > REFERENCE_DISTANCE) {
+            falloff = Math.max(0f, (MAX_DISTANCE - distance) / (MAX_DISTANCE - REFERENCE_DISTANCE));
+            falloff *= falloff;
+        }
+        float gain = Math.max(falloff, voice.distanceFloor) * OCCLUSION_GAIN[level];
+
+        // Centre is unity on both sides; fully to one side is +3dB there and silence opposite
+        float pan = Math.max(-1f, Math.min(1f, offset / PAN_RANGE)) * voice.spread;
+        double angle = (pan + 1.0) * Math.PI / 4.0;
+        float targetLeft = (float) (Math.cos(angle) * Math.sqrt(2.0)) * gain;
+        float targetRight = (float) (Math.sin(angle) * Math.sqrt(2.0)) * gain;
+
+        // One-pole low-pass; a coefficient of 1 passes the signal through untouched
+        float cutoff = OCCLUSION_CUTOFF[level];
+        float targetCoefficient = (cutoff <= 0f) ? 1f : (float) (1.0 - Math.exp(-2.0 * Math.PI * cutoff / SAMPLE_RATE));
+        if (!voice.placed) {
+            voice.panLeft = targetLeft;
+            voice.panRight = targetRight;
+            voice.filterCoefficient = targetCoefficient;
+            voice.filterLeft = 0f;
+            voice.filterRight = 0f;
+            voice.placed = true;
+        }
+        float coefficient = voice.filterCoefficient + (targetCoefficient - voice.filterCoefficient) * FILTER_GLIDE;
+        voice.filterCoefficient = coefficient;
+
+        float left = voice.panLeft;
+        float right = voice.panRight;
+        float stepLeft = (targetLeft - left) / frames;
+        float stepRight = (targetRight - right) / frames;
+        float filterLeft = voice.filterLeft;
+        float filterRight = voice.filterRight;
+        for (int i = 0; i < frames; i++) {
+            filterLeft += coefficient * (in[2 * i] - filterLeft);
+            filterRight += coefficient * (in[2 * i + 1] - filterRight);
+            left += stepLeft;
+            right += stepRight;
+            out[2 * i] += filterLeft * left;
+            out[2 * i + 1] += filterRight * right;
+        }
+        voice.panLeft = targetLeft;
+        voice.panRight = targetRight;
+        voice.filterLeft = filterLeft;
+        voice.filterRight = filterRight;
+    }
+
+    private static void tone(MixerVoice voice, float[] in, float[] out, int frames) {
+        float coefficient = voice.toneCoefficient;
+        float left = voice.toneLeft;
+        float right = voice.toneRight;
+        for (int i = 0; i < frames; i++) {
+            left += coefficient * (in[2 * i] - left);
+            right += coefficient * (in[2 * i + 1] - right);
+            out[2 * i] += left;
+            out[2 * i + 1] += right;
+        }
+        voice.toneLeft = left;
+        voice.toneRight = right;
+    }
+
+    // Mixes in runs that end wherever the voice loops, a ramp starts or a ramp ends, so
+    // gain changes land on the exact frame they were scheduled for
+    private static void mixVoice(MixerVoice voice, float[] out, int frames, long startFrame) {
+        short[] samples = voice.buffer.samples;
+        int position = voice.position;
+        int n = 0;
+        while (n < frames) {
+            while (voice.pendingCount > 0 && voice.pendingStart[0] <= startFrame + n) {
+                voice.startPendingRamp();
+            }
+            if (voice.finished) {
+                voice.free();
+                return;
+            }
+            if (position >= voice.loopEnd) {
+                if (!voice.loop || voice.loopEnd <= voice.loopStart) {
+                    voice.free();
+                    return;
+                }
+                position = voice.loopStart;
+            }
+
+            int count = Math.min(frames - n, voice.loopEnd - position);
+            if (voice.pendingCount > 0) {
+                count = (int) Math.min(count, voice.pendingStart[0] - (startFrame + n));
+            }
+            int in = position * CHANNELS;
+            int o = n * CHANNELS;
+            if (voice.rampRemaining > 0) {
+                count = Math.min(count, voice.rampRemaining);
+                float gain = voice.gain;
+                float step = voice.rampStep;
+                boolean exponential = voice.rampExponential;
+                for (int i = 0; i < count; i++) {
+                    float scale = gain / 32768f;
+                    out[o + 2 * i] += samples[in + 2 * i] * scale;
+                    out[o + 2 * i + 1] += samples[in + 2 * i + 1] * scale;
+                    gain = exponential ? gain * step : gain + step;
+                }
+                voice.gain = gain;
+                voice.rampRemaining -= count;
+                if (voice.rampRemaining == 0) {
+                    voice.endRamp();
+                }
+            } else if (voice.gain != 0f) {
+                // A silent voice (a muted music stem) only moves on
+                float scale = voice.gain / 32768f;
+                for (int i = 0; i < count * CHANNELS; i++) {
+                    out[o + i] += samples[in + i] * scale;
+                }
+            }
+            position += count;
+            n += count;
+        }
+        voice.position = position;
+    }
+
+    private void run() {
+        while (running) {
+            waitForRoom();
+            mix(mixBlock, BLOCK_FRAMES);
+            for (int i = 0; i < mixBlock.length; i++) {
+                float sample = Math.max(-1f, Math.min(1f, mixBlock[i]));
+                int value = (int) (sample * 32767f);
+                outBlock[2 * i] = (byte) value;
+                outBlock[2 * i + 1] = (byte) (value >> 8);
+            }
+            if (line.available() >= line.getBufferSize() && blocksWritten >= WARMUP_BLOCKS) {
+                underrun();
+            }
+            line.write(outBlock, 0, outBlock.length);
+            blocksWritten++;
+            if (triggerCount > 0) {
+                measureTriggers();
+            }
+        }
+    }
+
+    // Sleeps until the line is down to one block less than it should hold, so the block
+    // mixed next goes in last. The line's own blocking write would only wait for room in
+    // the whole buffer.
+    private void waitForRoom() {
+        int frameBytes = CHANNELS * 2;
+        while (running) {
+            int queued = line.getBufferSize() - line.available();
+            int excess = queued - (lineBlocks - 1) * outBlock.length;
+            if (excess <= 0) return;
+            LockSupport.parkNanos((long) (excess / frameBytes * NANOS_PER_FRAME));
+        }
+    }
+
+    private void underrun() {
+        underruns++;
+        if (autoTune && lineBlocks < MAX_LINE_BLOCKS) {
+            lineBlocks++;
+            if (lineBlocks > tunedLineBlocks) {
+                tunedLineBlocks = lineBlocks;
+            }
+        }
+    }
+
+    // A start to time: its first frame is the first of the block being mixed, which is
+    // also its frame number in the line, since every block mixed is written
+    private void trackTrigger(long posted, String name) {
+        if (triggerCount == MAX_TRIGGERS) return;
+        triggerPosted[triggerCount] = posted;
+        triggerFrame[triggerCount] = mixedFrames;
+        triggerName[triggerCount] = name;
+        triggerCount++;
+    }
+
+    // Finishes the starts whose first frame the line has played. The position is only
+    // looked at once a block, so the time it passed the frame is counted back from now.
+    private void measureTriggers() {
+        long played = line.getLongFramePosition();
+        long now = System.nanoTime();
+        for (int i = triggerCount - 1; i >= 0; i--) {
+            if (played < triggerFrame[i]) continue;
+            long heardAt = now - (long) ((played - triggerFrame[i]) * NANOS_PER_FRAME);
+            recordLatency(triggerName[i], heardAt - triggerPosted[i], heardAt);
+            triggerCount--;
+            triggerPosted[i] = triggerPosted[triggerCount];
+            triggerFrame[i] = triggerFrame[triggerCount];
+            triggerName[i] = triggerName[triggerCount];
+            triggerName[triggerCount] = null;
+        }
+    }
+
+    private void recordLatency(String name, long latency, long heardAt) {
+        int sounds = measuredSounds;
+        int i = 0;
+        while (i < sounds && measuredName[i] != name) {
+            i++;
+        }
+        if (i == sounds) {
+            if (sounds == MAX_MEASURED_SOUNDS) return;
+            measuredName[i] = name;
+        }
+        measuredCount[i]++;
+        measuredTotal[i] += latency;
+        measuredWorst[i] = Math.max(measuredWorst[i], latency);
+        measuredLast[i] = latency;
+        measuredHeardAt[i] = heardAt;
+        if (i == sounds) {
+            measuredSounds = sounds + 1;
+        }
+    }
+
+    // Stops the mixer thread and releases the line
+    public void shutdown() {
+        running = false;
+        if (thread != null) {
+            try {
+                thread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (line != null) {
+            line.stop();
+            line.flush();
+            line.close();
+        }
+    }
+}
+
+class MixerVoice {
+    // Owned by the mixer thread; id 0 means the voice is free
+    private static final int MAX_PENDING = 4;
+
+    int id = 0;
+    PcmBuffer buffer;
+    int position;
+    float gain;
+    boolean loop;
+    int loopStart, loopEnd;
+    boolean finished = false;
+
+    // Spatial placement: settings from setSpatial, then the gains and one-pole filter
+    // state carried from block to block
+    boolean spatial = false;
+    float spread;
+    float distanceFloor;
+    boolean placed = false;
+    float panLeft, panRight;
+    float filterCoefficient;
+    float filterLeft, filterRight;
+
+    // Low-pass of a plain voice (1 passes everything) and its state
+    float toneCoefficient = 1f;
+    float toneLeft, toneRight;
+
+    // The ramp in progress: frames left, and the per-frame step (added, or multiplied for
+    // an exponential ramp)
+    int rampRemaining = 0;
+    float rampStep;
+    float rampTarget;
+    boolean rampExponential;
+    boolean rampStopAtEnd;
+
+    // Ramps waiting for their start frame, earliest first
+    int pendingCount = 0;
+    final long[] pendingStart = new long[MAX_PENDING];
+    final float[] pendingTarget = new float[MAX_PENDING];
+    final int[] pendingFrames = new int[MAX_PENDING];
+    final boolean[] pendingExponential = new boolean[MAX_PENDING];
+    final boolean[] pendingStopAtEnd = new boolean[MAX_PENDING];
+
+    // Drops ramps that would start at or after this one, then queues it. When the queue
+    // is full the last waiting ramp gives way.
+    void schedule(long start, float target, int frames, boolean exponential, boolean stopAtEnd) {
+        while (pendingCount > 0 && pendingStart[pendingCount - 1] >= start) {
+            pendingCount--;
+        }
+        if (pendingCount == MAX_PENDING) {
+            pendingCount--;
+        }
+        int i = pendingCount++;
+        pendingStart[i] = start;
+        pendingTarget[i] = target;
+        pendingFrames[i] = frames;
+        pendingExponential[i] = exponential;
+        pendingStopAtEnd[i] = stopAtEnd;
+    }
+
+    void startPendingRamp() {
+        float target = pendingTarget[0];
+        int frames = pendingFrames[0];
+        boolean exponential = pendingExponential[0];
+        boolean stopAtEnd = pendingStopAtEnd[0];
+        pendingCount--;
+        System.arraycopy(pendingStart, 1, pendingStart, 0, pendingCount);
+        System.arraycopy(pendingTarget, 1, pendingTarget, 0, pendingCount);
+        System.arraycopy(pendingFrames, 1, pendingFrames, 0, pendingCount);
+        System.arraycopy(pendingExponential, 1, pendingExponential, 0, pendingCount);
+        System.arraycopy(pendingStopAtEnd, 1, pendingStopAtEnd, 0, pendingCount);
+
+        rampTarget = target;
+        rampStopAtEnd = stopAtEnd;
+        rampExponential = exponential;
+        if (frames <= 0) {
+            rampRemaining = 0;
+            endRamp();
+        } else if (exponential) {
+            float from = Math.max(gain, AudioMixer.SILENCE_GAIN);
+            float to = Math.max(target, AudioMixer.SILENCE_GAIN);
+            gain = from;
+            rampStep = (float) Math.pow(to / from, 1.0 / frames);
+            rampRemaining = frames;
+        } else {
+            rampStep = (target - gain) / frames;
+            rampRemaining = frames;
+        }
+    }
+
+    void endRamp() {
+        gain = rampTarget;
+        if (rampStopAtEnd) {
+            finished = true;
+        }
+    }
+
+    void free() {
+        id = 0;
+        buffer = null;
+        finished = false;
+        rampRemaining = 0;
+        pendingCount = 0;
+    }
+}
+
+class MixerCommand {
+    // One preallocated queue slot, filled in place by whoever posts into it
+    int type;
+    int voiceId;
+    PcmBuffer buffer;
+    float gain;
+    boolean loop;
+    int frames;
+    int delay;
+    boolean exponential;
+    boolean stopAtEnd;
+    float extra;
+    int reference;
+    // System.nanoTime() when posted, only taken while measuring latency
+    long posted;
+}
@@ -0,0 +1,104 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class Autosave {
+    // Writes save snapshots on a background thread so the game loop never waits on the
+    // disk. The game thread only hands over the newest snapshot; if the writer is still
+    // busy, a newer one simply replaces the one waiting. Each write goes to a temporary
+    // file that is synced and then renamed over the save, so a crash mid-write leaves
+    // the previous save intact.
+    private final Path file;
+    private final Path temp;
+    private final AtomicReference<byte[]> pending = new AtomicReference<>();
+    private ExecutorService worker;
+
+    public Autosave(String fileName) {
+        this.file = Paths.get(fileName);
+        this.temp = Paths.get(fileName + ".tmp");
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autosave");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    // Queues a snapshot for writing and returns straight away
+    public void submit(byte[] snapshot) {
+        if (pending.getAndSet(snapshot) == null) {
+            worker.execute(this::flush);
+        }
+    }
+
+    private void flush() {
+        byte[] snapshot = pending.getAndSet(null);
+        if (snapshot == null) return;
+
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer data = ByteBuffer.wrap(snapshot);
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Autosave failed: " + e.getMessage());
+        }
+    }
+
+    // The last save, or null if there is none
+    public byte[] load() {
+        if (!Files.exists(file)) return null;
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            System.err.println("Could not read save: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public boolean exists() {
+        return Files.exists(file);
+    }
+
+    // Forgets the save once its run is over. Goes through the writer so a write still
+    // queued cannot bring the file back afterwards.
+    public void delete() {
+        pending.set(null);
+        worker.execute(() -> {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("Could not delete save: " + e.getMessage());
+            }
+        });
+    }
+
+    // Finishes any write still queued, waiting at most a second
+    public void shutdown() {
+        worker.shutdown();
+        try {
+            worker.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class BuildingBenchmark {
+    // Headless timing of world generation and per-tick game logic as the building grows.
+    // Run with: java -Djava.awt.headless=true BuildingBenchmark [floor counts...]
+    private static final int WORLD_WIDTH = 3840;
+    private static final int GROUND_HEIGHT = 900;
+    private static final int SCREEN_WIDTH = 1920;
+    private static final int GENERATION_RUNS = 20;
+    private static final int TICKS = 20000;
+
+    public static void main(String[] args) throws IOException {
+        int[] floorCounts = {3, 10, 25, 50, 100};
+        if (args.length > 0) {
+            floorCounts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                floorCounts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.println(String.format("%8s %8s %14s %14s %14s", "floors", "width", "generate (ms)", "attach (ms)", "tick (us)"));
+        for (int floors : floorCounts) {
+            measure(BuildingDescriptor.tower(floors, WORLD_WIDTH));
+        }
+
+        // Wide corridors - per-tick cost should stay flat as the floors get wider
+        for (int width : new int[] {WORLD_WIDTH, 20480, 102400}) {
+            measure(BuildingDescriptor.standard(width));
+        }
+
+        // Parallel generation - same layout for every pool size, time should drop with cores
+        // (pools larger than the core count still check the layout is unchanged)
+        int maxFloors = 0;
+        for (int floors : floorCounts) {
+            maxFloors = Math.max(maxFloors, floors);
+        }
+        measureParallel(BuildingDescriptor.tower(Math.max(maxFloors, 200), WORLD_WIDTH));
+
+        // Loading a compiled level against generating the same world
+        System.out.println();
+        System.out.println(String.format("%8s %10s %14s %14s %14s", "floors", "bytes", "generate (ms)", "open (ms)", "load (ms)"));
+        for (int floors : floorCounts) {
+            measureLevelFile(BuildingDescriptor.tower(floors, WORLD_WIDTH));
+        }
+        measureLevelFile(BuildingDescriptor.tower(Math.max(maxFloors, 10000), WORLD_WIDTH));
+    }
+
+    private static void measureLevelFile(BuildingDescriptor building) throws IOException {
+        FloorGenerator generator = new FloorGenerator(building, ItemSprites.load(), GROUND_HEIGHT);
+        ForkJoinPool pool = new ForkJoinPool(1);
+        File file = File.createTempFile("benchmark", ".ahl");
+        file.deleteOnExit();
+
+        long generateNanos = 0;
+        long openNanos = 0;
+        long loadNanos = 0;
+        for (int run = 0; run < GENERATION_RUNS; run++) {
+            long start = System.nanoTime();
+            Floor[] floors = generator.generateAll(building.getFloorCount(), run, pool);
+            generateNanos += System.nanoTime() - start;
+            LevelFile.write(file, building, GROUND_HEIGHT, new GeneratedWorld(run, floors));
+
+            start = System.nanoTime();
+            LevelFile level = LevelFile.open(file);
+            long opened = System.nanoTime();
+            Floor[] loaded = new Floor[building.getFloorCount()];
+            for (int floor = 0; floor < loaded.length; floor++) {
+                loaded[floor] = level.readFloor(floor);
+            }
+            loadNanos += System.nanoTime() - opened;
+            openNanos += opened - start;
+
+            if (layoutHash(loaded) != layoutHash(floors)) {
+                System.out.println("Loaded level differs from the generated one!");
+            }
+        }
+        pool.shutdown();
+
+        System.out.println(String.format("%8d %10d %14.3f %14.3f %14.3f", building.getFloorCount(), file.length(),
+                generateNanos / 1e6 / GENERATION_RUNS, openNanos / 1e6 / GENERATION_RUNS, loadNanos / 1e6 / GENERATION_RUNS));
+        file.delete();
+    }
+
+    private static void measureParallel(BuildingDescriptor building) {
+        FloorGenerator generator = new FloorGenerator(building, ItemSprites.load(), GROUND_HEIGHT);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.println();
+        System.out.println(String.format("%8s %8s %14s %18s", "floors", "threads", "generate (ms)", "layout hash"));
+        long expected = 0;
+        for (int threads = 1; threads <= Math.max(cores, 8); threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            generator.generateAll(building.getFloorCount(), 1L, pool); // warm up
+
+            long start = System.nanoTime();
+            long hash = 0;
+            for (int run = 0; run < GENERATION_RUNS; run++) {
+                hash = layoutHash(generator.generateAll(building.getFloorCount(), run, pool));
+            }
+            long nanos = System.nanoTime() - start;
+            pool.shutdown();
+
+            if (threads == 1) {
+                expected = hash;
+            } else if (hash != expected) {
+                System.out.println("Layout differs with " + threads + " threads!");
+            }
+            System.out.println(String.format("%8d %8d %14.3f %18x", building.getFloorCount(), threads,
+                    nanos / 1e6 / GENERATION_RUNS, hash));
+        }
+    }
+
+    private static long layoutHash(Floor[] floors) {
+        long hash = 17;
+        for (Floor floor : floors) {
+            for (GameEntity note : floor.notes) hash = hash * 31 + note.x;
+            for (GameEntity note : floor.classroomNotes) hash = hash * 31 + note.x;
+            for (Locker locker : floor.lockers) hash = hash * 31 + locker.getX();
+            for (Locker locker : floor.classroomLockers) hash = hash * 31 + locker.getX();
+            for (Obstacle obstacle : floor.obstacles) hash = hash * 31 + obstacle.getX();
+            for (Classroom classroom : floor.classrooms) {
+                hash = hash * 31 + classroom.getEntranceBounds().x;
+                hash = hash * 31 + classroom.getExitBounds().x;
+            }
+            if (floor.key != null) hash = hash * 31 + floor.key.x;
+            if (floor.classroomKey != null) hash = hash * 31 + floor.classroomKey.x;
+        }
+        return hash;
+    }
+
+    private static void measure(BuildingDescriptor building) {
+        ItemManager itemManager = new ItemManager(building, GROUND_HEIGHT);
+        Player player = new Player(200, GROUND_HEIGHT, null);
+        Monster monster = new Monster(SCREEN_WIDTH + 300, GROUND_HEIGHT, building.getWorldWidth());
+
+        long generateNanos = 0;
+        long attachNanos = 0;
+        for (int run = 0; run < GENERATION_RUNS; run++) {
+            long start = System.nanoTime();
+            itemManager.generateAllFloors(new Random(run));
+            long generated = System.nanoTime();
+            itemManager.attachPlayer(player);
+            itemManager.attachMonster(monster);
+            attachNanos += System.nanoTime() - generated;
+            generateNanos += generated - start;
+        }
+
+        // Walk the player back and forth on the top floor while the monster hunts
+        itemManager.changeFloor(building.getFloorCount() - 1);
+        int direction = 1;
+        long start = System.nanoTime();
+        for (int tick = 0; tick < TICKS; tick++) {
+            int x = player.getX() + direction * 8;
+            if (x < 0 || x > building.getWorldWidth() - player.getBounds().width) {
+                direction = -direction;
+                x = player.getX();
+            }
+            player.setPosition(x, player.getY());
+            itemManager.onPlayerMoved(player);
+
+            int cameraX = Math.max(0, Math.min(x - SCREEN_WIDTH / 2, building.getWorldWidth() - SCREEN_WIDTH));
+            itemManager.update(cameraX, SCREEN_WIDTH);
+            monster.update(player.getX(), false, SCREEN_WIDTH, cameraX, GROUND_HEIGHT,
+                           itemManager.getCurrentFloor(), itemManager, itemManager.isInClassroom());
+            player.collidesWith(monster, itemManager.getCurrentFloor(), itemManager);
+            player.update();
+            itemManager.canExit(player, itemManager.getCurrentFloor());
+        }
+        long tickNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("%8d %8d %14.3f %14.3f %14.3f", building.getFloorCount(), building.getWorldWidth(),
+                generateNanos / 1e6 / GENERATION_RUNS, attachNanos / 1e6 / GENERATION_RUNS, tickNanos / 1e3 / TICKS));
+    }
+}
@@ -0,0 +1,121 @@
+import java.util.Arrays;
+
+public class BuildingDescriptor {
+    // Describes the building layout: how many floors there are, where the staircases
+    // between them stand, and how the notes, the key and the exit are spread over them.
+    // Generation, drawing, the monster and the HUD all read the building from here.
+    private int floorCount;
+    private int worldWidth;
+    private int[] stairsUpX;
+    private int[] stairsDownX;
+    private int[] notesPerFloor;
+    private int totalNotes = 0;
+    private int keyFloor = 0;
+    private int exitFloor = 0;
+    private int exitX = 500;
+    // Endless buildings have no fixed floor list - floor n is n levels below the
+    // entrance and every floor follows the same alternating-stairs rule
+    private boolean endless = false;
+
+    public BuildingDescriptor(int floorCount, int worldWidth) {
+        this.floorCount = floorCount;
+        this.worldWidth = worldWidth;
+        this.stairsUpX = new int[floorCount];
+        this.stairsDownX = new int[floorCount];
+        this.notesPerFloor = new int[floorCount];
+        Arrays.fill(stairsUpX, -1);
+        Arrays.fill(stairsDownX, -1);
+    }
+
+    // The original school: three floors, stairs alternating right then left, one note
+    // per floor, the key on the second floor and the exit on the ground floor
+    public static BuildingDescriptor standard(int worldWidth) {
+        BuildingDescriptor building = new BuildingDescriptor(3, worldWidth);
+        building.linkStairs(0, worldWidth - 200);
+        building.linkStairs(1, 100);
+        for (int floor = 0; floor < 3; floor++) {
+            building.setNotesOnFloor(floor, 1);
+        }
+        building.setKeyFloor(1);
+        building.setExit(0, 500);
+        return building;
+    }
+
+    // Same rules as the standard school stacked to any height - used for scale testing
+    public static BuildingDescriptor tower(int floorCount, int worldWidth) {
+        BuildingDescriptor building = new BuildingDescriptor(floorCount, worldWidth);
+        for (int floor = 0; floor < floorCount - 1; floor++) {
+            building.linkStairs(floor, (floor % 2 == 0) ? worldWidth - 200 : 100);
+        }
+        for (int floor = 0; floor < floorCount; floor++) {
+            building.setNotesOnFloor(floor, 1);
+        }
+        building.setKeyFloor(Math.min(1, floorCount - 1));
+        building.setExit(0, 500);
+        return building;
+    }
+
+    // Endless descent: floors go down forever, one note per floor, no key and no exit.
+    // Floor indices are depths, so the "down" staircase leads to floor + 1.
+    public static BuildingDescriptor endless(int worldWidth) {
+        BuildingDescriptor building = new BuildingDescriptor(0, worldWidth);
+        building.endless = true;
+        building.keyFloor = -1;
+        building.exitFloor = -1;
+        return building;
+    }
+
+    // Connects a floor to the one above it with a staircase at the given x - the up
+    // staircase on the lower floor and the down staircase on the upper floor share it
+    public void linkStairs(int lowerFloor, int x) {
+        stairsUpX[lowerFloor] = x;
+        stairsDownX[lowerFloor + 1] = x;
+    }
+
+    public void setNotesOnFloor(int floor, int notes) {
+        totalNotes += notes - notesPerFloor[floor];
+        notesPerFloor[floor] = notes;
+    }
+
+    public void setKeyFloor(int floor) {
+        keyFloor = floor;
+    }
+
+    public void setExit(int floor, int x) {
+        exitFloor = floor;
+        exitX = x;
+    }
+
+    public int getUpFloor(int floor) {
+        if (endless) return floor > 0 ? floor - 1 : -1;
+        return stairsUpX[floor] >= 0 ? floor + 1 : -1;
+    }
+
+    public int getDownFloor(int floor) {
+        if (endless) return floor + 1;
+        return stairsDownX[floor] >= 0 ? floor - 1 : -1;
+    }
+
+    public int getStairsUpX(int floor) {
+        if (endless) return floor > 0 ? getStairsDownX(floor - 1) : -1;
+        return stairsUpX[floor];
+    }
+
+    public int getStairsDownX(int floor) {
+        if (endless) return (floor % 2 == 0) ? worldWidth - 200 : 100;
+        return stairsDownX[floor];
+    }
+
+    public int getNotesOnFloor(int floor) {
+        if (endless) return 1;
+        return notesPerFloor[floor];
+    }
+
+    public int getTotalNotes() { return totalNotes; }
+    public int getKeyFloor() { return keyFloor; }
+    public int getExitFloor() { return exitFloor; }
+    public int getExitX() { return exitX; }
+    public int getFloorCount() { return endless ? Integer.MAX_VALUE : floorCount; }
+    public int getWorldWidth() { return worldWidth; }
+    public boolean isEndless() { return endless; }
+}
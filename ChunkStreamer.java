@@ -0,0 +1,140 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class ChunkStreamer {
+    // Splits each floor's hallway into fixed-width chunks and keeps only the chunks around
+    // the camera live. Drawing and collision walk the live lists, so their cost depends on
+    // how much is near the screen rather than on how wide the floor is.
+    static final int CHUNK_WIDTH = 2048;
+    // Chunks kept live on each side of the ones the screen overlaps. One is enough to catch
+    // anything that starts left of the screen and reaches into it, since no entity is
+    // wider than a chunk.
+    private static final int WINDOW_MARGIN = 1;
+
+    private HashMap<Integer, FloorChunks> floors = new HashMap<>();
+    private FloorChunks current = null;
+    private int currentFloor = 0;
+    private int cameraX = 0;
+    private int screenWidth = 0;
+    private int firstChunk = 0;
+    private int lastChunk = -1;
+
+    private ArrayList<GameEntity> liveNotes = new ArrayList<>();
+    private ArrayList<Locker> liveLockers = new ArrayList<>();
+    private ArrayList<Obstacle> liveObstacles = new ArrayList<>();
+    private ArrayList<Classroom> liveClassrooms = new ArrayList<>();
+
+    public void clear() {
+        floors.clear();
+        current = null;
+        firstChunk = 0;
+        lastChunk = -1;
+        clearLive();
+    }
+
+    // Buckets a floor's hallway contents by the chunk their left edge falls in
+    public void load(Floor floor, int worldWidth) {
+        FloorChunks chunks = new FloorChunks(worldWidth);
+        for (GameEntity note : floor.notes) {
+            chunks.at(note.x).notes.add(note);
+        }
+        for (Locker locker : floor.lockers) {
+            chunks.at(locker.getX()).lockers.add(locker);
+        }
+        for (Obstacle obstacle : floor.obstacles) {
+            chunks.at(obstacle.getX()).obstacles.add(obstacle);
+        }
+        for (Classroom classroom : floor.classrooms) {
+            // Both doors are drawn with the classroom, so bucket by the leftmost one
+            int doorX = Math.min(classroom.getEntranceBounds().x, classroom.getExitBounds().x);
+            chunks.at(doorX).classrooms.add(classroom);
+        }
+        floors.put(floor.index, chunks);
+
+        if (floor.index == currentFloor) {
+            setFloor(currentFloor);
+        }
+    }
+
+    public void unload(int floor) {
+        floors.remove(floor);
+        if (floor == currentFloor) {
+            current = null;
+            clearLive();
+        }
+    }
+
+    // Switches to another floor, keeping the current camera window
+    public void setFloor(int floor) {
+        currentFloor = floor;
+        current = floors.get(floor);
+        firstChunk = 0;
+        lastChunk = -1;
+        update(cameraX, screenWidth);
+    }
+
+    // Moves the window with the camera; chunks only get activated or deactivated when
+    // the camera crosses a chunk boundary
+    public void update(int cameraX, int screenWidth) {
+        this.cameraX = cameraX;
+        this.screenWidth = screenWidth;
+        if (current == null) return;
+
+        int first = Math.max(0, Math.floorDiv(cameraX, CHUNK_WIDTH) - WINDOW_MARGIN);
+        int last = Math.min(current.chunks.length - 1, Math.floorDiv(cameraX + screenWidth, CHUNK_WIDTH) + WINDOW_MARGIN);
+        if (first == firstChunk && last == lastChunk) return;
+
+        firstChunk = first;
+        lastChunk = last;
+        clearLive();
+        for (int i = first; i <= last; i++) {
+            Chunk chunk = current.chunks[i];
+            liveNotes.addAll(chunk.notes);
+            liveLockers.addAll(chunk.lockers);
+            liveObstacles.addAll(chunk.obstacles);
+            liveClassrooms.addAll(chunk.classrooms);
+        }
+    }
+
+    private void clearLive() {
+        liveNotes.clear();
+        liveLockers.clear();
+        liveObstacles.clear();
+        liveClassrooms.clear();
+    }
+
+    // True when x on the current floor lies inside the live window
+    public boolean isLive(int x) {
+        return current != null && x >= firstChunk * CHUNK_WIDTH && x < (lastChunk + 1) * CHUNK_WIDTH;
+    }
+
+    // Collected notes stay in their chunk with active cleared
+    public ArrayList<GameEntity> getLiveNotes() { return liveNotes; }
+    public ArrayList<Locker> getLiveLockers() { return liveLockers; }
+    public ArrayList<Obstacle> getLiveObstacles() { return liveObstacles; }
+    public ArrayList<Classroom> getLiveClassrooms() { return liveClassrooms; }
+}
+
+class FloorChunks {
+    final Chunk[] chunks;
+
+    FloorChunks(int worldWidth) {
+        int count = Math.max(1, (worldWidth + ChunkStreamer.CHUNK_WIDTH - 1) / ChunkStreamer.CHUNK_WIDTH);
+        chunks = new Chunk[count];
+        for (int i = 0; i < count; i++) {
+            chunks[i] = new Chunk();
+        }
+    }
+
+    Chunk at(int x) {
+        int index = Math.floorDiv(x, ChunkStreamer.CHUNK_WIDTH);
+        return chunks[Math.max(0, Math.min(index, chunks.length - 1))];
+    }
+}
+
+class Chunk {
+    final ArrayList<GameEntity> notes = new ArrayList<>();
+    final ArrayList<Locker> lockers = new ArrayList<>();
+    final ArrayList<Obstacle> obstacles = new ArrayList<>();
+    final ArrayList<Classroom> classrooms = new ArrayList<>();
+}
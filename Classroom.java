@@ -0,0 +1,73 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+class Classroom {
+    private BufferedImage background;
+    private BufferedImage ground;
+    private BufferedImage entranceDoor;
+    private BufferedImage exitDoor;
+    private Obstacle connectedObstacle;
+    private int width, height;
+    private int entranceX, entranceY;
+    private int exitX, exitY;
+    private int classroomGroundY;
+    
+    public Classroom(BufferedImage bg, BufferedImage ground, BufferedImage entrance, 
+                    BufferedImage exit, Obstacle obstacle, int width, int height) {
+        this.background = bg;
+        this.ground = ground;
+        this.entranceDoor = entrance;
+        this.exitDoor = exit;
+        this.connectedObstacle = obstacle;
+        this.width = width;
+        this.height = height;
+        this.classroomGroundY = height - ground.getHeight();
+    }
+    
+    public void setEntrancePosition(int x, int y) {
+        this.entranceX = x;
+        this.entranceY = y;
+    }
+    
+    public void setExitPosition(int x, int y) {
+        this.exitX = x;
+        this.exitY = y;
+    }
+    
+    public void draw(Graphics g) {
+        g.drawImage(background, 0, 0, width, height, null);
+        g.drawImage(ground, 0, classroomGroundY, width, ground.getHeight(), null);
+        
+        int classroomEntranceX = 100;
+        int classroomExitX = width - 200;
+        int doorY = classroomGroundY - entranceDoor.getHeight();
+        
+        g.drawImage(entranceDoor, classroomEntranceX, doorY, null);
+        g.drawImage(exitDoor, classroomExitX, doorY, null);
+    }
+    
+    public Rectangle getEntranceBounds() {
+        return new Rectangle(entranceX, entranceY, entranceDoor.getWidth(), entranceDoor.getHeight());
+    }
+    
+    public Rectangle getExitBounds() {
+        return new Rectangle(exitX, exitY, exitDoor.getWidth(), exitDoor.getHeight());
+    }
+    
+    public Rectangle getClassroomEntranceBounds() {
+        int doorY = classroomGroundY - entranceDoor.getHeight();
+        return new Rectangle(100, doorY, entranceDoor.getWidth(), entranceDoor.getHeight());
+    }
+    
+    public Rectangle getClassroomExitBounds() {
+        int doorY = classroomGroundY - exitDoor.getHeight();
+        return new Rectangle(width - 200, doorY, exitDoor.getWidth(), exitDoor.getHeight());
+    }
+    
+    public int getClassroomWidth() { return width; }
+    public int getClassroomHeight() { return height; }
+    public int getClassroomGroundY() { return classroomGroundY; }
+    
+    public Obstacle getConnectedObstacle() { return connectedObstacle; }
+    public boolean hasObstacle() { return connectedObstacle != null; }
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+import java.util.ArrayList;
+
+class Floor {
+    // Everything generated for one floor. Built by FloorGenerator and owned by FloorStore.
+    final int index;
+    final ArrayList<GameEntity> notes = new ArrayList<>();
+    final ArrayList<Locker> lockers = new ArrayList<>();
+    final ArrayList<Obstacle> obstacles = new ArrayList<>();
+    final ArrayList<Classroom> classrooms = new ArrayList<>();
+    final ArrayList<Locker> classroomLockers = new ArrayList<>();
+    final ArrayList<GameEntity> classroomNotes = new ArrayList<>();
+    GameEntity key = null;
+    GameEntity classroomKey = null;
+    
+    Floor(int index) {
+        this.index = index;
+    }
+}
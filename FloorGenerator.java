@@ -0,0 +1,381 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class FloorGenerator {
+    // Builds the contents of a single floor. It only reads shared state (sprites and the
+    // building descriptor) and writes into the Floor it returns, so floors can be
+    // generated on any thread.
+    
+    // Width of the original school's hallway
+    private static final int SEGMENT_WIDTH = 3840;
+    private static final int LOCKERS_PER_FLOOR = 3;
+    private static final int MIN_DOOR_SPACING = 600;
+    private static final int MAX_DOOR_SPACING = 1199;
+    
+    private BuildingDescriptor building;
+    private int worldWidth;
+    private int groundHeight;
+    private GameEntity exit;
+    private BufferedImage noteImage;
+    private BufferedImage keyImage;
+    private BufferedImage lockerImage;
+    private BufferedImage obstacleImage;
+    private BufferedImage doorEntranceImage;
+    private BufferedImage doorExitImage;
+    private BufferedImage classroomBgImage;
+    private BufferedImage classroomGroundImage;
+    
+    public FloorGenerator(BuildingDescriptor building, ItemSprites sprites, int groundHeight) {
+        this.building = building;
+        this.worldWidth = building.getWorldWidth();
+        this.groundHeight = groundHeight;
+        this.noteImage = sprites.note;
+        this.keyImage = sprites.key;
+        this.lockerImage = sprites.locker;
+        this.obstacleImage = sprites.obstacle;
+        this.doorEntranceImage = sprites.doorEntrance;
+        this.doorExitImage = sprites.doorExit;
+        this.classroomBgImage = sprites.classroomBg;
+        this.classroomGroundImage = sprites.classroomGround;
+        this.exit = new GameEntity(sprites.exit, building.getExitX(), groundHeight - sprites.exit.getHeight());
+    }
+    
+    // Seed for one floor of a run. SplitMix64 of the run seed and floor index, so
+    // neighbouring floors get unrelated streams and any floor can be rebuilt on its own.
+    public static long floorSeed(long runSeed, int floor) {
+        long z = runSeed + (floor + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    public Floor generate(int index, long runSeed) {
+        return generate(index, new Random(floorSeed(runSeed, index)));
+    }
+    
+    // Generates floors [0, floorCount) as independent jobs on the pool. Every floor draws
+    // from its own seeded stream and lands in its own slot, so the result is the same for
+    // any pool size or scheduling order.
+    public Floor[] generateAll(int floorCount, long runSeed, ForkJoinPool pool) {
+        Floor[] floors = new Floor[floorCount];
+        pool.invoke(new GenerateFloors(this, floors, runSeed, 0, floorCount));
+        return floors;
+    }
+    
+    public Floor generate(int index, Random random) {
+        Floor f = new Floor(index);
+        FloorSpace space = createSpace(f);
+        
+        int lockersInMainWorld = 1 + random.nextInt(2);
+        int lockersInClassrooms = LOCKERS_PER_FLOOR - lockersInMainWorld;
+        
+        for (int i = 0; i < lockersInMainWorld; i++) {
+            placeHallwayLocker(f, space, random);
+        }
+        
+        // Generate classrooms with optional obstacles - rolled once per standard floor
+        // width so very wide corridors are not left empty
+        int segments = Math.max(1, worldWidth / SEGMENT_WIDTH);
+        for (int segment = 0; segment < segments; segment++) {
+            if (random.nextInt(100) < 80) { // 80% chance to spawn at least one classroom
+                int classroomCount = 1 + random.nextInt(2);
+                for (int i = 0; i < classroomCount; i++) {
+                    generateClassroom(f, space, groundHeight, random);
+                }
+            }
+        }
+        
+        // All classrooms on a floor share one interior, so their lockers share its space.
+        // Each one is placed where it still leaves room for the ones after it, so once a
+        // floor has a classroom its lockers always fit. A floor without one has no doors,
+        // and its hallway always has room for all three - so every floor gets its three
+        // lockers in one pass.
+        if (!f.classrooms.isEmpty()) {
+            for (int i = 0; i < lockersInClassrooms; i++) {
+                placeClassroomLocker(f, space, random, i + 1 < lockersInClassrooms);
+            }
+        } else {
+            for (int i = 0; i < lockersInClassrooms; i++) {
+                placeHallwayLocker(f, space, random);
+            }
+        }
+        
+        // Notes and the key go in last so they can land inside the classrooms
+        generateNotes(f, groundHeight, random);
+        generateKey(f, groundHeight, random);
+        
+        return f;
+    }
+    
+    // Free space of an empty floor: only the exit and the staircases are in the way
+    private FloorSpace createSpace(Floor f) {
+        FloorSpace space = new FloorSpace(worldWidth, lockerImage.getWidth(),
+                                          doorEntranceImage.getWidth(), obstacleImage.getWidth());
+        
+        if (f.index == building.getExitFloor() && exit != null) {
+            space.addSolid(exit.x, exit.sprite.getWidth());
+        }
+        
+        // Keep lockers clear of the staircases - stairs on the right keep lockers out to
+        // the right wall, stairs on the left likewise
+        int[] stairs = { building.getStairsUpX(f.index), building.getStairsDownX(f.index) };
+        for (int stairX : stairs) {
+            if (stairX < 0) continue;
+            if (stairX > worldWidth / 2) {
+                space.blockLockersFrom(stairX - 49);
+            } else {
+                space.blockLockersTo(stairX + 49);
+            }
+        }
+        return space;
+    }
+    
+    private void generateNotes(Floor f, int groundHeight, Random random) {
+        int totalNotes = building.getNotesOnFloor(f.index);
+        for (int i = 0; i < totalNotes; i++) {
+            boolean placeInClassroom = random.nextBoolean(); // 50% chance to place note in classroom
+            
+            if (placeInClassroom && !f.classrooms.isEmpty()) {
+                // Place note in a random classroom
+                Classroom classroom = f.classrooms.get(random.nextInt(f.classrooms.size()));
+                int noteX = 300 + random.nextInt(1320); // Within classroom bounds
+                int noteY = classroom.getClassroomGroundY() - noteImage.getHeight() - 20;
+                f.classroomNotes.add(new GameEntity(noteImage, noteX, noteY, i));
+            } else {
+                // Place note in main world
+                int noteX = hallwayPickupX(f, noteImage.getWidth(), random);
+                f.notes.add(new GameEntity(noteImage, noteX, groundHeight - noteImage.getHeight() - 20, i));
+            }
+        }
+    }
+    
+    private void generateKey(Floor f, int groundHeight, Random random) {
+        if (f.index == building.getKeyFloor()) { // Key only spawns on the building's key floor
+            boolean placeInClassroom = random.nextBoolean(); // 50% chance to place key in classroom
+            
+            if (placeInClassroom && !f.classrooms.isEmpty()) {
+                // Place key in a random classroom
+                Classroom classroom = f.classrooms.get(random.nextInt(f.classrooms.size()));
+                int keyX = 300 + random.nextInt(1320); // Within classroom bounds
+                int keyY = classroom.getClassroomGroundY() - keyImage.getHeight() - 20;
+                f.classroomKey = new GameEntity(keyImage, keyX, keyY);
+                f.classroomKey.active = true;
+            } else {
+                // Place key in main world
+                int keyX = hallwayPickupX(f, keyImage.getWidth(), random);
+                f.key = new GameEntity(keyImage, keyX, groundHeight - keyImage.getHeight() - 20);
+                f.key.active = true;
+            }
+        }
+    }
+    
+    // Somewhere in the hallway a pickup does not sit under an obstacle - the player cannot
+    // walk through obstacles, so one buried there could never be collected
+    private int hallwayPickupX(Floor f, int width, Random random) {
+        FreeIntervals free = new FreeIntervals(300, worldWidth - 301);
+        for (Obstacle obstacle : f.obstacles) {
+            free.subtract(obstacle.getX() - width + 1, obstacle.getX() + obstacle.getBounds().width - 1);
+        }
+        return free.isEmpty() ? 300 : free.sample(random);
+    }
+    
+    private void generateClassroom(Floor f, FloorSpace space, int groundHeight, Random random) {
+        int doorWidth = doorEntranceImage.getWidth();
+        int obstacleWidth = obstacleImage.getWidth();
+        int entranceX = 0, exitX = 0, obstacleX = 0;
+        
+        // Decide if this classroom will have an obstacle (60% chance)
+        boolean hasObstacle = random.nextInt(100) < 60;
+        if (hasObstacle) {
+            // Left door 200px before the obstacle, right door 80px after it. Candidate
+            // obstacle positions are those where the obstacle and both doors are all free.
+            int entranceOffset = -doorWidth - 200;
+            int exitOffset = obstacleWidth + 80;
+            FreeIntervals anchors = new FreeIntervals(obstacleWidth + 300, worldWidth - obstacleWidth - 301)
+                .intersect(space.obstacles)
+                .intersect(space.doors.shifted(entranceOffset))
+                .intersect(space.doors.shifted(exitOffset));
+            
+            if (anchors.isEmpty()) {
+                // No room for the obstacle layout - fall back to a plain classroom
+                hasObstacle = false;
+            } else {
+                obstacleX = anchors.sample(random);
+                entranceX = obstacleX + entranceOffset;
+                exitX = obstacleX + exitOffset;
+            }
+        }
+        
+        if (!hasObstacle) {
+            // Classroom without obstacle - place doors with random spacing. The spacing is
+            // drawn only from those that leave a free spot for both doors, then the
+            // entrance from the spots that spacing allows.
+            FreeIntervals doors = new FreeIntervals(300, worldWidth - 301 - doorWidth * 2).intersect(space.doors);
+            FreeIntervals spacings = doors.offsetsTo(doors, MIN_DOOR_SPACING, MAX_DOOR_SPACING);
+            if (spacings.isEmpty()) {
+                return; // Floor is full
+            }
+            int doorSpacing = spacings.sample(random);
+            entranceX = doors.intersect(doors.shifted(doorSpacing)).sample(random);
+            exitX = entranceX + doorSpacing;
+        }
+        
+        int doorY = groundHeight - doorEntranceImage.getHeight();
+        
+        // CREATE THE CLASSROOM
+        Classroom classroom;
+        if (hasObstacle) {
+            Obstacle obstacle = new Obstacle(obstacleImage, obstacleX, groundHeight - obstacleImage.getHeight());
+            classroom = new Classroom(classroomBgImage, classroomGroundImage, 
+                                   doorEntranceImage, doorExitImage, 
+                                   obstacle, 1920, 1080);
+            f.obstacles.add(obstacle);
+            space.addObstacle(obstacleX);
+        } else {
+            // Classroom without obstacle
+            classroom = new Classroom(classroomBgImage, classroomGroundImage, 
+                                   doorEntranceImage, doorExitImage, 
+                                   null, 1920, 1080);
+        }
+        
+        classroom.setEntrancePosition(entranceX, doorY);
+        classroom.setExitPosition(exitX, doorY);
+        space.addDoor(entranceX);
+        space.addDoor(exitX);
+        
+        if (f.classrooms.isEmpty()) {
+            space.addClassroomDoor(classroom.getClassroomEntranceBounds());
+            space.addClassroomDoor(classroom.getClassroomExitBounds());
+        }
+        f.classrooms.add(classroom);
+    }
+    
+    private boolean placeHallwayLocker(Floor f, FloorSpace space, Random random) {
+        if (space.lockers.isEmpty()) return false;
+        
+        int lockerX = space.lockers.sample(random);
+        f.lockers.add(new Locker(lockerImage, lockerX, groundHeight - lockerImage.getHeight()));
+        space.addLocker(lockerX);
+        return true;
+    }
+    
+    private boolean placeClassroomLocker(Floor f, FloorSpace space, Random random, boolean leaveRoom) {
+        FreeIntervals spots = leaveRoom ? space.classroomLockersLeavingRoom() : space.classroomLockers;
+        if (spots.isEmpty()) return false;
+        
+        int lockerX = spots.sample(random);
+        int lockerY = f.classrooms.get(0).getClassroomGroundY() - lockerImage.getHeight();
+        f.classroomLockers.add(new Locker(lockerImage, lockerX, lockerY));
+        space.addClassroomLocker(lockerX);
+        return true;
+    }
+}
+
+class FloorSpace {
+    // Free left-edge positions for each kind of placement on one floor. Placing something
+    // subtracts its span, widened by the other kind's width and any spacing buffer, from
+    // every list it conflicts with - so a list only ever holds valid positions and
+    // sampling from it cannot fail.
+    private static final int DOOR_LOCKER_BUFFER = 30;
+    private static final int CLASSROOM_LOCKER_BUFFER = 50;
+    private static final int FAR = Integer.MAX_VALUE / 4;
+    
+    final FreeIntervals lockers;
+    final FreeIntervals doors;
+    final FreeIntervals obstacles;
+    final FreeIntervals classroomLockers;
+    private int lockerWidth, doorWidth, obstacleWidth;
+    
+    FloorSpace(int worldWidth, int lockerWidth, int doorWidth, int obstacleWidth) {
+        this.lockerWidth = lockerWidth;
+        this.doorWidth = doorWidth;
+        this.obstacleWidth = obstacleWidth;
+        lockers = new FreeIntervals(100, worldWidth - 101 - lockerWidth);
+        doors = new FreeIntervals(100, worldWidth - 100 - doorWidth);
+        // Obstacle bounds come from the classroom layout, so only conflicts live here
+        obstacles = new FreeIntervals(-FAR, FAR);
+        classroomLockers = new FreeIntervals(200, 1719);
+    }
+    
+    // Something nothing else may overlap, e.g. the exit
+    void addSolid(int x, int width) {
+        lockers.subtract(x - lockerWidth + 1, x + width - 1);
+        doors.subtract(x - doorWidth + 1, x + width - 1);
+        obstacles.subtract(x - obstacleWidth + 1, x + width - 1);
+    }
+    
+    void addLocker(int x) {
+        addSolid(x, lockerWidth);
+    }
+    
+    void addObstacle(int x) {
+        addSolid(x, obstacleWidth);
+    }
+    
+    void addDoor(int x) {
+        addSolid(x, doorWidth);
+        lockers.subtract(x - DOOR_LOCKER_BUFFER - lockerWidth + 1, x + doorWidth + DOOR_LOCKER_BUFFER - 1);
+    }
+    
+    void blockLockersFrom(int x) {
+        lockers.subtract(x, FAR);
+    }
+    
+    void blockLockersTo(int x) {
+        lockers.subtract(-FAR, x);
+    }
+    
+    void addClassroomDoor(Rectangle door) {
+        classroomLockers.subtract(door.x - CLASSROOM_LOCKER_BUFFER - lockerWidth + 1,
+                                  door.x + door.width + CLASSROOM_LOCKER_BUFFER - 1);
+    }
+    
+    // Classroom locker spots from which another classroom locker still fits
+    FreeIntervals classroomLockersLeavingRoom() {
+        if (classroomLockers.isEmpty()) return classroomLockers;
+        
+        int reach = lockerWidth + CLASSROOM_LOCKER_BUFFER;
+        FreeIntervals spots = classroomLockers.shifted(0);
+        spots.subtract(classroomLockers.last() - reach + 1, classroomLockers.first() + reach - 1);
+        return spots;
+    }
+    
+    void addClassroomLocker(int x) {
+        classroomLockers.subtract(x - CLASSROOM_LOCKER_BUFFER - lockerWidth + 1,
+                                  x + lockerWidth + CLASSROOM_LOCKER_BUFFER - 1);
+    }
+}
+
+class GenerateFloors extends RecursiveAction {
+    // Splits a range of floors in half until each task holds a single floor
+    private static final long serialVersionUID = 1L;
+    
+    private final FloorGenerator generator;
+    private final Floor[] floors;
+    private final long runSeed;
+    private final int from, to;
+    
+    GenerateFloors(FloorGenerator generator, Floor[] floors, long runSeed, int from, int to) {
+        this.generator = generator;
+        this.floors = floors;
+        this.runSeed = runSeed;
+        this.from = from;
+        this.to = to;
+    }
+    
+    @Override
+    protected void compute() {
+        if (to - from <= 1) {
+            if (from < to) {
+                floors[from] = generator.generate(from, runSeed);
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        invokeAll(new GenerateFloors(generator, floors, runSeed, from, mid),
+                  new GenerateFloors(generator, floors, runSeed, mid, to));
+    }
+}
@@ -0,0 +1,4 @@
+interface FloorListener {
+    void onFloorLoaded(Floor floor);
+    void onFloorEvicted(Floor floor);
+}
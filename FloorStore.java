@@ -0,0 +1,331 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class FloorStore {
+    // Holds the generated floors. A fixed building keeps every floor resident. In endless
+    // mode floors are generated from a per-floor seed when first needed (ideally ahead of
+    // time on a background thread), the least recently used ones are dropped, and what
+    // the player took from a floor is kept as a small delta so a regenerated floor comes
+    // back exactly as they left it. A level file's floors are decoded on demand the same
+    // way, but once decoded they stay.
+    private static final long NOTE_KEY_BIT = 1L << 63;
+
+    private FloorGenerator generator;
+    private FloorListener listener;
+    private LinkedHashMap<Integer, Floor> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private HashMap<Integer, Future<Floor>> pending = new HashMap<>();
+    // Per floor: bit i set = note i collected, top bit = key collected. Kept as arrays
+    // sorted by floor so saving the run every tick does not allocate.
+    private int[] collectedFloors = new int[8];
+    private long[] collectedBits = new long[8];
+    private int collectedCount = 0;
+    private ExecutorService worker = null;
+    private boolean endless = false;
+    private LevelFile level = null;
+    private long runSeed = 0;
+    private int capacity = Integer.MAX_VALUE;
+    private int currentFloor = 0;
+
+    public FloorStore(FloorGenerator generator, FloorListener listener) {
+        this.generator = generator;
+        this.listener = listener;
+    }
+
+    public void clear() {
+        for (Future<Floor> future : pending.values()) {
+            future.cancel(true);
+        }
+        pending.clear();
+        resident.clear();
+        collectedCount = 0;
+        currentFloor = 0;
+    }
+
+    // A fixed building generated up front from the run seed; its floors come in by put()
+    public void startFixed(long runSeed) {
+        clear();
+        this.endless = false;
+        this.level = null;
+        this.runSeed = runSeed;
+        this.capacity = Integer.MAX_VALUE;
+    }
+
+    // Adds a floor generated up front (fixed buildings)
+    public void put(Floor floor) {
+        install(floor);
+    }
+
+    public void startEndless(long runSeed, int capacity) {
+        clear();
+        this.endless = true;
+        this.level = null;
+        this.runSeed = runSeed;
+        this.capacity = Math.max(3, capacity);
+        startWorker();
+    }
+
+    // Floors of a fixed building come from the level file, the first time each is needed
+    public void startLevel(LevelFile level) {
+        clear();
+        this.endless = false;
+        this.level = level;
+        this.capacity = Integer.MAX_VALUE;
+        startWorker();
+    }
+
+    private void startWorker() {
+        if (worker == null) {
+            worker = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "floor-prefetch");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+    }
+
+    // Returns the floor if it is resident, otherwise null. Never waits: a floor that is not
+    // in yet is started in the background instead, and installPending() brings it in.
+    public Floor get(int floor) {
+        Floor loaded = resident.get(floor);
+        if (loaded == null) {
+            prefetch(floor);
+        }
+        return loaded;
+    }
+
+    // Returns the floor, waiting for its prefetch or generating it on the calling thread.
+    // Only for setting up or restoring a run - during play use get().
+    public Floor require(int floor) {
+        Floor loaded = resident.get(floor);
+        if (loaded != null || !loadsOnDemand(floor)) {
+            return loaded;
+        }
+
+        Future<Floor> future = pending.remove(floor);
+        if (future != null) {
+            try {
+                loaded = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                System.err.println("Background floor generation failed: " + e.getCause());
+            }
+        }
+        if (loaded == null) {
+            loaded = load(level, floor, runSeed);
+        }
+        install(loaded);
+        return loaded;
+    }
+
+    // Starts generating a floor in the background so it is ready when the player gets there
+    public void prefetch(int floor) {
+        if (!loadsOnDemand(floor) || resident.containsKey(floor) || pending.containsKey(floor)) {
+            return;
+        }
+        LevelFile source = level;
+        long seed = runSeed;
+        pending.put(floor, worker.submit(() -> load(source, floor, seed)));
+    }
+
+    private boolean loadsOnDemand(int floor) {
+        if (floor < 0) return false;
+        return endless || (level != null && floor < level.getBuilding().getFloorCount());
+    }
+
+    // Decodes a floor from the level, or generates it from the run seed. A floor the level
+    // cannot give back is left empty rather than stopping the run.
+    private Floor load(LevelFile source, int floor, long seed) {
+        if (source == null) {
+            return generator.generate(floor, seed);
+        }
+        try {
+            return source.readFloor(floor);
+        } catch (IOException e) {
+            System.err.println("Could not read floor " + floor + " of the level: " + e.getMessage());
+            return new Floor(floor);
+        }
+    }
+
+    // Installs prefetched floors that have finished; call from the game thread
+    public void installPending() {
+        if (pending.isEmpty()) return;
+
+        Iterator<Map.Entry<Integer, Future<Floor>>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Future<Floor>> entry = it.next();
+            if (!entry.getValue().isDone()) continue;
+
+            it.remove();
+            try {
+                install(entry.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                System.err.println("Background floor generation failed: " + e.getCause());
+            }
+        }
+    }
+
+    public void setCurrentFloor(int floor) {
+        currentFloor = floor;
+        evict();
+        prefetch(floor + 1);
+        prefetch(floor - 1);
+    }
+
+    private void install(Floor floor) {
+        if (resident.containsKey(floor.index)) return;
+
+        applyCollected(floor);
+        resident.put(floor.index, floor);
+        listener.onFloorLoaded(floor);
+        evict();
+    }
+
+    // Drops the least recently used floors, never the current floor or its neighbours
+    private void evict() {
+        Iterator<Floor> it = resident.values().iterator();
+        while (resident.size() > capacity && it.hasNext()) {
+            Floor floor = it.next();
+            if (Math.abs(floor.index - currentFloor) <= 1) continue;
+
+            it.remove();
+            listener.onFloorEvicted(floor);
+        }
+    }
+
+    private void applyCollected(Floor floor) {
+        int i = findCollected(floor.index);
+        if (i < 0) return;
+        long bits = collectedBits[i];
+
+        floor.notes.removeIf(note -> takeIfCollected(note, bits));
+        floor.classroomNotes.removeIf(note -> takeIfCollected(note, bits));
+        if ((bits & NOTE_KEY_BIT) != 0) {
+            if (floor.key != null) floor.key.active = false;
+            if (floor.classroomKey != null) floor.classroomKey.active = false;
+        }
+    }
+
+    private boolean takeIfCollected(GameEntity note, long bits) {
+        if ((bits & (1L << note.id)) == 0) return false;
+        note.active = false;
+        return true;
+    }
+    
+    // Collected items for a save: entry count, then floor and bits per entry
+    public void saveCollected(ByteBuffer out) {
+        out.putInt(collectedCount);
+        for (int i = 0; i < collectedCount; i++) {
+            out.putInt(collectedFloors[i]);
+            out.putLong(collectedBits[i]);
+        }
+    }
+    
+    // Makes the collected items what saveCollected wrote, on the floors already loaded (a
+    // rewind). A floor that had something collected since then is built afresh so it
+    // comes back; one with more collected in the list loses it now.
+    public void replaceCollected(ByteBuffer in) {
+        int[] oldFloors = collectedFloors;
+        long[] oldBits = collectedBits;
+        int oldCount = collectedCount;
+        collectedFloors = new int[Math.max(8, oldFloors.length)];
+        collectedBits = new long[collectedFloors.length];
+        collectedCount = 0;
+        int entries = in.getInt();
+        for (int i = 0; i < entries; i++) {
+            int floor = in.getInt();
+            markCollected(floor, in.getLong());
+        }
+
+        for (Floor floor : getResident()) {
+            int old = Arrays.binarySearch(oldFloors, 0, oldCount, floor.index);
+            long before = old >= 0 ? oldBits[old] : 0L;
+            int now = findCollected(floor.index);
+            long after = now >= 0 ? collectedBits[now] : 0L;
+            if ((before & ~after) != 0) {
+                reload(floor);
+            } else if (after != before) {
+                applyCollected(floor);
+            }
+        }
+    }
+
+    private void reload(Floor floor) {
+        resident.remove(floor.index);
+        listener.onFloorEvicted(floor);
+        install(load(level, floor.index, runSeed));
+    }
+
+    // Reads back what saveCollected wrote and takes the items off floors already loaded
+    public void restoreCollected(ByteBuffer in) {
+        int entries = in.getInt();
+        for (int i = 0; i < entries; i++) {
+            int floor = in.getInt();
+            markCollected(floor, in.getLong());
+            Floor loaded = resident.get(floor);
+            if (loaded != null) {
+                applyCollected(loaded);
+            }
+        }
+    }
+    
+    public void recordNoteCollected(int floor, int noteId) {
+        markCollected(floor, 1L << noteId);
+    }
+
+    public void recordKeyCollected(int floor) {
+        markCollected(floor, NOTE_KEY_BIT);
+    }
+    
+    private int findCollected(int floor) {
+        return Arrays.binarySearch(collectedFloors, 0, collectedCount, floor);
+    }
+    
+    private void markCollected(int floor, long bits) {
+        int i = findCollected(floor);
+        if (i >= 0) {
+            collectedBits[i] |= bits;
+            return;
+        }
+        
+        i = -i - 1;
+        if (collectedCount == collectedFloors.length) {
+            collectedFloors = Arrays.copyOf(collectedFloors, collectedCount * 2);
+            collectedBits = Arrays.copyOf(collectedBits, collectedCount * 2);
+        }
+        System.arraycopy(collectedFloors, i, collectedFloors, i + 1, collectedCount - i);
+        System.arraycopy(collectedBits, i, collectedBits, i + 1, collectedCount - i);
+        collectedFloors[i] = floor;
+        collectedBits[i] = bits;
+        collectedCount++;
+    }
+
+    public boolean isResident(int floor) {
+        return resident.containsKey(floor);
+    }
+
+    public ArrayList<Floor> getResident() {
+        return new ArrayList<>(resident.values());
+    }
+
+    public void shutdown() {
+        if (worker != null) {
+            worker.shutdownNow();
+            worker = null;
+        }
+    }
+}
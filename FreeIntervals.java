@@ -0,0 +1,224 @@
+import java.util.Arrays;
+import java.util.Random;
+
+public class FreeIntervals {
+    // A sorted list of disjoint closed integer ranges [start, end] - the positions still
+    // available for one kind of placement. Taking space out finds the ranges it touches
+    // by binary search and edits the arrays in place. Sampling walks a prefix sum of the
+    // range lengths with a binary search, so picking a free position never needs retries
+    // and an empty list is a definite "does not fit".
+    private int[] starts;
+    private int[] ends;
+    private int count;
+    private long[] prefix = new long[0];
+    private boolean prefixDirty = true;
+
+    public FreeIntervals(int min, int max) {
+        starts = new int[8];
+        ends = new int[8];
+        count = 0;
+        if (min <= max) {
+            starts[0] = min;
+            ends[0] = max;
+            count = 1;
+        }
+    }
+
+    private FreeIntervals(int[] starts, int[] ends, int count) {
+        this.starts = starts;
+        this.ends = ends;
+        this.count = count;
+    }
+
+    // Removes [from, to] from the free space. The ranges it touches are found by binary
+    // search and replaced in place by what is left of the first and last of them.
+    public void subtract(int from, int to) {
+        if (from > to || count == 0) return;
+
+        int first = firstEndingAtOrAfter(from);
+        int last = lastStartingAtOrBefore(to);
+        if (first > last) return;
+
+        // At most two pieces survive: the part of the first range before from, and the
+        // part of the last range after to
+        boolean keepLeft = starts[first] < from;
+        boolean keepRight = ends[last] > to;
+        int leftStart = starts[first];
+        int rightEnd = ends[last];
+        int pieces = (keepLeft ? 1 : 0) + (keepRight ? 1 : 0);
+        int removed = last - first + 1;
+
+        if (count - removed + pieces > starts.length) {
+            int capacity = Math.max(count + 2, starts.length * 2);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        System.arraycopy(starts, last + 1, starts, first + pieces, count - last - 1);
+        System.arraycopy(ends, last + 1, ends, first + pieces, count - last - 1);
+        count += pieces - removed;
+
+        int at = first;
+        if (keepLeft) {
+            starts[at] = leftStart;
+            ends[at++] = from - 1;
+        }
+        if (keepRight) {
+            starts[at] = to + 1;
+            ends[at] = rightEnd;
+        }
+        prefixDirty = true;
+    }
+
+    private int firstEndingAtOrAfter(int x) {
+        int low = 0, high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int lastStartingAtOrBefore(int x) {
+        int low = 0, high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    // Positions p such that p + offset is free here
+    public FreeIntervals shifted(int offset) {
+        int[] newStarts = new int[count];
+        int[] newEnds = new int[count];
+        for (int i = 0; i < count; i++) {
+            newStarts[i] = starts[i] - offset;
+            newEnds[i] = ends[i] - offset;
+        }
+        return new FreeIntervals(newStarts, newEnds, count);
+    }
+
+    public FreeIntervals intersect(FreeIntervals other) {
+        int[] newStarts = new int[count + other.count];
+        int[] newEnds = new int[count + other.count];
+        int n = 0;
+        int i = 0, j = 0;
+        while (i < count && j < other.count) {
+            int start = Math.max(starts[i], other.starts[j]);
+            int end = Math.min(ends[i], other.ends[j]);
+            if (start <= end) {
+                newStarts[n] = start;
+                newEnds[n++] = end;
+            }
+            if (ends[i] < other.ends[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return new FreeIntervals(newStarts, newEnds, n);
+    }
+
+    // Offsets d in [min, max] such that some position p is free here and p + d is free in
+    // other. A pair of ranges allows the offsets from the gap between them to their full
+    // spread; other's ranges are walked with a moving window, since both lists are sorted.
+    public FreeIntervals offsetsTo(FreeIntervals other, int min, int max) {
+        int[] newStarts = new int[8];
+        int[] newEnds = new int[8];
+        int n = 0;
+        int first = 0;
+        for (int i = 0; i < count; i++) {
+            while (first < other.count && (long) other.ends[first] - starts[i] < min) {
+                first++;
+            }
+            for (int j = first; j < other.count && (long) other.starts[j] - ends[i] <= max; j++) {
+                if (n == newStarts.length) {
+                    newStarts = Arrays.copyOf(newStarts, n * 2);
+                    newEnds = Arrays.copyOf(newEnds, n * 2);
+                }
+                newStarts[n] = (int) Math.max(min, (long) other.starts[j] - ends[i]);
+                newEnds[n++] = (int) Math.min(max, (long) other.ends[j] - starts[i]);
+            }
+        }
+        return union(newStarts, newEnds, n);
+    }
+
+    // Sorts and merges possibly overlapping ranges into a list of disjoint ones
+    private static FreeIntervals union(int[] starts, int[] ends, int n) {
+        long[] ranges = new long[n];
+        for (int i = 0; i < n; i++) {
+            ranges[i] = ((long) starts[i] << 32) | (ends[i] & 0xFFFFFFFFL);
+        }
+        Arrays.sort(ranges);
+
+        int[] newStarts = new int[n];
+        int[] newEnds = new int[n];
+        int count = 0;
+        for (long range : ranges) {
+            int start = (int) (range >> 32);
+            int end = (int) range;
+            if (count > 0 && (long) start <= (long) newEnds[count - 1] + 1) {
+                newEnds[count - 1] = Math.max(newEnds[count - 1], end);
+            } else {
+                newStarts[count] = start;
+                newEnds[count++] = end;
+            }
+        }
+        return new FreeIntervals(newStarts, newEnds, count);
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    // Lowest and highest free positions; only call when not empty
+    public int first() {
+        return starts[0];
+    }
+
+    public int last() {
+        return ends[count - 1];
+    }
+
+    // Uniformly random free position; only call when not empty
+    public int sample(Random random) {
+        buildPrefix();
+        long total = prefix[count - 1];
+        long pick = (total <= Integer.MAX_VALUE) ? random.nextInt((int) total) : Math.floorMod(random.nextLong(), total);
+
+        // First range whose cumulative length passes the pick
+        int low = 0, high = count - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prefix[mid] > pick) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        long before = (low == 0) ? 0 : prefix[low - 1];
+        return (int) (starts[low] + (pick - before));
+    }
+
+    private void buildPrefix() {
+        if (!prefixDirty) return;
+
+        if (prefix.length < count) {
+            prefix = new long[starts.length];
+        }
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += (long) ends[i] - starts[i] + 1;
+            prefix[i] = total;
+        }
+        prefixDirty = false;
+    }
+}
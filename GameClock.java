@@ -0,0 +1,73 @@
+public class GameClock {
+    // Run time for scoring and the HUD. Counts only while the run is actually being
+    // played - it is paused on the title screen, while frozen on a rewind frame and once
+    // the run is over - and reads System.nanoTime, so changing the system clock mid-run
+    // does not move it. Also counts ticks and how long the last tick took, so time spent
+    // in a state (hiding) can be measured in the same units as the run itself.
+    private long elapsedBeforeResume = 0;
+    // nanoTime when last resumed, or -1 while paused
+    private long runningSince = -1;
+    private long ticks = 0;
+    private long lastTickAt = 0;
+    private long lastTickNanos = 0;
+
+    // Back to zero, paused
+    public void reset() {
+        elapsedBeforeResume = 0;
+        runningSince = -1;
+        ticks = 0;
+        lastTickNanos = 0;
+    }
+
+    public void resume() {
+        if (runningSince < 0) {
+            runningSince = System.nanoTime();
+            lastTickAt = runningSince;
+        }
+    }
+
+    public void pause() {
+        if (runningSince >= 0) {
+            elapsedBeforeResume += System.nanoTime() - runningSince;
+            runningSince = -1;
+        }
+    }
+
+    public boolean isRunning() { return runningSince >= 0; }
+
+    // Once per game tick; a tick while paused takes no time
+    public void tick() {
+        ticks++;
+        if (runningSince >= 0) {
+            long now = System.nanoTime();
+            lastTickNanos = now - lastTickAt;
+            lastTickAt = now;
+        } else {
+            lastTickNanos = 0;
+        }
+    }
+
+    // Puts the clock at a saved reading, keeping it paused or running as it was
+    public void restore(long elapsedNanos, long tickCount) {
+        elapsedBeforeResume = elapsedNanos;
+        ticks = tickCount;
+        lastTickNanos = 0;
+        if (runningSince >= 0) {
+            runningSince = System.nanoTime();
+            lastTickAt = runningSince;
+        }
+    }
+
+    public long getElapsedNanos() {
+        return elapsedBeforeResume + (runningSince >= 0 ? System.nanoTime() - runningSince : 0);
+    }
+
+    public int getElapsedSeconds() {
+        return (int) (getElapsedNanos() / 1000000000L);
+    }
+
+    public long getTicks() { return ticks; }
+
+    // Real time between the last two ticks
+    public long getLastTickNanos() { return lastTickNanos; }
+}
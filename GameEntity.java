@@ -0,0 +1,25 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+class GameEntity {
+    public BufferedImage sprite;
+    public int x, y;
+    public boolean active = true;
+    // Index among the floor's notes, used to remember which ones were collected
+    public int id = 0;
+    
+    public GameEntity(BufferedImage sprite, int x, int y) {
+        this.sprite = sprite;
+        this.x = x;
+        this.y = y;
+    }
+    
+    public GameEntity(BufferedImage sprite, int x, int y, int id) {
+        this(sprite, x, y);
+        this.id = id;
+    }
+    
+    public Rectangle getBounds() {
+        return new Rectangle(x, y, sprite.getWidth(), sprite.getHeight());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+class GeneratedWorld {
+    // A run's floors, generated ahead of time and handed to ItemManager.reset in one go,
+    // or the level file they are decoded from as the run reaches them
+    final long runSeed;
+    final Floor[] floors;
+    final LevelFile level;
+    
+    GeneratedWorld(long runSeed, Floor[] floors) {
+        this.runSeed = runSeed;
+        this.floors = floors;
+        this.level = null;
+    }
+    
+    GeneratedWorld(long runSeed, LevelFile level) {
+        this.runSeed = runSeed;
+        this.floors = new Floor[0];
+        this.level = level;
+    }
+}
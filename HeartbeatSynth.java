@@ -0,0 +1,191 @@
+public class HeartbeatSynth implements AudioGenerator {
+    // The player's heartbeat, and their breathing while hidden in a locker, synthesized in
+    // the mixer instead of played from files. Both follow a smoothed "dread" level taken
+    // from how close the monster is: the heart beats faster and louder as it approaches,
+    // and the breath in a locker quickens and gets more ragged.
+    //
+    // A beat is two thumps (lub, dub): a low sine that drops in pitch as it decays. The
+    // breath is band-passed noise under a slow inhale/exhale envelope. Everything runs on
+    // fields set up front and a shared sine table - render() never allocates.
+    private static final float SAMPLE_RATE = AudioMixer.SAMPLE_RATE;
+    private static final int SINE_SIZE = 4096;
+    private static final float[] SINE = new float[SINE_SIZE + 1];
+    static {
+        for (int i = 0; i <= SINE_SIZE; i++) {
+            SINE[i] = (float) Math.sin(2.0 * Math.PI * i / SINE_SIZE);
+        }
+    }
+
+    // Monster distance (world pixels) at which dread starts to rise, and where it peaks
+    private static final float DREAD_START = 1600f;
+    private static final float DREAD_PEAK = 150f;
+    private static final float REST_BPM = 72f;
+    private static final float PANIC_BPM = 150f;
+    private static final float THUMP_FREQUENCY = 55f;
+    private static final float THUMP_DECAY_SECONDS = 0.09f;
+    private static final float THUMP_ATTACK_FRAMES = 88f; // 2ms
+    private static final float DUB_LEVEL = 0.65f;
+    // A thump below this (-80dB) is over and costs nothing until the next beat
+    private static final float ENVELOPE_FLOOR = 0.0001f;
+    private static final float REST_BREATH_SECONDS = 3.6f;
+    private static final float PANIC_BREATH_SECONDS = 1.6f;
+    private static final float INHALE_SHARE = 0.4f;
+    // How much of the way to a new dread/hiding level is covered per block (~12ms)
+    private static final float SMOOTHING = 0.02f;
+    // Blocks without a setState() after which the game is taken to have stopped updating
+    // (title screen, jumpscare) and everything fades out
+    private static final int STALE_BLOCKS = 20;
+
+    private float heartVolume = 0.55f;
+    private float breathVolume = 0.10f;
+
+    // Set by the game thread
+    private volatile int monsterDistance = -1;
+    private volatile boolean hiding = false;
+    private volatile int updates = 0;
+
+    // Mixer thread state
+    private int lastUpdates = 0;
+    private int staleBlocks = STALE_BLOCKS;
+    private float dread = 0f;
+    private float presence = 0f;
+    private float breathPresence = 0f;
+    private float beatClock = 0f; // seconds since the last lub
+    // Each thump's decay envelope (which also bends its pitch), frames since it started
+    // and oscillator phase in cycles
+    private float lubEnvelope = 0f, dubEnvelope = 0f;
+    private int lubAge = 0, dubAge = 0;
+    private float lubPhase = 0f, dubPhase = 0f;
+    private float breathClock = 0f;
+    private int noiseState = 0x2545F491;
+    private float breathLow = 0f, breathBand = 0f;
+    private long renderNanos = 0;
+    private long renderedBlocks = 0;
+
+    // Once per tick: distance to the monster, or -1 when it is not out or not on this floor
+    public void setState(int monsterDistance, boolean hiding) {
+        this.monsterDistance = monsterDistance;
+        this.hiding = hiding;
+        updates++;
+    }
+
+    @Override
+    public void render(float[] out, int frames) {
+        long start = System.nanoTime();
+        int seen = updates;
+        if (seen != lastUpdates) {
+            lastUpdates = seen;
+            staleBlocks = 0;
+        } else if (staleBlocks < STALE_BLOCKS) {
+            staleBlocks++;
+        }
+        boolean live = staleBlocks < STALE_BLOCKS;
+        int distance = monsterDistance;
+
+        float targetDread = 0f;
+        if (live && distance >= 0) {
+            targetDread = Math.max(0f, Math.min(1f, (DREAD_START - distance) / (DREAD_START - DREAD_PEAK)));
+        }
+        float targetPresence = (live && distance >= 0) ? 1f : 0f;
+        float targetBreath = (live && hiding) ? 1f : 0f;
+        dread += (targetDread - dread) * SMOOTHING;
+        presence += (targetPresence - presence) * SMOOTHING * 2f;
+        breathPresence += (targetBreath - breathPresence) * SMOOTHING * 2f;
+        if (presence < 0.001f && breathPresence < 0.001f) {
+            countRender(start);
+            return;
+        }
+
+        float dt = 1f / SAMPLE_RATE;
+        float period = 60f / (REST_BPM + (PANIC_BPM - REST_BPM) * dread);
+        float dubDelay = Math.max(0.18f, period * 0.3f);
+        float heartLevel = heartVolume * presence * (0.25f + 0.75f * dread);
+        float decay = (float) Math.exp(-dt / THUMP_DECAY_SECONDS);
+        float step = THUMP_FREQUENCY / SAMPLE_RATE;
+
+        float breathPeriod = REST_BREATH_SECONDS + (PANIC_BREATH_SECONDS - REST_BREATH_SECONDS) * dread;
+        float breathStep = dt / breathPeriod;
+        float breathLevel = breathVolume * breathPresence * (0.6f + 0.4f * dread);
+        // Breath noise is band-passed between about 250Hz and 1.8kHz
+        float lowCoefficient = 1f - (float) Math.exp(-2.0 * Math.PI * 1800.0 / SAMPLE_RATE);
+        float bandCoefficient = 1f - (float) Math.exp(-2.0 * Math.PI * 250.0 / SAMPLE_RATE);
+
+        for (int i = 0; i < frames; i++) {
+            beatClock += dt;
+            if (beatClock >= period) {
+                beatClock -= period;
+                lubEnvelope = 1f;
+                lubAge = 0;
+                lubPhase = 0f;
+            }
+            if (beatClock >= dubDelay && beatClock - dt < dubDelay) {
+                dubEnvelope = 1f;
+                dubAge = 0;
+                dubPhase = 0f;
+            }
+
+            float sample = 0f;
+            if (lubEnvelope > ENVELOPE_FLOOR) {
+                sample += sine(lubPhase) * lubEnvelope * attack(lubAge) * heartLevel;
+                // Pitch falls from 1.5x to the base as the thump decays
+                lubPhase += step * (1f + 0.5f * lubEnvelope);
+                if (lubPhase >= 1f) lubPhase -= 1f;
+                lubEnvelope *= decay;
+                lubAge++;
+            }
+            if (dubEnvelope > ENVELOPE_FLOOR) {
+                sample += sine(dubPhase) * dubEnvelope * attack(dubAge) * heartLevel * DUB_LEVEL;
+                dubPhase += step * (1f + 0.5f * dubEnvelope);
+                if (dubPhase >= 1f) dubPhase -= 1f;
+                dubEnvelope *= decay;
+                dubAge++;
+            }
+
+            if (breathLevel > 0f) {
+                breathClock += breathStep;
+                if (breathClock >= 1f) breathClock -= 1f;
+                float envelope;
+                if (breathClock < INHALE_SHARE) {
+                    envelope = sine(breathClock / INHALE_SHARE * 0.5f);
+                } else {
+                    envelope = 0.8f * sine((breathClock - INHALE_SHARE) / (1f - INHALE_SHARE) * 0.5f);
+                }
+                noiseState ^= noiseState << 13;
+                noiseState ^= noiseState >>> 17;
+                noiseState ^= noiseState << 5;
+                float noise = noiseState * (1f / 2147483648f);
+                breathLow += lowCoefficient * (noise - breathLow);
+                breathBand += bandCoefficient * (breathLow - breathBand);
+                sample += (breathLow - breathBand) * envelope * envelope * breathLevel;
+            }
+
+            out[2 * i] += sample;
+            out[2 * i + 1] += sample;
+        }
+        countRender(start);
+    }
+
+    private static float attack(int age) {
+        return age >= THUMP_ATTACK_FRAMES ? 1f : age / THUMP_ATTACK_FRAMES;
+    }
+
+    // Sine of a phase in cycles (0 to 1), from the table
+    private static float sine(float cycles) {
+        float position = cycles * SINE_SIZE;
+        int index = (int) position;
+        if (index >= SINE_SIZE) index = SINE_SIZE - 1;
+        float fraction = position - index;
+        return SINE[index] + (SINE[index + 1] - SINE[index]) * fraction;
+    }
+
+    private void countRender(long start) {
+        renderNanos += System.nanoTime() - start;
+        renderedBlocks++;
+    }
+
+    // Average cost of one block, for keeping an eye on the DSP budget
+    public double getAverageRenderMicros() {
+        long blocks = renderedBlocks;
+        return blocks == 0 ? 0.0 : renderNanos / 1000.0 / blocks;
+    }
+}
@@ -3,6 +3,9 @@ import java.awt.event.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
 import javax.imageio.ImageIO;
 import javax.swing.*;
 
@@ -11,6 +14,10 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
     private static final int HEIGHT = 1080;
     private static final int GROUND_HEIGHT = 900;
     private static final int WORLD_WIDTH = 3840;
+    
+    private BuildingDescriptor building = BuildingDescriptor.standard(WORLD_WIDTH);
+    // Level file given on the command line; replaces the generated school when set
+    private LevelFile level = null;
 
     private Player player;
     private Monster monster;
@@ -18,6 +25,33 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
     private WorldGenerator worldGenerator;
     private SoundManager soundManager;
     
+    // Saving: a snapshot of the run every few seconds, written off the game thread
+    private static final int SAVE_MAGIC = 0x41485356; // "AHSV"
+    private static final short SAVE_VERSION = 3;
+    private static final int SAVE_SCHOOL = 0;
+    private static final int SAVE_ENDLESS = 1;
+    private static final int SAVE_LEVEL = 2;
+    private static final int AUTOSAVE_INTERVAL = 300; // 5 seconds at 60fps
+    private Autosave autosave = new Autosave("autosave.dat");
+    private ByteBuffer snapshotBuffer = ByteBuffer.allocate(1024);
+    private CRC32 crc = new CRC32();
+    private int autosaveTimer = 0;
+    
+    // The last 10 seconds of play, for rewinding after a death and stepping through bugs
+    private static final int REWIND_TICKS = 600;
+    private static final int REWIND_KEYFRAME_INTERVAL = 30;
+    private static final int REWIND_ON_DEATH = 180; // 3 seconds
+    private RewindBuffer rewind = new RewindBuffer(REWIND_TICKS, REWIND_KEYFRAME_INTERVAL);
+    // Frozen on a past frame; comma and period step through the buffer
+    private boolean rewinding = false;
+    
+    // Per-tick state log for finding where players struggle; only with -Dtelemetry=<dir>
+    private TelemetryRecorder telemetry = null;
+    
+    // Every escape, ranked; the last one is shown with its place on the win screen
+    private Leaderboard leaderboard = new Leaderboard("leaderboard.dat");
+    private LeaderboardEntry lastEscape = null;
+    
     // Background images
     private BufferedImage backgroundFar;
     private BufferedImage backgroundMid;
@@ -32,6 +66,8 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
     
     private boolean showingJumpscare = false;
     private int jumpscareTimer = 0;
+    // Whether the jumpscare's first frame has been drawn, for timing its sound against it
+    private boolean jumpscareDrawn = false;
     private static final int JUMPSACRE_DURATION = 300; // 5 seconds at 60fps
     private Timer timer;
     private int cameraX = 0;
@@ -39,11 +75,9 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
     private boolean leftPressed = false;
     private boolean rightPressed = false;
 
-    // Scoring system variables
-    private int gameStartTime;
-    private int totalHidingTime = 0;
-    private int score = 0;
-    private boolean scoreCalculated = false;
+    // Scoring: the run clock only runs while playing, the score follows pickups and hides
+    private GameClock clock = new GameClock();
+    private ScoreKeeper scoreKeeper = new ScoreKeeper();
     private int finalGameTime = 0;
 
     // Title screen animation
@@ -52,10 +86,26 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
     private int titleTimer = 0;
 
     public HorrorGame() {
+        this(null);
+    }
+    
+    public HorrorGame(LevelFile level) {
+        if (level != null && level.getGroundHeight() == GROUND_HEIGHT) {
+            this.level = level;
+            this.building = level.getBuilding();
+        } else if (level != null) {
+            System.err.println("Level was built for ground height " + level.getGroundHeight() + ", ignoring it");
+        }
+        
         setPreferredSize(new Dimension(WIDTH, HEIGHT));
         addKeyListener(this);
         setFocusable(true);
         
+        String telemetryDir = System.getProperty("telemetry");
+        if (telemetryDir != null) {
+            telemetry = new TelemetryRecorder(new File(telemetryDir));
+        }
+        
         loadImageFiles();
         initializeGame();
         
@@ -101,9 +151,13 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
         // Calculate how many times to tile the image horizontally
         int tilesNeeded = (int) Math.ceil((double) WIDTH / bgWidth) + 1;
         
+        // Start from the tile under the left screen edge so wide floors keep tiling
+        int firstX = offsetX % bgWidth;
+        if (firstX > 0) firstX -= bgWidth;
+        
         // Draw tiled background
         for (int i = 0; i < tilesNeeded; i++) {
-            int x = offsetX + (i * bgWidth);
+            int x = firstX + (i * bgWidth);
             // Only draw if visible on screen
             if (x + bgWidth > 0 && x < WIDTH) {
                 g.drawImage(bgImage, x, 0, null);
@@ -139,7 +193,7 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
         // Subtitle
         g2d.setColor(Color.WHITE);
         g2d.setFont(new Font("Arial", Font.PLAIN, 36));
-        String subtitle = "3 Floors of Horror";
+        String subtitle = building.getFloorCount() + " Floors of Horror";
         int subtitleWidth = g2d.getFontMetrics().stringWidth(subtitle);
         g2d.drawString(subtitle, WIDTH/2 - subtitleWidth/2, HEIGHT/2 + 30);
         
@@ -179,16 +233,62 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
     }
     
     private void initializeGame() {
+        if (itemManager != null) {
+            itemManager.shutdown();
+        }
+        if (worldGenerator != null) {
+            worldGenerator.shutdown();
+        }
         soundManager = new SoundManager();
-        worldGenerator = new WorldGenerator(WORLD_WIDTH, GROUND_HEIGHT);
-        itemManager = new ItemManager(WORLD_WIDTH, GROUND_HEIGHT);
+        worldGenerator = new WorldGenerator(building.getWorldWidth(), GROUND_HEIGHT);
+        itemManager = new ItemManager(building, GROUND_HEIGHT);
+        if (level != null && !building.isEndless()) {
+            worldGenerator.setLevel(level);
+        }
         player = new Player(200, GROUND_HEIGHT, soundManager);
-        monster = new Monster(WIDTH + 300, GROUND_HEIGHT, WORLD_WIDTH);
+        monster = new Monster(WIDTH + 300, GROUND_HEIGHT, building.getWorldWidth());
         
         worldGenerator.generateWorld(itemManager);
-        
-        cameraX = 0;
+        monster.seedPacing(itemManager.getRunSeed());
+        itemManager.setScoreKeeper(scoreKeeper);
+        player.setScoreKeeper(scoreKeeper);
+        itemManager.attachPlayer(player);
+        itemManager.attachMonster(monster);
+        
+        endTelemetry(TelemetryRecorder.OUTCOME_QUIT);
+        resetRunState();
+        rewind.clear();
+        rewinding = false;
         gameState = GameState.TITLE;
+        soundManager.startAmbientSound();
+    }
+    
+    // Starts the next run on the world pregenerated when the last one ended. Nothing is
+    // reloaded or reconstructed, so this fits well inside one frame.
+    private void restartGame(GameState nextState) {
+        GeneratedWorld world = worldGenerator.takeWorld(itemManager);
+        itemManager.reset(world);
+        player.reset(200, GROUND_HEIGHT);
+        monster.reset(WIDTH + 300, GROUND_HEIGHT);
+        monster.seedPacing(itemManager.getRunSeed());
+        itemManager.attachPlayer(player);
+        itemManager.attachMonster(monster);
+        
+        endTelemetry(TelemetryRecorder.OUTCOME_QUIT);
+        resetRunState();
+        rewind.clear();
+        rewinding = false;
+        gameState = nextState;
+        soundManager.reset();
+        soundManager.startAmbientSound();
+        if (nextState == GameState.PLAYING) {
+            clock.resume();
+            beginTelemetry();
+        }
+    }
+    
+    private void resetRunState() {
+        cameraX = 0;
         showingJumpscare = false;
         jumpscareTimer = 0;
         playerMoving = false;
@@ -201,32 +301,215 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
         titleTimer = 0;
         
         // Initialize scoring system
-        gameStartTime = (int)(System.currentTimeMillis() / 1000);
-        totalHidingTime = 0;
-        score = 0;
-        scoreCalculated = false;
+        clock.reset();
+        scoreKeeper.reset();
+        autosaveTimer = 0;
         finalGameTime = 0;
+        lastEscape = null;
+    }
+    
+    // Which kind of building the run is in, as stored in saves and on the leaderboard
+    private int buildingMode() {
+        return building.isEndless() ? SAVE_ENDLESS : level != null ? SAVE_LEVEL : SAVE_SCHOOL;
+    }
+    
+    // The non-endless building: the level file if one was given, otherwise the school
+    private BuildingDescriptor standardBuilding() {
+        return level != null ? level.getBuilding() : BuildingDescriptor.standard(WORLD_WIDTH);
+    }
+    
+    // Serializes the whole run. The world itself is not stored - it is rebuilt from the
+    // run seed - so the snapshot stays a few hundred bytes.
+    private byte[] captureSnapshot() {
+        while (true) {
+            try {
+                writeSnapshot(snapshotBuffer);
+            } catch (BufferOverflowException e) {
+                // Only endless runs grow - with the number of floors with something collected
+                snapshotBuffer = ByteBuffer.allocate(snapshotBuffer.capacity() * 2);
+                continue;
+            }
+            byte[] snapshot = new byte[snapshotBuffer.position()];
+            System.arraycopy(snapshotBuffer.array(), 0, snapshot, 0, snapshot.length);
+            return snapshot;
+        }
+    }
+    
+    // Writes a snapshot at the start of out; throws BufferOverflowException if it is too small
+    private void writeSnapshot(ByteBuffer out) {
+        out.clear();
+        out.putInt(SAVE_MAGIC);
+        out.putShort(SAVE_VERSION);
+        out.put((byte) buildingMode());
+        out.put((byte) 0);
+        out.putLong(itemManager.getRunSeed());
+        itemManager.saveState(out);
+        player.saveState(out);
+        monster.saveState(out, itemManager);
+        out.putLong(clock.getElapsedNanos());
+        out.putLong(clock.getTicks());
+        out.putLong(scoreKeeper.getHidingNanos());
+        out.putInt(cameraX);
+        
+        crc.reset();
+        crc.update(out.array(), 0, out.position());
+        out.putInt((int) crc.getValue());
+    }
+    
+    // One snapshot per tick into the rewind buffer - no allocation once it is warm
+    private void recordRewindFrame() {
+        while (true) {
+            try {
+                writeSnapshot(rewind.beginFrame());
+            } catch (BufferOverflowException e) {
+                rewind.growFrame();
+                continue;
+            }
+            rewind.commitFrame();
+            return;
+        }
+    }
+    
+    // Shows the rewind buffer's current frame. Every frame is of the run on screen, so it
+    // is put back onto the world and audio already there - restoreSnapshot would rebuild
+    // both on every step.
+    private void restoreRewindFrame() {
+        int length = rewind.readFrame();
+        ByteBuffer in = ByteBuffer.wrap(rewind.getFrame(), 0, length);
+        // Magic, version, building mode and run seed are this run's
+        in.getInt();
+        in.getShort();
+        in.getShort();
+        in.getLong();
+        
+        itemManager.applyState(in);
+        player.restoreState(in);
+        monster.restoreState(in, itemManager);
+        itemManager.placePlayer(player);
+        clock.restore(in.getLong(), in.getLong());
+        scoreKeeper.restore(itemManager.getNotesCollected(), itemManager.hasKey(), player.getHideCount(),
+                            in.getLong(), clock.getElapsedSeconds());
+        cameraX = in.getInt();
+        itemManager.update(cameraX, WIDTH);
         
+        showingJumpscare = false;
+        jumpscareTimer = 0;
+        playerMoving = false;
+        leftPressed = false;
+        rightPressed = false;
+        gameState = GameState.PLAYING;
+    }
+    
+    // Back to a few seconds before the monster caught the player. The run goes on from
+    // there, so the clock runs again and the sounds the jumpscare stopped start over.
+    private void rewindDeath() {
+        restoreRewindFrame();
+        clock.resume();
+        soundManager.reset();
         soundManager.startAmbientSound();
+        beginTelemetry();
+    }
+    
+    // Puts the game back into the state of a snapshot; false if it cannot be used
+    private boolean restoreSnapshot(byte[] data, int length) {
+        if (data == null || length < 20) return false;
+        
+        ByteBuffer in = ByteBuffer.wrap(data, 0, length);
+        crc.reset();
+        crc.update(data, 0, length - 4);
+        if (in.getInt() != SAVE_MAGIC || in.getShort() != SAVE_VERSION || in.getInt(length - 4) != (int) crc.getValue()) {
+            System.err.println("Save file is damaged or from another version, ignoring it");
+            return false;
+        }
+        
+        int mode = in.get();
+        in.get();
+        int expected = (mode == SAVE_ENDLESS) ? SAVE_ENDLESS : (level != null ? SAVE_LEVEL : SAVE_SCHOOL);
+        if (mode != expected) {
+            System.err.println("Save belongs to a different building, ignoring it");
+            return false;
+        }
+        if ((mode == SAVE_ENDLESS) != building.isEndless()) {
+            switchBuilding(mode == SAVE_ENDLESS ? BuildingDescriptor.endless(WORLD_WIDTH) : standardBuilding());
+        }
+        
+        long runSeed = in.getLong();
+        itemManager.reset(worldGenerator.prepare(itemManager, runSeed));
+        itemManager.restoreState(in);
+        player.restoreState(in);
+        monster.restoreState(in, itemManager);
+        itemManager.attachPlayer(player);
+        itemManager.attachMonster(monster);
+        
+        resetRunState();
+        clock.restore(in.getLong(), in.getLong());
+        scoreKeeper.restore(itemManager.getNotesCollected(), itemManager.hasKey(), player.getHideCount(),
+                            in.getLong(), clock.getElapsedSeconds());
+        cameraX = in.getInt();
+        
+        gameState = GameState.PLAYING;
+        clock.resume();
+        soundManager.reset();
+        soundManager.startAmbientSound();
+        return true;
+    }
+    
+    // A new telemetry session for the run now in play; also after a restore, so a run
+    // continued from a save or rewound past its death is logged as a fresh session
+    private void beginTelemetry() {
+        if (telemetry != null) {
+            telemetry.beginSession(building.getWorldWidth(), itemManager.getRunSeed(), building.isEndless());
+        }
+    }
+    
+    private void endTelemetry(int outcome) {
+        if (telemetry != null) {
+            telemetry.endSession(outcome);
+        }
+    }
+    
+    private void recordTelemetry() {
+        if (telemetry == null) return;
+        
+        int floor = itemManager.getCurrentFloor();
+        int room = itemManager.isInClassroom() ? itemManager.classroomIndex(floor, itemManager.getActiveClassroom()) + 1 : 0;
+        telemetry.record(player.getX(), floor, room, player.isHiding(),
+                         monster.getX(), monster.getCurrentFloor(), monster.getStateCode(), scoreKeeper.getScore());
+    }
+    
+    private void switchBuilding(BuildingDescriptor newBuilding) {
+        building = newBuilding;
+        soundManager.cleanup();
+        initializeGame();
     }
     
     private void startGame() {
         gameState = GameState.PLAYING;
+        clock.resume();
         soundManager.startAmbientSound();
+        beginTelemetry();
     }
     
     private void triggerJumpscare() {
         showingJumpscare = true;
         jumpscareTimer = JUMPSACRE_DURATION;
+        jumpscareDrawn = false;
         soundManager.playJumpscareSound();
         
-        // Set final game time when caught
-        finalGameTime = (int)(System.currentTimeMillis() / 1000) - gameStartTime;
+        // The run is over - build the next world while the jumpscare plays
+        worldGenerator.pregenerate(itemManager);
+        autosave.delete();
+        endTelemetry(TelemetryRecorder.OUTCOME_CAUGHT);
+        
+        // Stop the clock and void the score when caught
+        clock.pause();
+        finalGameTime = clock.getElapsedSeconds();
+        scoreKeeper.caught();
     }
     
     private void updateCamera() {
         int targetX = player.getX() - WIDTH / 2;
-        cameraX = Math.max(0, Math.min(targetX, WORLD_WIDTH - WIDTH));
+        cameraX = Math.max(0, Math.min(targetX, building.getWorldWidth() - WIDTH));
     }
     
     @Override
@@ -243,6 +526,10 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
                 if (showingJumpscare) {
                     // Draw jumpscare screen
                     g.drawImage(jumpscareImage, 0, 0, WIDTH, HEIGHT, null);
+                    if (!jumpscareDrawn) {
+                        jumpscareDrawn = true;
+                        soundManager.jumpscareShown();
+                    }
                     
                     // Show game over text OVERLAY on top of jumpscare image after 3 seconds
                     if (jumpscareTimer <= JUMPSACRE_DURATION - 180) {
@@ -278,6 +565,17 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
         int startWidth = g2d.getFontMetrics().stringWidth(startText);
         g2d.drawString(startText, WIDTH/2 - startWidth/2, HEIGHT/2 + 150);
         
+        g2d.setFont(new Font("Arial", Font.PLAIN, 24));
+        String endlessText = "Press E for Endless Descent";
+        int endlessWidth = g2d.getFontMetrics().stringWidth(endlessText);
+        g2d.drawString(endlessText, WIDTH/2 - endlessWidth/2, HEIGHT/2 + 250);
+        
+        if (autosave.exists()) {
+            String continueText = "Press C to continue your last run";
+            int continueWidth = g2d.getFontMetrics().stringWidth(continueText);
+            g2d.drawString(continueText, WIDTH/2 - continueWidth/2, HEIGHT/2 + 290);
+        }
+        
         // Draw version info
         g2d.setColor(new Color(1.0f, 1.0f, 1.0f, 0.7f));
         g2d.setFont(new Font("Arial", Font.PLAIN, 16));
@@ -288,7 +586,8 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
             float subtitleAlpha = Math.min(1.0f, (titleTimer - 60) / 60.0f);
             g2d.setColor(new Color(1.0f, 0.2f, 0.2f, subtitleAlpha));
             g2d.setFont(new Font("Arial", Font.ITALIC, 24));
-            String subtitle = "Can you survive all 3 floors?";
+            String subtitle = building.isEndless() ? "How deep can you go?"
+                                                   : "Can you survive all " + building.getFloorCount() + " floors?";
             int subtitleWidth = g2d.getFontMetrics().stringWidth(subtitle);
             g2d.drawString(subtitle, WIDTH/2 - subtitleWidth/2, HEIGHT/2 + 200);
         }
@@ -318,6 +617,9 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
         int minutes = finalGameTime / 60;
         int seconds = finalGameTime % 60;
         String timeText = "Time: " + String.format("%02d:%02d", minutes, seconds);
+        if (building.isEndless()) {
+            timeText += "   Deepest floor: " + (itemManager.getDeepestFloor() + 1);
+        }
         textWidth = g.getFontMetrics().stringWidth(timeText);
         g.drawString(timeText, WIDTH/2 - textWidth/2, HEIGHT/2 + 80);
         
@@ -326,6 +628,12 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
         String restartText = "Press R to restart or ESC for title screen";
         textWidth = g.getFontMetrics().stringWidth(restartText);
         g.drawString(restartText, WIDTH/2 - textWidth/2, HEIGHT/2 + 130);
+        
+        if (!rewind.isEmpty()) {
+            String rewindText = "Press B to rewind 3 seconds";
+            textWidth = g.getFontMetrics().stringWidth(rewindText);
+            g.drawString(rewindText, WIDTH/2 - textWidth/2, HEIGHT/2 + 170);
+        }
     }
     
     private void drawGameWorld(Graphics g) {
@@ -337,7 +645,7 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
             player.drawInClassroom(g);
             
             // Draw monster in classroom if active
-            if (monster.isActive() && monster.isInClassroom()) {
+            if (monster.isActive() && monster.isInClassroom(itemManager.getActiveClassroom())) {
                 monster.draw(g, cameraX, WIDTH, itemManager.getCurrentFloor(), itemManager);
             }
         } else {
@@ -365,30 +673,37 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
         }
         
         drawUI(g);
+        
+        if (rewinding) {
+            g.setColor(Color.CYAN);
+            g.setFont(new Font("Arial", Font.BOLD, 24));
+            g.drawString("REWIND -" + rewind.getTicksBehind() + " ticks   (, and . to step, F5 to resume)", WIDTH/2 - 300, 50);
+        }
     }
     
     private void drawUI(Graphics g) {
         g.setColor(Color.WHITE);
         g.setFont(new Font("Arial", Font.BOLD, 24));
-        g.drawString("Notes: " + itemManager.getNotesCollected() + "/3", 50, 50);
-        g.drawString("Key: " + (itemManager.hasKey() ? "YES" : "NO"), 50, 80);
-        g.drawString("Floor: " + (itemManager.getCurrentFloor() + 1) + "/3", 50, 110);
-        
-        // Real-time score display
-        if (gameState == GameState.PLAYING && !showingJumpscare) {
-            updateRealTimeScore();
+        if (building.isEndless()) {
+            g.drawString("Notes: " + itemManager.getNotesCollected(), 50, 50);
+            g.drawString("Deepest: " + (itemManager.getDeepestFloor() + 1), 50, 80);
+            g.drawString("Depth: " + (itemManager.getCurrentFloor() + 1), 50, 110);
+        } else {
+            g.drawString("Notes: " + itemManager.getNotesCollected() + "/" + itemManager.getTotalNotes(), 50, 50);
+            g.drawString("Key: " + (itemManager.hasKey() ? "YES" : "NO"), 50, 80);
+            g.drawString("Floor: " + (itemManager.getCurrentFloor() + 1) + "/" + itemManager.getFloorCount(), 50, 110);
         }
         
+        // Real-time score display
         if (gameState == GameState.GAME_WON) {
             g.setColor(Color.GREEN);
-            g.drawString("Final Score: " + score, 50, 140);
+            g.drawString("Final Score: " + scoreKeeper.getScore(), 50, 140);
         } else if (gameState == GameState.PLAYING) {
-            g.drawString("Score: " + score, 50, 140);
+            g.drawString("Score: " + scoreKeeper.getScore(), 50, 140);
         }
         
-        // Display time played (always updating)
-        int currentTime = (int)(System.currentTimeMillis() / 1000);
-        int timePlayed = currentTime - gameStartTime;
+        // Display time played (stops while paused and once the run is over)
+        int timePlayed = clock.getElapsedSeconds();
         int minutes = timePlayed / 60;
         int seconds = timePlayed % 60;
         g.drawString("Time: " + String.format("%02d:%02d", minutes, seconds), 50, 170);
@@ -420,6 +735,15 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
             g.drawString("MONSTER IS HUNTING! FIND A LOCKER!", WIDTH / 2 - 200, 100);
         }
         
+        // Interaction prompt from whatever trigger the player is standing in
+        String prompt = itemManager.getInteractionPrompt();
+        if (prompt != null && !player.isHiding() && gameState == GameState.PLAYING && !showingJumpscare) {
+            g.setColor(Color.WHITE);
+            g.setFont(new Font("Arial", Font.BOLD, 28));
+            int promptWidth = g.getFontMetrics().stringWidth(prompt);
+            g.drawString(prompt, WIDTH / 2 - promptWidth / 2, HEIGHT - 120);
+        }
+        
         // ESC to return to title (only in gameplay)
         if (gameState == GameState.PLAYING && !showingJumpscare) {
             g.setColor(Color.LIGHT_GRAY);
@@ -436,12 +760,14 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
         y += 20;
         
         // Notes hint
-        int notesRemaining = 3 - itemManager.getNotesCollected();
-        g.drawString("Notes remaining: " + notesRemaining, x, y);
-        y += 20;
+        if (!building.isEndless()) {
+            int notesRemaining = itemManager.getTotalNotes() - itemManager.getNotesCollected();
+            g.drawString("Notes remaining: " + notesRemaining, x, y);
+            y += 20;
+        }
         
         // Key hint
-        if (!itemManager.hasKey() && itemManager.getCurrentFloor() == 1) {
+        if (!itemManager.hasKey() && itemManager.getCurrentFloor() == building.getKeyFloor()) {
             g.drawString("Key is on this floor!", x, y);
             y += 20;
         }
@@ -454,59 +780,12 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
         }
     }
     
-    private void updateRealTimeScore() {
-        int currentTime = (int)(System.currentTimeMillis() / 1000);
-        int totalGameTime = currentTime - gameStartTime;
-        
-        // Base score for escaping (prorated)
-        int baseScore = 10000;
-        
-        // Time multiplier - faster escape = higher multiplier
-        double timeMultiplier = calculateTimeMultiplier(totalGameTime);
-        
-        // Deductions for hiding
-        int hidingPenalty = totalHidingTime * 2; // 2 points per frame hiding
-        int hideCountPenalty = player.getHideCount() * 100; // 100 points per hide instance
-        
-        // Objective completion bonus (notes and key)
-        int objectiveBonus = itemManager.getNotesCollected() * 500;
-        if (itemManager.hasKey()) {
-            objectiveBonus += 1000;
-        }
-        
-        // Calculate real-time score (prorated base score)
-        int proratedBaseScore = (int)(baseScore * (1.0 - (totalGameTime / 1800.0))); // Lose base score over time
-        proratedBaseScore = Math.max(0, proratedBaseScore);
-        
-        score = (int)((proratedBaseScore + objectiveBonus - hidingPenalty - hideCountPenalty) * timeMultiplier);
-        
-        // Ensure score doesn't go negative
-        score = Math.max(0, score);
-    }
-    
-    private double calculateTimeMultiplier(int totalGameTime) {
-        if (totalGameTime < 300) { // Under 5 minutes
-            return 3.0;
-        } else if (totalGameTime < 600) { // Under 10 minutes
-            return 2.0;
-        } else if (totalGameTime < 900) { // Under 15 minutes
-            return 1.5;
-        } else {
-            return 1.0;
-        }
-    }
-    
     private void drawRealTimeScoreBreakdown(Graphics g, int x, int y) {
-        int currentTime = (int)(System.currentTimeMillis() / 1000);
-        int totalGameTime = currentTime - gameStartTime;
-        
-        int baseScore = 10000;
-        int proratedBaseScore = (int)(baseScore * (1.0 - (totalGameTime / 1800.0)));
-        proratedBaseScore = Math.max(0, proratedBaseScore);
-        int objectiveBonus = itemManager.getNotesCollected() * 500 + (itemManager.hasKey() ? 1000 : 0);
-        int hidingPenalty = totalHidingTime * 2;
-        int hideCountPenalty = player.getHideCount() * 100;
-        double timeMultiplier = calculateTimeMultiplier(totalGameTime);
+        int proratedBaseScore = scoreKeeper.getDecayedBase();
+        int objectiveBonus = scoreKeeper.getObjectiveBonus();
+        int hidingPenalty = scoreKeeper.getHidingPenalty();
+        int hideCountPenalty = scoreKeeper.getHideCountPenalty();
+        double timeMultiplier = scoreKeeper.getTimeMultiplier();
         
         g.setColor(Color.YELLOW);
         g.setFont(new Font("Arial", Font.PLAIN, 16));
@@ -537,10 +816,18 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
         
         // Show score details
         g.setFont(new Font("Arial", Font.BOLD, 36));
-        String scoreText = "Final Score: " + score;
+        String scoreText = "Final Score: " + scoreKeeper.getScore();
         textWidth = g.getFontMetrics().stringWidth(scoreText);
         g.drawString(scoreText, WIDTH/2 - textWidth/2, HEIGHT/2);
         
+        // Show where this escape placed once the leaderboard has ranked it
+        if (lastEscape != null && lastEscape.rank > 0) {
+            g.setFont(new Font("Arial", Font.BOLD, 28));
+            String placeText = String.format("You placed #%,d of %,d", lastEscape.rank, lastEscape.total);
+            textWidth = g.getFontMetrics().stringWidth(placeText);
+            g.drawString(placeText, WIDTH/2 - textWidth/2, HEIGHT/2 - 45);
+        }
+        
         // Show detailed score breakdown
         drawScoreBreakdown(g);
         
@@ -551,20 +838,18 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
     }
     
     private void drawScoreBreakdown(Graphics g) {
-        if (gameState != GameState.GAME_WON || !scoreCalculated) return;
+        if (gameState != GameState.GAME_WON || !scoreKeeper.isFinished()) return;
         
-        int currentTime = (int)(System.currentTimeMillis() / 1000);
-        int totalGameTime = currentTime - gameStartTime;
-        int minutes = totalGameTime / 60;
-        int seconds = totalGameTime % 60;
+        int minutes = finalGameTime / 60;
+        int seconds = finalGameTime % 60;
         
-        int baseScore = 10000;
-        int objectiveBonus = itemManager.getNotesCollected() * 500 + (itemManager.hasKey() ? 1000 : 0);
-        int hidingPenalty = totalHidingTime * 2;
-        int hideCountPenalty = player.getHideCount() * 100;
+        int baseScore = ScoreKeeper.BASE_SCORE;
+        int objectiveBonus = scoreKeeper.getObjectiveBonus();
+        int hidingPenalty = scoreKeeper.getHidingPenalty();
+        int hideCountPenalty = scoreKeeper.getHideCountPenalty();
         
-        // Calculate time multiplier
-        double timeMultiplier = calculateTimeMultiplier(finalGameTime);
+        // Time multiplier for the escape time
+        double timeMultiplier = scoreKeeper.getTimeMultiplier();
         String timeMultiplierText = String.format("%.1fx", timeMultiplier);
         if (finalGameTime < 300) {
             timeMultiplierText += " (Excellent Time!)";
@@ -593,33 +878,6 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
         g.drawString("Hide Count Penalty: -" + hideCountPenalty, WIDTH/2 - 100, yPos);
     }
     
-    private void calculateFinalScore() {
-        int currentTime = (int)(System.currentTimeMillis() / 1000);
-        finalGameTime = currentTime - gameStartTime;
-        
-        // Base score for escaping
-        int baseScore = 10000;
-        
-        // Time multiplier - faster escape = higher multiplier
-        double timeMultiplier = calculateTimeMultiplier(finalGameTime);
-        
-        // Deductions for hiding
-        int hidingPenalty = totalHidingTime * 2; // 2 points per frame hiding
-        int hideCountPenalty = player.getHideCount() * 100; // 100 points per hide instance
-        
-        // Objective completion bonus (notes and key)
-        int objectiveBonus = itemManager.getNotesCollected() * 500;
-        if (itemManager.hasKey()) {
-            objectiveBonus += 1000;
-        }
-        
-        // Calculate final score
-        score = (int)((baseScore + objectiveBonus - hidingPenalty - hideCountPenalty) * timeMultiplier);
-        
-        // Ensure score doesn't go negative
-        score = Math.max(0, score);
-    }
-
     @Override
     public void actionPerformed(ActionEvent e) {
         titleTimer++;
@@ -642,16 +900,24 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
                     if (jumpscareTimer <= 0) {
                         gameState = GameState.GAME_OVER;
                     }
+                } else if (rewinding) {
+                    // Frozen on a recorded frame until F5
                 } else {
+                    recordRewindFrame();
+                    recordTelemetry();
                     updateCamera();
                     
-                    // Track hiding time for scoring
-                    if (player.isHiding()) {
-                        totalHidingTime++;
+                    // Advance the run clock; the score only changes when something it depends on did
+                    clock.tick();
+                    scoreKeeper.tick(clock, player.isHiding());
+                    
+                    if (++autosaveTimer >= AUTOSAVE_INTERVAL) {
+                        autosaveTimer = 0;
+                        autosave.submit(captureSnapshot());
                     }
                     
-                    // Update real-time score during gameplay
-                    updateRealTimeScore();
+                    // Pick up any floors the background generator has finished
+                    itemManager.update(cameraX, WIDTH);
                     
                     // FIXED: Pass proper ground height to monster update
                     monster.update(player.getX(), player.isHiding(), WIDTH, cameraX, GROUND_HEIGHT, 
@@ -661,26 +927,25 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
                         triggerJumpscare();
                         soundManager.stopChaseMusic();
                         soundManager.stopAmbientSound();
-                        
-                        // Invalidate score when caught
-                        score = 0;
-                        scoreCalculated = true;
                     }
                     
                     player.update();
                     
-                    itemManager.checkPlayerInteractions(player);
-                    
                     if (!itemManager.isInClassroom() && itemManager.canExit(player, itemManager.getCurrentFloor())) {
                         gameState = GameState.GAME_WON;
                         soundManager.stopChaseMusic();
                         soundManager.stopAmbientSound();
+                        worldGenerator.pregenerate(itemManager);
+                        autosave.delete();
+                        endTelemetry(TelemetryRecorder.OUTCOME_WON);
                         
-                        // Calculate final score when winning
-                        if (!scoreCalculated) {
-                            calculateFinalScore();
-                            scoreCalculated = true;
-                        }
+                        // Fix the final score at the escape time
+                        clock.pause();
+                        finalGameTime = clock.getElapsedSeconds();
+                        scoreKeeper.escaped(finalGameTime);
+                        lastEscape = new LeaderboardEntry(scoreKeeper.getScore(), finalGameTime, player.getHideCount(),
+                                                          itemManager.getRunSeed(), buildingMode());
+                        leaderboard.submit(lastEscape);
                     }
                     
                     // Update sound manager
@@ -688,10 +953,20 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
                                            Math.abs(player.getX() - monster.getX()) < 600 &&
                                            ((!itemManager.isInClassroom() && !monster.isInClassroom() && 
                                              monster.getCurrentFloor() == itemManager.getCurrentFloor()) ||
-                                            (itemManager.isInClassroom() && monster.isInClassroom()));
+                                            (itemManager.isInClassroom() && monster.isInClassroom(itemManager.getActiveClassroom())));
+                    
+                    // Muffle the monster through classroom walls and floors
+                    int occlusion = AudioMixer.OCCLUSION_NONE;
+                    if (monster.getCurrentFloor() != itemManager.getCurrentFloor()) {
+                        occlusion = AudioMixer.OCCLUSION_FLOOR;
+                    } else if (itemManager.isInClassroom() ? !monster.isInClassroom(itemManager.getActiveClassroom())
+                                                           : monster.isInClassroom()) {
+                        occlusion = AudioMixer.OCCLUSION_ROOM;
+                    }
                     
                     soundManager.update(monster.isActive(), monsterIsNear, playerMoving, 
-                                       player.getX(), monster.getX(), WIDTH);
+                                       player.getX(), monster.getX(), WIDTH, occlusion, player.isHiding(),
+                                       itemManager.isInClassroom(), monster.getStateCode());
                 }
                 break;
                 
@@ -709,7 +984,24 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
         switch (gameState) {
             case TITLE:
                 if (e.getKeyCode() == KeyEvent.VK_SPACE) {
+                    if (building.isEndless()) {
+                        switchBuilding(standardBuilding());
+                    }
+                    startGame();
+                } else if (e.getKeyCode() == KeyEvent.VK_E) {
+                    if (!building.isEndless()) {
+                        switchBuilding(BuildingDescriptor.endless(WORLD_WIDTH));
+                    }
                     startGame();
+                } else if (e.getKeyCode() == KeyEvent.VK_C && autosave.exists()) {
+                    byte[] saved = autosave.load();
+                    rewind.clear();
+                    rewinding = false;
+                    if (saved == null || !restoreSnapshot(saved, saved.length)) {
+                        autosave.delete();
+                    } else {
+                        beginTelemetry();
+                    }
                 }
                 break;
                 
@@ -718,18 +1010,45 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
                     // FIXED: Restart game directly from jumpscare screen (after text appears)
                     if (jumpscareTimer <= JUMPSACRE_DURATION - 180) {
                         if (e.getKeyCode() == KeyEvent.VK_R) {
-                            soundManager.cleanup();
-                            initializeGame();
+                            restartGame(GameState.PLAYING);
                         } else if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
-                            soundManager.cleanup();
-                            initializeGame(); // Returns to title
+                            restartGame(GameState.TITLE);
+                        } else if (e.getKeyCode() == KeyEvent.VK_B && rewind.seekBack(REWIND_ON_DEATH)) {
+                            // Rewind on death - back to a few seconds before the catch
+                            rewindDeath();
                         }
                     }
                     return;
                 }
                 
+                // F5 freezes on the newest recorded frame; resuming continues from the
+                // frame on screen and drops the ones after it
+                if (e.getKeyCode() == KeyEvent.VK_F5) {
+                    if (rewinding) {
+                        rewinding = false;
+                        clock.resume();
+                    } else if (!rewind.isEmpty()) {
+                        rewinding = true;
+                        clock.pause();
+                        rewind.seekNewest();
+                        restoreRewindFrame();
+                    }
+                    return;
+                }
+                if (rewinding) {
+                    if (e.getKeyCode() == KeyEvent.VK_COMMA && rewind.stepBack()) {
+                        restoreRewindFrame();
+                    } else if (e.getKeyCode() == KeyEvent.VK_PERIOD && rewind.stepForward()) {
+                        restoreRewindFrame();
+                    }
+                    return;
+                }
+                
                 // Handle ESC to return to title screen
                 if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                    autosave.submit(captureSnapshot());
+                    endTelemetry(TelemetryRecorder.OUTCOME_QUIT);
+                    clock.pause();
                     gameState = GameState.TITLE;
                     soundManager.stopChaseMusic();
                     soundManager.stopAmbientSound();
@@ -755,11 +1074,11 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
             case GAME_WON:
             case GAME_OVER:
                 if (e.getKeyCode() == KeyEvent.VK_R) {
-                    soundManager.cleanup();
-                    initializeGame();
+                    restartGame(GameState.PLAYING);
                 } else if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
-                    soundManager.cleanup();
-                    initializeGame(); // Returns to title
+                    restartGame(GameState.TITLE);
+                } else if (gameState == GameState.GAME_OVER && e.getKeyCode() == KeyEvent.VK_B && rewind.seekBack(REWIND_ON_DEATH)) {
+                    rewindDeath();
                 }
                 break;
         }
@@ -786,9 +1105,32 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
     @Override
     public void keyTyped(KeyEvent e) {}
     
+    // Writes a last snapshot if a run is in progress and waits for it to reach the disk
+    private void saveOnExit() {
+        if (gameState == GameState.PLAYING && !showingJumpscare) {
+            autosave.submit(captureSnapshot());
+        }
+        autosave.shutdown();
+        leaderboard.shutdown();
+        if (telemetry != null) {
+            telemetry.endSession(TelemetryRecorder.OUTCOME_QUIT);
+            telemetry.shutdown();
+        }
+    }
+    
     public static void main(String[] args) {
-        JFrame frame = new JFrame("Horror Escape - 3 Floors with Obstacles");
-        HorrorGame game = new HorrorGame();
+        // Optional argument: a level file to play instead of a generated school
+        LevelFile level = null;
+        if (args.length > 0) {
+            try {
+                level = LevelFile.open(new File(args[0]));
+            } catch (IOException e) {
+                System.err.println("Could not load level " + args[0] + ": " + e.getMessage());
+            }
+        }
+        
+        HorrorGame game = new HorrorGame(level);
+        JFrame frame = new JFrame("Horror Escape - " + game.building.getFloorCount() + " Floors with Obstacles");
         frame.add(game);
         frame.pack();
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -800,6 +1142,7 @@ public class HorrorGame extends JPanel implements ActionListener, KeyListener {
         frame.addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
+                game.saveOnExit();
                 game.soundManager.cleanup();
             }
         });
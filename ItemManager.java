@@ -0,0 +1,678 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+class ItemManager implements TriggerListener, FloorListener {
+    // Floors the endless mode keeps resident - the current one, its neighbours and a
+    // little slack so walking back up a floor does not regenerate it straight away
+    private static final int ENDLESS_RESIDENT_FLOORS = 5;
+    
+    private FloorStore floors;
+    private FloorGenerator generator;
+    private GameEntity exit;
+    private BufferedImage exitImage;
+    private BufferedImage staircaseUpImage;
+    private BufferedImage staircaseDownImage;
+    private BufferedImage doorEntranceImage;
+    private BufferedImage doorExitImage;
+    
+    private int notesCollected = 0;
+    private boolean hasKey = false;
+    private long runSeed = 0;
+    private BuildingDescriptor building;
+    private int worldWidth;
+    private int currentFloor = 0;
+    private int deepestFloor = 0;
+    private Classroom activeClassroom = null;
+    private int groundHeight;
+    private TriggerSystem triggers = new TriggerSystem();
+    private ChunkStreamer streamer = new ChunkStreamer();
+    private NavGraph navGraph = null;
+    private Player player = null;
+    // Told about pickups as they happen, if set
+    private ScoreKeeper scoreKeeper = null;
+    
+    public ItemManager(BuildingDescriptor building, int groundHeight) {
+        this.building = building;
+        this.worldWidth = building.getWorldWidth();
+        this.groundHeight = groundHeight;
+        
+        ItemSprites sprites = ItemSprites.load();
+        exitImage = sprites.exit;
+        staircaseUpImage = sprites.staircaseUp;
+        staircaseDownImage = sprites.staircaseDown;
+        doorEntranceImage = sprites.doorEntrance;
+        doorExitImage = sprites.doorExit;
+        
+        generator = new FloorGenerator(building, sprites, groundHeight);
+        floors = new FloorStore(generator, this);
+        
+        exit = new GameEntity(exitImage, building.getExitX(), groundHeight - exitImage.getHeight());
+        triggers.addListener(this);
+    }
+    
+    public void generateAllFloors(java.util.Random random) {
+        reset(prepareWorld(random.nextLong(), java.util.concurrent.ForkJoinPool.commonPool()));
+    }
+    
+    // Generates the floors for a run without touching any live state, so it can run on a
+    // worker thread while the current run is still on screen
+    public GeneratedWorld prepareWorld(long runSeed, java.util.concurrent.ForkJoinPool pool) {
+        if (building.isEndless()) {
+            // Only the first floors - the rest are generated on demand as the player descends
+            return new GeneratedWorld(runSeed, new Floor[] {
+                generator.generate(0, runSeed), generator.generate(1, runSeed)
+            });
+        }
+        
+        // Each floor is generated from its own seed in parallel. The key and exit floors
+        // are fixed by the building, so floors never depend on each other and the merge
+        // is just installing them in floor order.
+        return new GeneratedWorld(runSeed, generator.generateAll(building.getFloorCount(), runSeed, pool));
+    }
+    
+    // Swaps in a prepared world and clears all progress, reusing this manager. A new world
+    // needs attachPlayer/attachMonster again.
+    public void reset(GeneratedWorld world) {
+        triggers.clear();
+        streamer.clear();
+        streamer.setFloor(0);
+        player = null;
+        navGraph = null;
+        currentFloor = 0;
+        deepestFloor = 0;
+        activeClassroom = null;
+        notesCollected = 0;
+        hasKey = false;
+        runSeed = world.runSeed;
+        
+        if (building.isEndless()) {
+            floors.startEndless(world.runSeed, ENDLESS_RESIDENT_FLOORS);
+        } else if (world.level != null) {
+            floors.startLevel(world.level);
+            floors.require(0);
+        } else {
+            floors.startFixed(world.runSeed);
+        }
+        for (Floor floor : world.floors) {
+            floors.put(floor);
+        }
+        floors.setCurrentFloor(0);
+    }
+    
+    public void setScoreKeeper(ScoreKeeper scoreKeeper) {
+        this.scoreKeeper = scoreKeeper;
+    }
+    
+    // Registers trigger volumes for everything the player can touch and places the player
+    // in the current space; call once the world has been generated
+    public void attachPlayer(Player player) {
+        this.player = player;
+        triggers.clear();
+        triggers.setSubjectWidth(player.getBounds().width);
+        
+        for (Floor floor : floors.getResident()) {
+            registerTriggers(floor);
+        }
+        
+        triggers.enterSpace(spaceKey(currentFloor, activeClassroom != null), player.getX());
+    }
+    
+    private void registerTriggers(Floor f) {
+        int hallway = spaceKey(f.index, false);
+        int interior = spaceKey(f.index, true);
+        
+        if (f.index == building.getExitFloor() && exit != null) {
+            addTrigger(hallway, TriggerType.EXIT, exit.getBounds(), exit);
+        }
+        for (GameEntity note : f.notes) {
+            addTrigger(hallway, TriggerType.NOTE, note.getBounds(), note);
+        }
+        if (f.key != null && f.key.active) {
+            addTrigger(hallway, TriggerType.KEY, f.key.getBounds(), f.key);
+        }
+        for (Locker locker : f.lockers) {
+            addTrigger(hallway, TriggerType.LOCKER, locker.getBounds(), locker);
+        }
+        for (Classroom classroom : f.classrooms) {
+            addTrigger(hallway, TriggerType.DOOR_ENTRANCE, classroom.getEntranceBounds(), classroom);
+            addTrigger(hallway, TriggerType.DOOR_EXIT, classroom.getExitBounds(), classroom);
+        }
+        Rectangle stairsUp = getStaircaseUpBounds(f.index);
+        if (stairsUp != null) {
+            addTrigger(hallway, TriggerType.STAIRS_UP, stairsUp, null);
+        }
+        Rectangle stairsDown = getStaircaseDownBounds(f.index);
+        if (stairsDown != null) {
+            addTrigger(hallway, TriggerType.STAIRS_DOWN, stairsDown, null);
+        }
+        
+        // All classrooms on a floor share one interior layout
+        for (GameEntity note : f.classroomNotes) {
+            addTrigger(interior, TriggerType.NOTE, note.getBounds(), note);
+        }
+        if (f.classroomKey != null && f.classroomKey.active) {
+            addTrigger(interior, TriggerType.KEY, f.classroomKey.getBounds(), f.classroomKey);
+        }
+        for (Locker locker : f.classroomLockers) {
+            addTrigger(interior, TriggerType.LOCKER, locker.getBounds(), locker);
+        }
+        if (!f.classrooms.isEmpty()) {
+            Classroom layout = f.classrooms.get(0);
+            addTrigger(interior, TriggerType.DOOR_ENTRANCE, layout.getClassroomEntranceBounds(), null);
+            addTrigger(interior, TriggerType.DOOR_EXIT, layout.getClassroomExitBounds(), null);
+        }
+    }
+    
+    private void registerNav(Floor f) {
+        navGraph.addFloor(f.index, f.obstacles, f.classrooms,
+                          getStaircaseUpX(f.index), building.getUpFloor(f.index),
+                          getStaircaseDownX(f.index), building.getDownFloor(f.index));
+    }
+    
+    // A floor finished loading (endless mode or a level) - make it touchable and walkable. Always
+    // called on the game thread; background generation only hands over finished floors.
+    @Override
+    public void onFloorLoaded(Floor f) {
+        streamer.load(f, worldWidth);
+        if (player != null) {
+            registerTriggers(f);
+        }
+        if (navGraph != null) {
+            registerNav(f);
+        }
+    }
+    
+    @Override
+    public void onFloorEvicted(Floor f) {
+        streamer.unload(f.index);
+        triggers.removeSpace(spaceKey(f.index, false));
+        triggers.removeSpace(spaceKey(f.index, true));
+        if (navGraph != null) {
+            navGraph.removeFloor(f.index);
+        }
+    }
+    
+    private void addTrigger(int spaceKey, TriggerType type, Rectangle bounds, Object target) {
+        triggers.add(spaceKey, type, bounds.x, bounds.x + bounds.width, target);
+    }
+    
+    private int spaceKey(int floor, boolean classroom) {
+        return floor * 2 + (classroom ? 1 : 0);
+    }
+    
+    // Called whenever the player's x changes - only does work when a trigger edge is crossed
+    public void onPlayerMoved(Player player) {
+        triggers.moveTo(player.getX());
+    }
+    
+    @Override
+    public void onTriggerEnter(TriggerVolume volume) {
+        if (volume.type == TriggerType.NOTE) {
+            GameEntity note = (GameEntity) volume.target;
+            if (floors.get(currentFloor).notes.remove(note) || floors.get(currentFloor).classroomNotes.remove(note)) {
+                notesCollected++;
+                note.active = false;
+                floors.recordNoteCollected(currentFloor, note.id);
+                if (scoreKeeper != null) {
+                    scoreKeeper.noteCollected();
+                }
+            }
+            triggers.remove(volume);
+        } else if (volume.type == TriggerType.KEY) {
+            GameEntity key = (GameEntity) volume.target;
+            if (!hasKey && key.active) {
+                hasKey = true;
+                key.active = false;
+                floors.recordKeyCollected(currentFloor);
+                if (scoreKeeper != null) {
+                    scoreKeeper.keyCollected();
+                }
+                triggers.remove(volume);
+            }
+        } else if (volume.type == TriggerType.STAIRS_DOWN) {
+            floors.prefetch(building.getDownFloor(currentFloor));
+        } else if (volume.type == TriggerType.STAIRS_UP) {
+            floors.prefetch(building.getUpFloor(currentFloor));
+        }
+    }
+    
+    @Override
+    public void onTriggerExit(TriggerVolume volume) {
+    }
+    
+    // HUD prompt for whatever the player is currently standing in front of
+    public String getInteractionPrompt() {
+        if (triggers.isInside(TriggerType.DOOR_ENTRANCE) || triggers.isInside(TriggerType.DOOR_EXIT)) {
+            return activeClassroom != null ? "Press E to leave the classroom" : "Press E to enter the classroom";
+        }
+        if (triggers.isInside(TriggerType.LOCKER)) {
+            return "Press E to hide in the locker";
+        }
+        if (triggers.isInside(TriggerType.STAIRS_UP)) {
+            return floors.isResident(building.getUpFloor(currentFloor)) ? "Press W to go upstairs" : "The floor above is still loading...";
+        }
+        if (triggers.isInside(TriggerType.STAIRS_DOWN)) {
+            return floors.isResident(building.getDownFloor(currentFloor)) ? "Press S to go downstairs" : "The floor below is still loading...";
+        }
+        if (triggers.isInside(TriggerType.EXIT) && (notesCollected < building.getTotalNotes() || !hasKey)) {
+            return "The exit is locked - find all notes and the key";
+        }
+        return null;
+    }
+    
+    public boolean checkPlayerObstacleCollision(Player player) {
+        if (activeClassroom != null) return false;
+        
+        for (Obstacle obstacle : streamer.getLiveObstacles()) {
+            if (player.getBounds().intersects(obstacle.getBounds())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+public boolean checkClassroomEnter(Player player) {
+    if (isInClassroom()) return false;
+    
+    // CHECK BOTH ENTRANCE AND EXIT DOORS FOR ENTERING
+    return triggers.isInside(TriggerType.DOOR_ENTRANCE) || triggers.isInside(TriggerType.DOOR_EXIT);
+}
+
+public boolean checkClassroomExit(Player player) {
+    if (!isInClassroom()) return false;
+    
+    // IN CLASSROOM - BOTH DOORS CAN BE USED TO EXIT
+    return triggers.isInside(TriggerType.DOOR_ENTRANCE) || triggers.isInside(TriggerType.DOOR_EXIT);
+}
+
+public void enterClassroom(Player player) {
+    if (isInClassroom()) return;
+    
+    // CHECK WHICH DOOR THE PLAYER IS ENTERING FROM
+    TriggerVolume entrance = triggers.getInside(TriggerType.DOOR_ENTRANCE);
+    TriggerVolume exitDoor = triggers.getInside(TriggerType.DOOR_EXIT);
+    if (entrance != null) {
+        activeClassroom = (Classroom) entrance.target;
+        // Position player at classroom entrance door (left side)
+        Rectangle entranceBounds = activeClassroom.getClassroomEntranceBounds();
+        player.setPosition((int)entranceBounds.getX() + 20, activeClassroom.getClassroomGroundY() - player.getBounds().height);
+    } else if (exitDoor != null) {
+        activeClassroom = (Classroom) exitDoor.target;
+        // Position player at classroom exit door (right side)  
+        Rectangle exitBounds = activeClassroom.getClassroomExitBounds();
+        player.setPosition((int)exitBounds.getX() + 20, activeClassroom.getClassroomGroundY() - player.getBounds().height);
+    } else {
+        return;
+    }
+    
+    triggers.enterSpace(spaceKey(currentFloor, true), player.getX());
+}
+
+public void exitClassroom(Player player) {
+    if (!isInClassroom()) return;
+    
+    // Store the player's bounds for collision detection
+    Rectangle playerBounds = player.getBounds();
+    
+    // CHECK WHICH DOOR THE PLAYER IS EXITING FROM
+    if (playerBounds.intersects(activeClassroom.getClassroomEntranceBounds())) {
+        // Exiting through classroom entrance door - go back to main world ENTRANCE position
+        Rectangle mainWorldEntranceBounds = activeClassroom.getEntranceBounds();
+        
+        // Calculate safe spawn position - ensure player doesn't spawn inside obstacle
+        int spawnX = (int)mainWorldEntranceBounds.getX() + 20;
+        int spawnY = groundHeight - playerBounds.height;
+        
+        // Check if spawn position would be inside an obstacle
+        Rectangle testBounds = new Rectangle(spawnX, spawnY, playerBounds.width, playerBounds.height);
+        boolean safeSpawn = true;
+        
+        for (Obstacle obstacle : floors.get(currentFloor).obstacles) {
+            if (testBounds.intersects(obstacle.getBounds())) {
+                safeSpawn = false;
+                // Try alternative spawn positions
+                if (!tryAlternativeSpawnPositions(player, testBounds, mainWorldEntranceBounds, true)) {
+                    // If no safe position found, force spawn and let player move away
+                    spawnX = (int)mainWorldEntranceBounds.getX() + 100; // Force move right
+                }
+                break;
+            }
+        }
+        
+        player.setPosition(spawnX, spawnY);
+        
+    } else if (playerBounds.intersects(activeClassroom.getClassroomExitBounds())) {
+        // Exiting through classroom exit door - go back to main world EXIT position  
+        Rectangle mainWorldExitBounds = activeClassroom.getExitBounds();
+        
+        // Calculate safe spawn position
+        int spawnX = (int)mainWorldExitBounds.getX() + 20;
+        int spawnY = groundHeight - playerBounds.height;
+        
+        // Check if spawn position would be inside an obstacle
+        Rectangle testBounds = new Rectangle(spawnX, spawnY, playerBounds.width, playerBounds.height);
+        boolean safeSpawn = true;
+        
+        for (Obstacle obstacle : floors.get(currentFloor).obstacles) {
+            if (testBounds.intersects(obstacle.getBounds())) {
+                safeSpawn = false;
+                // Try alternative spawn positions
+                if (!tryAlternativeSpawnPositions(player, testBounds, mainWorldExitBounds, false)) {
+                    // If no safe position found, force spawn and let player move away
+                    spawnX = (int)mainWorldExitBounds.getX() - 100; // Force move left
+                }
+                break;
+            }
+        }
+        
+        player.setPosition(spawnX, spawnY);
+    }
+    
+    activeClassroom = null;
+    triggers.enterSpace(spaceKey(currentFloor, false), player.getX());
+}
+
+// Helper method to find safe spawn positions
+private boolean tryAlternativeSpawnPositions(Player player, Rectangle testBounds, Rectangle doorBounds, boolean isEntrance) {
+    int[] xOffsets = {50, 100, -50, -100, 150, -150}; // Try different horizontal offsets
+    
+    for (int offset : xOffsets) {
+        int testX = (int)doorBounds.getX() + offset;
+        Rectangle newTestBounds = new Rectangle(testX, testBounds.y, testBounds.width, testBounds.height);
+        
+        boolean collision = false;
+        for (Obstacle obstacle : floors.get(currentFloor).obstacles) {
+            if (newTestBounds.intersects(obstacle.getBounds())) {
+                collision = true;
+                break;
+            }
+        }
+        
+        if (!collision) {
+            player.setPosition(testX, testBounds.y);
+            return true;
+        }
+    }
+    return false;
+}
+    
+    public boolean canExit(Player player, int currentFloor) {
+        return currentFloor == building.getExitFloor() && exit != null && triggers.isInside(TriggerType.EXIT)
+               && notesCollected >= building.getTotalNotes() && hasKey;
+    }
+    
+    public void draw(Graphics g, int cameraX, int screenWidth, int groundHeight) {
+        if (activeClassroom != null) {
+            activeClassroom.draw(g);
+            
+            // Draw classroom items
+            for (GameEntity note : floors.get(currentFloor).classroomNotes) {
+                g.drawImage(note.sprite, note.x, note.y, null);
+            }
+            
+            GameEntity currentClassroomKey = floors.get(currentFloor).classroomKey;
+            if (currentClassroomKey != null && currentClassroomKey.active) {
+                g.drawImage(currentClassroomKey.sprite, currentClassroomKey.x, currentClassroomKey.y, null);
+            }
+            
+            for (Locker locker : floors.get(currentFloor).classroomLockers) {
+                g.drawImage(locker.getSprite(), locker.getX(), locker.getY(), null);
+            }
+        } else {
+            if (currentFloor == building.getExitFloor() && exit != null) {
+                int drawX = exit.x - cameraX;
+                if (drawX > -exit.sprite.getWidth() && drawX < screenWidth) {
+                    g.drawImage(exit.sprite, drawX, exit.y, null);
+                }
+            }
+            
+            for (GameEntity note : streamer.getLiveNotes()) {
+                if (!note.active) continue;
+                int drawX = note.x - cameraX;
+                if (drawX > -note.sprite.getWidth() && drawX < screenWidth) {
+                    g.drawImage(note.sprite, drawX, note.y, null);
+                }
+            }
+            
+            GameEntity currentKey = floors.get(currentFloor).key;
+            if (currentKey != null && currentKey.active) {
+                int drawX = currentKey.x - cameraX;
+                if (drawX > -currentKey.sprite.getWidth() && drawX < screenWidth) {
+                    g.drawImage(currentKey.sprite, drawX, currentKey.y, null);
+                }
+            }
+            
+            for (Locker locker : streamer.getLiveLockers()) {
+                int drawX = locker.getX() - cameraX;
+                if (drawX > -locker.getSprite().getWidth() && drawX < screenWidth) {
+                    g.drawImage(locker.getSprite(), drawX, locker.getY(), null);
+                }
+            }
+            
+            for (Obstacle obstacle : streamer.getLiveObstacles()) {
+                int drawX = obstacle.getX() - cameraX;
+                if (drawX > -obstacle.getSprite().getWidth() && drawX < screenWidth) {
+                    g.drawImage(obstacle.getSprite(), drawX, obstacle.getY(), null);
+                }
+            }
+            
+            for (Classroom classroom : streamer.getLiveClassrooms()) {
+                int entranceX = classroom.getEntranceBounds().x - cameraX;
+                if (entranceX > -doorEntranceImage.getWidth() && entranceX < screenWidth) {
+                    g.drawImage(doorEntranceImage, entranceX, classroom.getEntranceBounds().y, null);
+                }
+                
+                int exitX = classroom.getExitBounds().x - cameraX;
+                if (exitX > -doorExitImage.getWidth() && exitX < screenWidth) {
+                    g.drawImage(doorExitImage, exitX, classroom.getExitBounds().y, null);
+                }
+            }
+            
+            int stairsUpX = getStaircaseUpX(currentFloor);
+            if (stairsUpX >= 0) {
+                g.drawImage(staircaseUpImage, stairsUpX - cameraX, groundHeight - staircaseUpImage.getHeight(), null);
+            }
+            int stairsDownX = getStaircaseDownX(currentFloor);
+            if (stairsDownX >= 0) {
+                g.drawImage(staircaseDownImage, stairsDownX - cameraX, groundHeight - staircaseDownImage.getHeight(), null);
+            }
+        }
+    }
+    
+    public boolean checkStaircaseUp(Player player) {
+        return activeClassroom == null && triggers.isInside(TriggerType.STAIRS_UP);
+    }
+    
+    public boolean checkStaircaseDown(Player player) {
+        return activeClassroom == null && triggers.isInside(TriggerType.STAIRS_DOWN);
+    }
+    
+    public int getStaircaseUpX(int floor) {
+        return building.getStairsUpX(floor);
+    }
+    
+    public int getStaircaseDownX(int floor) {
+        return building.getStairsDownX(floor);
+    }
+    
+    private Rectangle getStaircaseUpBounds(int floor) {
+        int stairX = getStaircaseUpX(floor);
+        if (stairX < 0) return null;
+        
+        return new Rectangle(stairX, groundHeight - staircaseUpImage.getHeight(), 
+                             staircaseUpImage.getWidth(), staircaseUpImage.getHeight());
+    }
+    
+    private Rectangle getStaircaseDownBounds(int floor) {
+        int stairX = getStaircaseDownX(floor);
+        if (stairX < 0) return null;
+        
+        return new Rectangle(stairX, groundHeight - staircaseDownImage.getHeight(), 
+                             staircaseDownImage.getWidth(), staircaseDownImage.getHeight());
+    }
+    
+    // Builds the monster's navigation graph over the generated floors
+    public void attachMonster(Monster monster) {
+        navGraph = new NavGraph(worldWidth, monster.getBounds().width, 1920);
+        for (Floor floor : floors.getResident()) {
+            registerNav(floor);
+        }
+    }
+    
+    // False if the floor is still loading - the stairs are not taken, and the prompt says
+    // so until the background load is in. Nothing on the game thread waits for a floor.
+    public boolean changeFloor(int newFloor) {
+        if (floors.get(newFloor) == null) return false;
+        
+        moveToFloor(newFloor);
+        deepestFloor = Math.max(deepestFloor, newFloor);
+        triggers.enterSpace(spaceKey(currentFloor, false), triggers.getSubjectX());
+        return true;
+    }
+    
+    // The floor must be resident
+    private void moveToFloor(int newFloor) {
+        currentFloor = newFloor;
+        activeClassroom = null;
+        floors.setCurrentFloor(newFloor);
+        streamer.setFloor(newFloor);
+    }
+    
+    // Progress for a save. The floors themselves are not written - they are rebuilt from
+    // the run seed, and what was collected is replayed on top.
+    public void saveState(ByteBuffer out) {
+        out.putInt(currentFloor);
+        out.putInt(deepestFloor);
+        out.putInt(classroomIndex(currentFloor, activeClassroom));
+        out.putInt(notesCollected);
+        out.put((byte) (hasKey ? 1 : 0));
+        floors.saveCollected(out);
+    }
+    
+    // Call on a world rebuilt from getRunSeed(), before attachPlayer/attachMonster
+    public void restoreState(ByteBuffer in) {
+        int floor = in.getInt();
+        int deepest = in.getInt();
+        int classroom = in.getInt();
+        notesCollected = in.getInt();
+        hasKey = in.get() != 0;
+        
+        floors.require(floor);
+        changeFloor(floor);
+        floors.restoreCollected(in);
+        deepestFloor = Math.max(deepest, floor);
+        activeClassroom = classroomAt(floor, classroom);
+    }
+    
+    // Puts a rewind frame's progress back onto the world already loaded, which must be the
+    // same run's. Call placePlayer once the player is restored too.
+    public void applyState(ByteBuffer in) {
+        int floor = in.getInt();
+        int deepest = in.getInt();
+        int classroom = in.getInt();
+        notesCollected = in.getInt();
+        hasKey = in.get() != 0;
+        
+        // Out of every space until placePlayer, so floors swapped in under the player's
+        // old position do not collect anything
+        triggers.enterSpace(-1, triggers.getSubjectX());
+        floors.replaceCollected(in);
+        if (floor != currentFloor) {
+            floors.require(floor);
+            moveToFloor(floor);
+        }
+        deepestFloor = Math.max(deepest, floor);
+        activeClassroom = classroomAt(floor, classroom);
+    }
+    
+    // Puts the player into the triggers of the space they are now in, at their position
+    public void placePlayer(Player player) {
+        triggers.enterSpace(spaceKey(currentFloor, activeClassroom != null), player.getX());
+    }
+    
+    // Position of a classroom in its floor's list, or -1; used to save references to it
+    public int classroomIndex(int floor, Classroom classroom) {
+        if (classroom == null || !floors.isResident(floor)) return -1;
+        return floors.get(floor).classrooms.indexOf(classroom);
+    }
+    
+    public Classroom classroomAt(int floor, int index) {
+        if (index < 0 || floor < 0 || !floors.isResident(floor)) return null;
+        
+        ArrayList<Classroom> classrooms = floors.get(floor).classrooms;
+        return index < classrooms.size() ? classrooms.get(index) : null;
+    }
+    
+    // Picks the floor a newly spawned monster appears on. In endless mode only floors
+    // next to the player are loaded, so the monster stays within reach of them. A level's
+    // floors are decoded as they are first needed; until every floor between the pick and
+    // the player is in, the monster appears on the player's floor and the rest are fetched.
+    public int pickMonsterFloor(SpawnDirector director) {
+        if (!building.isEndless()) {
+            int floor = director.nextInt(building.getFloorCount());
+            boolean loaded = true;
+            for (int between = Math.min(floor, currentFloor); between <= Math.max(floor, currentFloor); between++) {
+                loaded &= floors.get(between) != null;
+            }
+            return loaded ? floor : currentFloor;
+        }
+        int floor = currentFloor + director.nextInt(3) - 1;
+        if (floor < 0 || !floors.isResident(floor)) {
+            return currentFloor;
+        }
+        return floor;
+    }
+    
+    // Makes sure every floor from one to the other is loaded, so the monster has a way to
+    // the player. Outside endless mode only a level's floors can be missing. Waits for
+    // them, so only for restoring a save.
+    public void loadFloorsBetween(int from, int to) {
+        for (int floor = Math.min(from, to); floor <= Math.max(from, to); floor++) {
+            floors.require(floor);
+        }
+    }
+    
+    // Called once per frame on the game thread, after the camera has moved: installs
+    // floors the background generator has finished and slides the live chunk window
+    public void update(int cameraX, int screenWidth) {
+        floors.installPending();
+        streamer.update(cameraX, screenWidth);
+    }
+    
+    // Whether x on the player's floor is inside the live chunk window - anything outside
+    // it is off screen and can be simulated coarsely
+    public boolean isLive(int x) {
+        return streamer.isLive(x);
+    }
+    
+    public void shutdown() {
+        floors.shutdown();
+    }
+    
+    public ArrayList<Locker> getCurrentFloorLockers() {
+        if (activeClassroom != null) {
+            return floors.get(currentFloor).classroomLockers;
+        } else {
+            return streamer.getLiveLockers();
+        }
+    }
+    
+    public int getNotesCollected() { return notesCollected; }
+    public boolean hasKey() { return hasKey; }
+    public int getCurrentFloor() { return currentFloor; }
+    public int getDeepestFloor() { return deepestFloor; }
+    public long getRunSeed() { return runSeed; }
+    public boolean isInClassroom() { return activeClassroom != null; }
+    public Classroom getActiveClassroom() { return activeClassroom; }
+    public ArrayList<Classroom> getCurrentFloorClassrooms() {
+        return floors.get(currentFloor).classrooms;
+    }
+    public int getGroundHeight() { return groundHeight; }
+    public int getWorldWidth() { return worldWidth; }
+    public int getFloorCount() { return building.getFloorCount(); }
+    public int getTotalNotes() { return building.getTotalNotes(); }
+    public BuildingDescriptor getBuilding() { return building; }
+    public NavGraph getNavGraph() { return navGraph; }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+class ItemSprites {
+    // Item and level images, read from disk once and shared by every run and floor
+    private static ItemSprites loaded = null;
+    
+    BufferedImage note, key, exit, locker, staircaseUp, staircaseDown, obstacle;
+    BufferedImage doorEntrance, doorExit, classroomBg, classroomGround;
+    
+    static synchronized ItemSprites load() {
+        if (loaded != null) return loaded;
+        
+        ItemSprites sprites = new ItemSprites();
+        try {
+            sprites.note = ImageIO.read(new File("note.png"));
+            sprites.key = ImageIO.read(new File("key.png"));
+            sprites.exit = ImageIO.read(new File("exit.png"));
+            sprites.locker = ImageIO.read(new File("locker.png"));
+            sprites.staircaseUp = ImageIO.read(new File("staircase_up.png"));
+            sprites.staircaseDown = ImageIO.read(new File("staircase_down.png"));
+            sprites.obstacle = ImageIO.read(new File("obstacle.png"));
+            sprites.doorEntrance = ImageIO.read(new File("door_entrance.png"));
+            sprites.doorExit = ImageIO.read(new File("door_exit.png"));
+            sprites.classroomBg = ImageIO.read(new File("classroom_bg.png"));
+            sprites.classroomGround = ImageIO.read(new File("classroom_ground.png"));
+        } catch (IOException e) {
+            System.err.println("Error loading image files: " + e.getMessage());
+            System.err.println("Make sure these files exist: note.png, key.png, exit.png, locker.png, staircase_up.png, staircase_down.png, obstacle.png, door_entrance.png, door_exit.png, classroom_bg.png, classroom_ground.png");
+            System.exit(1);
+        }
+        loaded = sprites;
+        return sprites;
+    }
+}
@@ -0,0 +1,442 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+public class Leaderboard {
+    // Every escape ever made, kept on disk as an append-only log of fixed-size records,
+    // each with its own checksum, so a crash mid-append costs at most that one record.
+    // In memory the entries sit in parallel arrays with an index sorted by score, which
+    // makes rank, top-N and percentile lookups a binary search. Loading, appending and
+    // compacting all happen on a background thread; the game thread only hands over an
+    // entry and later reads back where it placed.
+    //
+    // File layout, big-endian: int magic "AHLB", short version, short unused, long count of
+    // entries dropped by compaction; then records of (long date, long seed, int score,
+    // int escape seconds, short hides, byte mode, byte unused, int CRC32 of the 28 before).
+    private static final int MAGIC = 0x41484C42;
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 32;
+    private static final int RECORD_DATA = 28;
+    // Once the log holds this many more than the retention limit, compaction rewrites it
+    // with only the best entries, sorted
+    private static final int RETAINED_ENTRIES = 200000;
+    private static final int COMPACT_SLACK = 50000;
+
+    private final Path file;
+    private final Path temp;
+    private final ExecutorService worker;
+    private final CRC32 crc = new CRC32();
+
+    // Guarded by this; entries in the order they were logged
+    private int size = 0;
+    private long[] dates = new long[1024];
+    private long[] seeds = new long[1024];
+    private int[] scores = new int[1024];
+    private int[] times = new int[1024];
+    private short[] hides = new short[1024];
+    private byte[] modes = new byte[1024];
+    // Entry numbers, best score first; equal scores in the order they were set
+    private int[] order = new int[1024];
+    private HashMap<Long, ArrayList<Integer>> bySeed = new HashMap<>();
+    private long dropped = 0;
+    private boolean loaded = false;
+
+    public Leaderboard(String fileName) {
+        this.file = Paths.get(fileName);
+        this.temp = Paths.get(fileName + ".tmp");
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "leaderboard");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        worker.execute(this::load);
+    }
+
+    // Queues an escape to be logged; its rank and the board size are filled in once it is
+    public void submit(LeaderboardEntry entry) {
+        worker.execute(() -> {
+            synchronized (this) {
+                insert(entry.date, entry.seed, entry.score, entry.escapeTime, entry.hides, entry.mode);
+                entry.total = getTotal();
+                // Written last - a non-zero rank tells readers the entry is placed
+                entry.rank = rankOf(entry.score);
+            }
+            try {
+                append(entry);
+            } catch (IOException e) {
+                System.err.println("Could not record score: " + e.getMessage());
+            }
+            if (size > RETAINED_ENTRIES + COMPACT_SLACK) {
+                compact();
+            }
+        });
+    }
+
+    public synchronized boolean isLoaded() { return loaded; }
+
+    // Entries ever logged, including those compaction has since dropped
+    public synchronized long getTotal() { return size + dropped; }
+
+    public synchronized int size() { return size; }
+
+    // 1-based place a score would take; ties share the better place
+    public synchronized int rankOf(int score) {
+        return firstBelow(score + 1) + 1;
+    }
+
+    // Fraction of logged escapes that scored strictly less
+    public synchronized double percentileOf(int score) {
+        long total = getTotal();
+        if (total == 0) return 1.0;
+        return (total - firstBelow(score)) / (double) total;
+    }
+
+    // Lowest score still inside the best given fraction of the board, 0 if it is empty
+    public synchronized int scoreAtPercentile(double fraction) {
+        if (size == 0) return 0;
+        int index = (int) Math.min(size - 1, Math.max(0, Math.round(fraction * getTotal()) - 1));
+        return scores[order[index]];
+    }
+
+    public synchronized ArrayList<LeaderboardEntry> top(int count) {
+        ArrayList<LeaderboardEntry> result = new ArrayList<>();
+        for (int i = 0; i < Math.min(count, size); i++) {
+            result.add(entryAt(order[i], i + 1));
+        }
+        return result;
+    }
+
+    // Best escapes on one run seed, for comparing attempts at the same building
+    public synchronized ArrayList<LeaderboardEntry> topForSeed(long seed, int count) {
+        ArrayList<LeaderboardEntry> result = new ArrayList<>();
+        ArrayList<Integer> entries = bySeed.get(seed);
+        if (entries == null) return result;
+
+        Integer[] best = entries.toArray(new Integer[0]);
+        Arrays.sort(best, (a, b) -> scores[a] != scores[b] ? Integer.compare(scores[b], scores[a]) : Integer.compare(a, b));
+        for (int i = 0; i < Math.min(count, best.length); i++) {
+            result.add(entryAt(best[i], rankOf(scores[best[i]])));
+        }
+        return result;
+    }
+
+    // Position in the order of the first entry scoring below the given score
+    private int firstBelow(int score) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (scores[order[middle]] >= score) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private LeaderboardEntry entryAt(int index, int rank) {
+        LeaderboardEntry entry = new LeaderboardEntry(scores[index], times[index], hides[index] & 0xFFFF, seeds[index], modes[index]);
+        entry.date = dates[index];
+        entry.rank = rank;
+        entry.total = getTotal();
+        return entry;
+    }
+
+    // Places a live submission: shifts the order along to make room, which is cheap for
+    // one entry but would be quadratic over a whole log, so loading uses add() and
+    // sortOrder() instead
+    private void insert(long date, long seed, int score, int time, int hideCount, int mode) {
+        // After every entry with an equal or better score
+        int position = firstBelow(score);
+        int index = add(date, seed, score, time, hideCount, mode);
+        System.arraycopy(order, position, order, position + 1, index - position);
+        order[position] = index;
+    }
+
+    // Stores an entry after the others and returns its number; the caller places it in
+    // the order
+    private int add(long date, long seed, int score, int time, int hideCount, int mode) {
+        if (size == scores.length) {
+            int capacity = size * 2;
+            dates = Arrays.copyOf(dates, capacity);
+            seeds = Arrays.copyOf(seeds, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+            times = Arrays.copyOf(times, capacity);
+            hides = Arrays.copyOf(hides, capacity);
+            modes = Arrays.copyOf(modes, capacity);
+            order = Arrays.copyOf(order, capacity);
+        }
+        int index = size;
+        dates[index] = date;
+        seeds[index] = seed;
+        scores[index] = score;
+        times[index] = time;
+        hides[index] = (short) Math.min(hideCount, 0xFFFF);
+        modes[index] = (byte) mode;
+        size++;
+        bySeed.computeIfAbsent(seed, s -> new ArrayList<>()).add(index);
+        return index;
+    }
+
+    // Rebuilds the order from scratch in one sort. Each key is the inverted score above
+    // the entry number, so ascending keys are best score first, equal scores in log order.
+    private void sortOrder() {
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ((long) ~scores[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < size; i++) {
+            order[i] = (int) keys[i];
+        }
+    }
+
+    private void clearEntries() {
+        size = 0;
+        bySeed = new HashMap<>();
+    }
+
+    // Reads the log on the worker thread. Records after the first damaged one cannot be
+    // trusted to line up, so a damaged log is cut back by compacting straight away.
+    private void load() {
+        boolean damaged = false;
+        try {
+            if (Files.exists(file)) {
+                ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+                if (data.remaining() < HEADER_SIZE || data.getInt() != MAGIC || data.getShort() != VERSION) {
+                    System.err.println("Leaderboard file is damaged or from another version, starting a new one");
+                    damaged = true;
+                } else {
+                    data.getShort();
+                    long droppedEntries = data.getLong();
+                    int count = data.remaining() / RECORD_SIZE;
+                    damaged = data.remaining() % RECORD_SIZE != 0;
+
+                    synchronized (this) {
+                        dropped = droppedEntries;
+                        for (int i = 0; i < count; i++) {
+                            int start = data.position();
+                            crc.reset();
+                            crc.update(data.array(), start, RECORD_DATA);
+                            if (data.getInt(start + RECORD_DATA) != (int) crc.getValue()) {
+                                System.err.println("Leaderboard record " + i + " is damaged, dropping it and everything after");
+                                damaged = true;
+                                break;
+                            }
+                            long date = data.getLong();
+                            long seed = data.getLong();
+                            int score = data.getInt();
+                            int time = data.getInt();
+                            int hideCount = data.getShort() & 0xFFFF;
+                            int mode = data.get();
+                            data.get();
+                            data.getInt();
+                            add(date, seed, score, time, hideCount, mode);
+                        }
+                        sortOrder();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read leaderboard: " + e.getMessage());
+        }
+
+        synchronized (this) {
+            loaded = true;
+        }
+        if (damaged || size > RETAINED_ENTRIES + COMPACT_SLACK) {
+            compact();
+        }
+    }
+
+    private void append(LeaderboardEntry entry) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        boolean fresh = !Files.exists(file);
+        if (fresh) {
+            writeHeader(record.clear(), dropped);
+            writeFully(file, record.flip(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        writeRecord(record.clear(), entry.date, entry.seed, entry.score, entry.escapeTime, entry.hides, entry.mode);
+        writeFully(file, record.flip(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Rewrites the log as the best entries, sorted, in a temporary file renamed over the
+    // old one; the index is rebuilt to match
+    private void compact() {
+        ByteBuffer data;
+        synchronized (this) {
+            int keep = Math.min(size, RETAINED_ENTRIES);
+            long newDropped = dropped + (size - keep);
+            data = ByteBuffer.allocate(HEADER_SIZE + keep * RECORD_SIZE);
+            writeHeader(data, newDropped);
+            for (int i = 0; i < keep; i++) {
+                int index = order[i];
+                writeRecord(data, dates[index], seeds[index], scores[index], times[index], hides[index] & 0xFFFF, modes[index]);
+            }
+
+            long[] keptDates = new long[keep];
+            long[] keptSeeds = new long[keep];
+            int[] keptScores = new int[keep];
+            int[] keptTimes = new int[keep];
+            short[] keptHides = new short[keep];
+            byte[] keptModes = new byte[keep];
+            for (int i = 0; i < keep; i++) {
+                int index = order[i];
+                keptDates[i] = dates[index];
+                keptSeeds[i] = seeds[index];
+                keptScores[i] = scores[index];
+                keptTimes[i] = times[index];
+                keptHides[i] = hides[index];
+                keptModes[i] = modes[index];
+            }
+            clearEntries();
+            dropped = newDropped;
+            // Kept best first, so the order is just the entry numbers
+            for (int i = 0; i < keep; i++) {
+                order[i] = add(keptDates[i], keptSeeds[i], keptScores[i], keptTimes[i], keptHides[i] & 0xFFFF, keptModes[i]);
+            }
+        }
+
+        try {
+            writeFully(temp, data.flip(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not compact leaderboard: " + e.getMessage());
+        }
+    }
+
+    private static void writeHeader(ByteBuffer out, long droppedEntries) {
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+        out.putShort((short) 0);
+        out.putLong(droppedEntries);
+    }
+
+    private void writeRecord(ByteBuffer out, long date, long seed, int score, int time, int hideCount, int mode) {
+        int start = out.position();
+        out.putLong(date);
+        out.putLong(seed);
+        out.putInt(score);
+        out.putInt(time);
+        out.putShort((short) Math.min(hideCount, 0xFFFF));
+        out.put((byte) mode);
+        out.put((byte) 0);
+        crc.reset();
+        crc.update(out.array(), start, RECORD_DATA);
+        out.putInt((int) crc.getValue());
+    }
+
+    private static void writeFully(Path path, ByteBuffer data, StandardOpenOption... options) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        }
+    }
+
+    // Finishes queued writes, waiting at most a second
+    public void shutdown() {
+        worker.shutdown();
+        try {
+            worker.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Command line: Leaderboard <file> [top N | seed S [N] | percentile SCORE | bench N]
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: Leaderboard <file> [top N | seed S [N] | percentile SCORE | bench N]");
+            System.exit(1);
+        }
+        Leaderboard board = new Leaderboard(args[0]);
+        while (!board.isLoaded()) {
+            Thread.sleep(10);
+        }
+        String command = args.length > 1 ? args[1] : "top";
+        int count = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        if (command.equals("bench")) {
+            bench(board, count);
+        } else if (command.equals("seed")) {
+            int seedCount = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+            print(board.topForSeed(Long.parseLong(args[2]), seedCount));
+        } else if (command.equals("percentile")) {
+            int score = Integer.parseInt(args[2]);
+            System.out.println(String.format("Score %d places #%d of %d, better than %.1f%%",
+                    score, board.rankOf(score), board.getTotal(), board.percentileOf(score) * 100));
+        } else {
+            System.out.println(board.getTotal() + " escapes logged");
+            print(board.top(count));
+        }
+        board.shutdown();
+    }
+
+    private static void print(ArrayList<LeaderboardEntry> entries) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        for (LeaderboardEntry entry : entries) {
+            System.out.println(String.format("#%-7d %7d  %02d:%02d  %3d hides  seed %d  %s",
+                    entry.rank, entry.score, entry.escapeTime / 60, entry.escapeTime % 60, entry.hides,
+                    entry.seed, format.format(new Date(entry.date))));
+        }
+    }
+
+    // Fills the board with random escapes and times the end-screen lookups
+    private static void bench(Leaderboard board, int count) throws InterruptedException {
+        Random random = new Random(1);
+        long start = System.nanoTime();
+        LeaderboardEntry last = null;
+        for (int i = 0; i < count; i++) {
+            last = new LeaderboardEntry(random.nextInt(40000), 120 + random.nextInt(1500), random.nextInt(30), random.nextLong(), 0);
+            board.submit(last);
+        }
+        while (last.rank == 0) {
+            Thread.sleep(1);
+        }
+        System.out.println(String.format("%d submits logged in %d ms, board holds %d of %d",
+                count, (System.nanoTime() - start) / 1000000, board.size(), board.getTotal()));
+
+        int queries = 100000;
+        long sum = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            sum += board.rankOf(random.nextInt(40000));
+        }
+        System.out.println(String.format("rankOf: %.2f us", (System.nanoTime() - start) / 1e3 / queries));
+        start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            sum += (long) (board.percentileOf(random.nextInt(40000)) * 100);
+        }
+        System.out.println(String.format("percentileOf: %.2f us", (System.nanoTime() - start) / 1e3 / queries));
+        start = System.nanoTime();
+        for (int i = 0; i < queries / 100; i++) {
+            sum += board.top(10).size();
+        }
+        System.out.println(String.format("top(10): %.2f us  (%d)", (System.nanoTime() - start) / 1e3 / (queries / 100), sum % 10));
+    }
+}
@@ -0,0 +1,19 @@
+class LeaderboardEntry {
+    // One escape; rank and total are 0 until the board has placed it
+    final int score;
+    final int escapeTime;
+    final int hides;
+    final long seed;
+    final int mode;
+    long date = System.currentTimeMillis();
+    volatile int rank = 0;
+    volatile long total = 0;
+
+    LeaderboardEntry(int score, int escapeTime, int hides, long seed, int mode) {
+        this.score = score;
+        this.escapeTime = escapeTime;
+        this.hides = hides;
+        this.seed = seed;
+        this.mode = mode;
+    }
+}
@@ -0,0 +1,330 @@
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+
+public class LevelFile {
+    // A whole building and its floors in one binary file, so a world can be shipped or
+    // replayed without running generation. The file is memory-mapped and floors are
+    // decoded only when asked for, each one found through an offset table, so opening a
+    // huge building costs the same as opening a small one.
+    //
+    // Layout (big-endian):
+    //   header    int magic "AHLV", short version, short unused,
+    //             int worldWidth, groundHeight, floorCount, keyFloor, exitFloor, exitX,
+    //             long runSeed
+    //   building  per floor: int stairsUpX, int stairsDownX, int notes
+    //   offsets   per floor: int byte offset of the floor record
+    //   floor     ushort counts of notes, lockers, obstacles, classrooms, classroom lockers,
+    //             classroom notes; byte key kind (0 none, 1 hallway, 2 classroom); byte unused;
+    //             then the key (x, y) if any, notes (x, y, short id), lockers (x, y),
+    //             obstacles (x, y), classrooms (entrance x, y, exit x, y, short obstacle
+    //             index or -1), classroom lockers (x, y), classroom notes (x, y, short id)
+    //
+    // Compile a generated world with: java -Djava.awt.headless=true LevelFile out.ahl [seed] [floors]
+    static final int MAGIC = 0x41484C56;
+    static final short VERSION = 1;
+    private static final int HEADER_SIZE = 40;
+    // Sizes within a floor record: the counts and key kind, the key, a note, an x/y pair
+    // (locker or obstacle) and a classroom
+    private static final int FLOOR_HEADER_SIZE = 14;
+    private static final int KEY_SIZE = 8;
+    private static final int NOTE_SIZE = 10;
+    private static final int POINT_SIZE = 8;
+    private static final int CLASSROOM_SIZE = 18;
+    private static final int KEY_NONE = 0;
+    private static final int KEY_HALLWAY = 1;
+    private static final int KEY_CLASSROOM = 2;
+    private static final int CLASSROOM_WIDTH = 1920;
+    private static final int CLASSROOM_HEIGHT = 1080;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: LevelFile <out file> [seed] [floors]");
+            System.exit(1);
+        }
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : System.nanoTime();
+        int groundHeight = 900;
+        BuildingDescriptor building = (args.length > 2)
+            ? BuildingDescriptor.tower(Integer.parseInt(args[2]), 3840)
+            : BuildingDescriptor.standard(3840);
+
+        FloorGenerator generator = new FloorGenerator(building, ItemSprites.load(), groundHeight);
+        Floor[] floors = generator.generateAll(building.getFloorCount(), seed, ForkJoinPool.commonPool());
+        File out = new File(args[0]);
+        write(out, building, groundHeight, new GeneratedWorld(seed, floors));
+        System.out.println("Wrote " + floors.length + " floors from seed " + seed + " to " + out + " (" + out.length() + " bytes)");
+    }
+
+    public static void write(File file, BuildingDescriptor building, int groundHeight, GeneratedWorld world) throws IOException {
+        if (building.isEndless()) {
+            throw new IOException("Endless buildings cannot be saved as a level");
+        }
+        int floorCount = building.getFloorCount();
+        int size = HEADER_SIZE + floorCount * 16;
+        for (Floor floor : world.floors) {
+            size += floorSize(floor);
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+        out.putShort((short) 0);
+        out.putInt(building.getWorldWidth());
+        out.putInt(groundHeight);
+        out.putInt(floorCount);
+        out.putInt(building.getKeyFloor());
+        out.putInt(building.getExitFloor());
+        out.putInt(building.getExitX());
+        out.putLong(world.runSeed);
+
+        for (int floor = 0; floor < floorCount; floor++) {
+            out.putInt(building.getStairsUpX(floor));
+            out.putInt(building.getStairsDownX(floor));
+            out.putInt(building.getNotesOnFloor(floor));
+        }
+
+        int offset = HEADER_SIZE + floorCount * 16;
+        for (Floor floor : world.floors) {
+            out.putInt(offset);
+            offset += floorSize(floor);
+        }
+        for (Floor floor : world.floors) {
+            writeFloor(out, floor);
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            out.flip();
+            raf.getChannel().write(out);
+        }
+    }
+
+    private static int floorSize(Floor f) {
+        return (int) recordSize(f.key != null || f.classroomKey != null, f.notes.size() + f.classroomNotes.size(),
+                                f.lockers.size() + f.classroomLockers.size() + f.obstacles.size(), f.classrooms.size());
+    }
+
+    private static long recordSize(boolean key, int notes, int points, int classrooms) {
+        return FLOOR_HEADER_SIZE + (key ? KEY_SIZE : 0) + (long) notes * NOTE_SIZE
+             + (long) points * POINT_SIZE + (long) classrooms * CLASSROOM_SIZE;
+    }
+
+    private static void writeFloor(ByteBuffer out, Floor f) {
+        out.putShort((short) f.notes.size());
+        out.putShort((short) f.lockers.size());
+        out.putShort((short) f.obstacles.size());
+        out.putShort((short) f.classrooms.size());
+        out.putShort((short) f.classroomLockers.size());
+        out.putShort((short) f.classroomNotes.size());
+
+        GameEntity key = (f.key != null) ? f.key : f.classroomKey;
+        out.put((byte) (f.key != null ? KEY_HALLWAY : f.classroomKey != null ? KEY_CLASSROOM : KEY_NONE));
+        out.put((byte) 0);
+        if (key != null) {
+            out.putInt(key.x);
+            out.putInt(key.y);
+        }
+
+        for (GameEntity note : f.notes) {
+            out.putInt(note.x);
+            out.putInt(note.y);
+            out.putShort((short) note.id);
+        }
+        for (Locker locker : f.lockers) {
+            out.putInt(locker.getX());
+            out.putInt(locker.getY());
+        }
+        for (Obstacle obstacle : f.obstacles) {
+            out.putInt(obstacle.getX());
+            out.putInt(obstacle.getY());
+        }
+        for (Classroom classroom : f.classrooms) {
+            Rectangle entrance = classroom.getEntranceBounds();
+            Rectangle exit = classroom.getExitBounds();
+            out.putInt(entrance.x);
+            out.putInt(entrance.y);
+            out.putInt(exit.x);
+            out.putInt(exit.y);
+            out.putShort((short) f.obstacles.indexOf(classroom.getConnectedObstacle()));
+        }
+        for (Locker locker : f.classroomLockers) {
+            out.putInt(locker.getX());
+            out.putInt(locker.getY());
+        }
+        for (GameEntity note : f.classroomNotes) {
+            out.putInt(note.x);
+            out.putInt(note.y);
+            out.putShort((short) note.id);
+        }
+    }
+
+    private ByteBuffer data;
+    private BuildingDescriptor building;
+    private int groundHeight;
+    private long runSeed;
+    private int[] offsets;
+    private ItemSprites sprites;
+
+    private LevelFile(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a level file");
+        }
+        short version = data.getShort(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported level version " + version + " (expected " + VERSION + ")");
+        }
+
+        ByteBuffer in = data.duplicate();
+        in.position(8);
+        int worldWidth = in.getInt();
+        groundHeight = in.getInt();
+        int floorCount = in.getInt();
+        int keyFloor = in.getInt();
+        int exitFloor = in.getInt();
+        int exitX = in.getInt();
+        runSeed = in.getLong();
+        if (floorCount <= 0 || HEADER_SIZE + (long) floorCount * 16 > data.capacity()) {
+            throw new IOException("Level file is truncated");
+        }
+        if (keyFloor < 0 || keyFloor >= floorCount) {
+            throw new IOException("Key floor " + keyFloor + " is not in the building");
+        }
+        if (exitFloor < 0 || exitFloor >= floorCount) {
+            throw new IOException("Exit floor " + exitFloor + " is not in the building");
+        }
+
+        building = new BuildingDescriptor(floorCount, worldWidth);
+        int[] stairsDownX = new int[floorCount];
+        for (int floor = 0; floor < floorCount; floor++) {
+            int stairsUpX = in.getInt();
+            stairsDownX[floor] = in.getInt();
+            int notes = in.getInt();
+            if (notes < 0) {
+                throw new IOException("Bad note count for floor " + floor);
+            }
+            building.setNotesOnFloor(floor, notes);
+            if (stairsUpX >= 0 && floor + 1 < floorCount) {
+                building.linkStairs(floor, stairsUpX);
+            }
+        }
+        // Stairs are stored from both ends - they must agree
+        for (int floor = 0; floor < floorCount; floor++) {
+            if (stairsDownX[floor] != building.getStairsDownX(floor)) {
+                throw new IOException("Staircases on floor " + floor + " do not line up");
+            }
+        }
+        building.setKeyFloor(keyFloor);
+        building.setExit(exitFloor, exitX);
+
+        // Records follow the offset table in floor order, so each one ends where the next
+        // begins and the last at the end of the file
+        offsets = new int[floorCount];
+        int previous = HEADER_SIZE + floorCount * 16;
+        for (int floor = 0; floor < floorCount; floor++) {
+            offsets[floor] = in.getInt();
+            if (offsets[floor] < previous || offsets[floor] >= data.capacity()) {
+                throw new IOException("Bad offset for floor " + floor);
+            }
+            previous = offsets[floor];
+        }
+        sprites = ItemSprites.load();
+    }
+
+    // Maps a level file read-only; floors are decoded later, on demand
+    public static LevelFile open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            return new LevelFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Builds fresh Floor objects for one floor. Safe to call from any thread, and every
+    // call returns new objects, so a run can collect items without touching the file.
+    // The counts are checked against the record's bytes before anything is decoded.
+    public Floor readFloor(int index) throws IOException {
+        int start = offsets[index];
+        int end = (index + 1 < offsets.length) ? offsets[index + 1] : data.capacity();
+        if (end - start < FLOOR_HEADER_SIZE) {
+            throw damaged(index, "record is " + (end - start) + " bytes, too short for its counts");
+        }
+        ByteBuffer in = data.duplicate();
+        in.position(start);
+        in.limit(end);
+        Floor f = new Floor(index);
+
+        int notes = in.getShort() & 0xFFFF;
+        int lockers = in.getShort() & 0xFFFF;
+        int obstacles = in.getShort() & 0xFFFF;
+        int classrooms = in.getShort() & 0xFFFF;
+        int classroomLockers = in.getShort() & 0xFFFF;
+        int classroomNotes = in.getShort() & 0xFFFF;
+        int keyKind = in.get();
+        in.get();
+
+        if (keyKind < KEY_NONE || keyKind > KEY_CLASSROOM) {
+            throw damaged(index, "unknown key kind " + keyKind);
+        }
+        long size = recordSize(keyKind != KEY_NONE, notes + classroomNotes, lockers + classroomLockers + obstacles, classrooms);
+        if (size > end - start) {
+            throw damaged(index, "counts need " + size + " bytes but the record has " + (end - start));
+        }
+
+        if (keyKind != KEY_NONE) {
+            GameEntity key = new GameEntity(sprites.key, in.getInt(), in.getInt());
+            if (keyKind == KEY_HALLWAY) {
+                f.key = key;
+            } else {
+                f.classroomKey = key;
+            }
+        }
+        for (int i = 0; i < notes; i++) {
+            f.notes.add(new GameEntity(sprites.note, in.getInt(), in.getInt(), in.getShort()));
+        }
+        for (int i = 0; i < lockers; i++) {
+            f.lockers.add(new Locker(sprites.locker, in.getInt(), in.getInt()));
+        }
+        for (int i = 0; i < obstacles; i++) {
+            f.obstacles.add(new Obstacle(sprites.obstacle, in.getInt(), in.getInt()));
+        }
+        for (int i = 0; i < classrooms; i++) {
+            int entranceX = in.getInt(), entranceY = in.getInt();
+            int exitX = in.getInt(), exitY = in.getInt();
+            int obstacle = in.getShort();
+            if (obstacle < -1 || obstacle >= obstacles) {
+                throw damaged(index, "classroom " + i + " is joined to obstacle " + obstacle + " of " + obstacles);
+            }
+            Classroom classroom = new Classroom(sprites.classroomBg, sprites.classroomGround,
+                                                sprites.doorEntrance, sprites.doorExit,
+                                                obstacle >= 0 ? f.obstacles.get(obstacle) : null,
+                                                CLASSROOM_WIDTH, CLASSROOM_HEIGHT);
+            classroom.setEntrancePosition(entranceX, entranceY);
+            classroom.setExitPosition(exitX, exitY);
+            f.classrooms.add(classroom);
+        }
+        for (int i = 0; i < classroomLockers; i++) {
+            f.classroomLockers.add(new Locker(sprites.locker, in.getInt(), in.getInt()));
+        }
+        for (int i = 0; i < classroomNotes; i++) {
+            f.classroomNotes.add(new GameEntity(sprites.note, in.getInt(), in.getInt(), in.getShort()));
+        }
+        return f;
+    }
+
+    private static IOException damaged(int floor, String problem) {
+        return new IOException("Level file is damaged: floor " + floor + " " + problem);
+    }
+
+    // A world whose floors are decoded through readFloor when the run first needs them
+    public GeneratedWorld readWorld() {
+        return new GeneratedWorld(runSeed, this);
+    }
+
+    public BuildingDescriptor getBuilding() { return building; }
+    public int getGroundHeight() { return groundHeight; }
+    public long getRunSeed() { return runSeed; }
+}
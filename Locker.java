@@ -0,0 +1,29 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+class Locker {
+    private BufferedImage sprite;
+    private int x, y;
+    private boolean playerInside = false;
+    
+    public Locker(BufferedImage sprite, int x, int y) {
+        this.sprite = sprite;
+        this.x = x;
+        this.y = y;
+    }
+    
+    public void setPosition(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+    
+    public Rectangle getBounds() {
+        return new Rectangle(x, y, sprite.getWidth(), sprite.getHeight());
+    }
+    
+    public BufferedImage getSprite() { return sprite; }
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public boolean isPlayerInside() { return playerInside; }
+    public void setPlayerInside(boolean inside) { playerInside = inside; }
+}
\ No newline at end of file
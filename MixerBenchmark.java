@@ -0,0 +1,75 @@
+import java.util.Random;
+
+public class MixerBenchmark {
+    // Headless timing of the mixer: blocks rendered through AudioMixer.mix() with the
+    // room reverb off and in each room, with the heartbeat playing on top.
+    // Run with: java MixerBenchmark [voice counts...]
+    private static final int BLOCKS = 20000; // about four minutes of audio
+    private static final int WARMUP_BLOCKS = 5000;
+    private static final int SOUND_SECONDS = 2;
+    private static final String[] ROOMS = {"hall", "classroom", "locker"};
+
+    public static void main(String[] args) {
+        int[] voiceCounts = {4, 16, 32};
+        if (args.length > 0) {
+            voiceCounts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                voiceCounts[i] = Integer.parseInt(args[i]);
+            }
+        }
+        PcmBuffer sound = noise(new Random(1));
+
+        // Let the JIT settle before anything is timed
+        measure(sound, voiceCounts[voiceCounts.length - 1], -1, WARMUP_BLOCKS, false);
+
+        System.out.println(String.format("%8s %10s %14s %14s %16s", "voices", "room", "mix (us)", "reverb (us)", "heartbeat (us)"));
+        for (int voices : voiceCounts) {
+            for (int room = -1; room < ROOMS.length; room++) {
+                measure(sound, voices, room, BLOCKS, true);
+            }
+        }
+    }
+
+    // Room -1 mixes with the reverb off
+    private static void measure(PcmBuffer sound, int voices, int room, int blocks, boolean report) {
+        AudioMixer mixer = new AudioMixer(false);
+        HeartbeatSynth heartbeat = new HeartbeatSynth();
+        mixer.addGenerator(heartbeat);
+        mixer.setReverbEnabled(room >= 0);
+        mixer.setEnvironment(Math.max(0, room));
+
+        // A spread of what the game plays: plain loops, filtered ones and spatial ones
+        for (int i = 0; i < voices; i++) {
+            int id = mixer.play(sound, 1f / voices, true);
+            if (i % 4 == 1) {
+                mixer.setSpatial(id, 1f, 0f);
+            } else if (i % 4 == 2) {
+                mixer.setTone(id, 1200f);
+            }
+        }
+
+        float[] block = new float[AudioMixer.BLOCK_FRAMES * AudioMixer.CHANNELS];
+        long start = System.nanoTime();
+        for (int i = 0; i < blocks; i++) {
+            // The monster walks past the player and back about every half minute
+            int monsterX = 1000 + (int) (1500 * Math.sin(i * 0.002));
+            mixer.setPositions(1000, monsterX);
+            heartbeat.setState(Math.abs(monsterX - 1000), room == AudioMixer.ENVIRONMENT_LOCKER);
+            mixer.mix(block, AudioMixer.BLOCK_FRAMES);
+        }
+        long nanos = System.nanoTime() - start;
+
+        if (!report) return;
+        System.out.println(String.format("%8d %10s %14.3f %14s %16.3f", voices, room < 0 ? "off" : ROOMS[room],
+                nanos / 1e3 / blocks, room < 0 ? "-" : String.format("%.3f", mixer.getReverbMicros()),
+                heartbeat.getAverageRenderMicros()));
+    }
+
+    private static PcmBuffer noise(Random random) {
+        short[] samples = new short[(int) AudioMixer.SAMPLE_RATE * SOUND_SECONDS * AudioMixer.CHANNELS];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) (random.nextGaussian() * 4000);
+        }
+        return new PcmBuffer("noise", samples);
+    }
+}
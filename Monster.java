@@ -0,0 +1,449 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import javax.imageio.ImageIO;
+
+class Monster {
+    private static final int MONSTER_SPEED = 5;
+    private static final int MONSTER_APPEAR_TIME = 180;
+    // Off the live chunk window the route is only advanced every few ticks, in bigger steps
+    private static final int LOW_FIDELITY_INTERVAL = 8;
+    // Coarse state for telemetry
+    static final int STATE_INACTIVE = 0;
+    static final int STATE_HUNTING = 1;
+    static final int STATE_SEARCHING = 2;
+    static final int STATE_STAIRS = 3;
+    
+    private BufferedImage sprite;
+    private int x, y;
+    private boolean active = false;
+    private int monsterTimer = 0;
+    private int monsterStateTimer = 0;
+    private int worldWidth;
+    // When the monster appears and gives up, and its other random choices; seeded per run
+    private final SpawnDirector director = new SpawnDirector();
+    // Ticks spent chasing a visible player this appearance, for the director
+    private int chaseTicks = 0;
+    private int lastKnownPlayerX;
+    private int searchTimer = 0;
+    private int spawnSide;
+    private int pauseTimer = 0;
+    private boolean isPaused = false;
+    private boolean hasReachedLastKnownPosition = false;
+    private int walkAwayDirection;
+    private int currentFloor = 0;
+    private boolean inClassroom = false;
+    private Classroom currentClassroom = null;
+    
+    // CLIMBING SYSTEM
+    private boolean isMovingToStairs = false;
+    private boolean isClimbingStairs = false;
+    private int lastPlayerFloor = 0;
+    
+    public Monster(int startX, int groundHeight, int worldWidth) {
+        try {
+            sprite = ImageIO.read(new File("monster.png"));
+            this.x = startX;
+            this.y = groundHeight - sprite.getHeight();
+            this.worldWidth = worldWidth;
+            this.lastKnownPlayerX = startX;
+            this.lastPlayerFloor = 0;
+        } catch (IOException e) {
+            System.err.println("Error loading monster.png: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    // Back to the inactive state of a fresh run, keeping the loaded sprite
+    public void reset(int startX, int groundHeight) {
+        x = startX;
+        y = groundHeight - sprite.getHeight();
+        active = false;
+        monsterTimer = 0;
+        monsterStateTimer = 0;
+        lastKnownPlayerX = startX;
+        searchTimer = 0;
+        pauseTimer = 0;
+        isPaused = false;
+        hasReachedLastKnownPosition = false;
+        currentFloor = 0;
+        inClassroom = false;
+        currentClassroom = null;
+        isMovingToStairs = false;
+        isClimbingStairs = false;
+        lastPlayerFloor = 0;
+        chaseTicks = 0;
+    }
+    
+    // The monster's pacing for a new run; call after reset()
+    public void seedPacing(long runSeed) {
+        director.seed(runSeed);
+    }
+    
+    // The whole state machine for a save; the classroom is stored by its index on the floor
+    public void saveState(ByteBuffer out, ItemManager itemManager) {
+        out.putInt(x);
+        out.putInt(y);
+        out.put((byte) (active ? 1 : 0));
+        out.putInt(monsterTimer);
+        out.putInt(monsterStateTimer);
+        out.putInt(lastKnownPlayerX);
+        out.putInt(searchTimer);
+        out.putInt(spawnSide);
+        out.putInt(pauseTimer);
+        out.put((byte) (isPaused ? 1 : 0));
+        out.put((byte) (hasReachedLastKnownPosition ? 1 : 0));
+        out.putInt(walkAwayDirection);
+        out.putInt(currentFloor);
+        out.put((byte) (inClassroom ? 1 : 0));
+        out.putInt(itemManager.classroomIndex(currentFloor, currentClassroom));
+        out.put((byte) (isMovingToStairs ? 1 : 0));
+        out.put((byte) (isClimbingStairs ? 1 : 0));
+        out.putInt(lastPlayerFloor);
+        out.putInt(chaseTicks);
+        director.saveState(out);
+    }
+    
+    public void restoreState(ByteBuffer in, ItemManager itemManager) {
+        x = in.getInt();
+        y = in.getInt();
+        active = in.get() != 0;
+        monsterTimer = in.getInt();
+        monsterStateTimer = in.getInt();
+        lastKnownPlayerX = in.getInt();
+        searchTimer = in.getInt();
+        spawnSide = in.getInt();
+        pauseTimer = in.getInt();
+        isPaused = in.get() != 0;
+        hasReachedLastKnownPosition = in.get() != 0;
+        walkAwayDirection = in.getInt();
+        currentFloor = in.getInt();
+        itemManager.loadFloorsBetween(currentFloor, itemManager.getCurrentFloor());
+        inClassroom = in.get() != 0;
+        currentClassroom = itemManager.classroomAt(currentFloor, in.getInt());
+        isMovingToStairs = in.get() != 0;
+        isClimbingStairs = in.get() != 0;
+        lastPlayerFloor = in.getInt();
+        chaseTicks = in.getInt();
+        director.restoreState(in);
+        
+        // A classroom on a floor that was not loaded when saving - put it in the hallway
+        if (inClassroom && currentClassroom == null) {
+            inClassroom = false;
+        }
+    }
+    
+    public void update(int playerX, boolean playerHiding, int screenWidth, int cameraX, int groundHeight, int playerFloor, ItemManager itemManager, boolean playerInClassroom) {
+        monsterTimer++;
+        
+        // Handle climbing stairs (brief visual) - NO DESPAWN DURING CLIMB
+        if (isClimbingStairs) {
+            if (monsterTimer % 30 == 0) {
+                isClimbingStairs = false;
+            }
+            return; // NO DESPAWN CHECKS WHILE CLIMBING
+        }
+        
+        // ROUTING - player is on another floor, in another classroom or behind an obstacle
+        NavGraph nav = itemManager.getNavGraph();
+        NavRegion region = null;
+        if (active && nav != null) {
+            region = nav.regionOf(currentFloor, currentClassroom, x);
+            NavRegion playerRegion = nav.regionOf(playerFloor, itemManager.getActiveClassroom(), playerX);
+            
+            // The floor the monster was on has been unloaded (endless descent) - it is gone
+            if (region == null) {
+                inClassroom = false;
+                currentClassroom = null;
+                isMovingToStairs = false;
+                despawn();
+                return;
+            }
+            
+            if (region != null && playerRegion != null && region != playerRegion) {
+                boolean distant = currentFloor != playerFloor || (!inClassroom && !itemManager.isLive(x));
+                if (!distant) {
+                    followRoute(nav, region, playerRegion, groundHeight, MONSTER_SPEED);
+                } else if (monsterTimer % LOW_FIDELITY_INTERVAL == 0) {
+                    followRoute(nav, region, playerRegion, groundHeight, MONSTER_SPEED * LOW_FIDELITY_INTERVAL);
+                }
+                
+                // Can despawn from classroom if player leaves
+                if (inClassroom && !playerInClassroom && director.tick(SpawnDirector.LEAVE_CLASSROOM)) {
+                    inClassroom = false;
+                    currentClassroom = null;
+                    isMovingToStairs = false;
+                    despawn();
+                }
+                lastPlayerFloor = playerFloor;
+                return; // NO DESPAWN CHECKS WHILE ROUTING
+            }
+            isMovingToStairs = false;
+        }
+        lastPlayerFloor = playerFloor;
+        
+        // CLASSROOM BEHAVIOR - player is in the same classroom
+        if (active && inClassroom) {
+            // If player is hiding in locker, search around the classroom
+            if (playerHiding) {
+                searchTimer++;
+                
+                if (!hasReachedLastKnownPosition) {
+                    // Move to last known player position
+                    int direction = (x > lastKnownPlayerX) ? -1 : 1;
+                    x += direction * MONSTER_SPEED;
+                    
+                    if (Math.abs(x - lastKnownPlayerX) <= MONSTER_SPEED * 2) {
+                        hasReachedLastKnownPosition = true;
+                        pauseTimer = 120 + director.nextInt(120);
+                        walkAwayDirection = director.nextBoolean() ? -1 : 1;
+                    }
+                } else if (pauseTimer > 0) {
+                    pauseTimer--;
+                } else {
+                    // Wander around after searching
+                    x += walkAwayDirection * MONSTER_SPEED;
+                    
+                    // Change direction if hitting classroom walls
+                    if (x <= 0 || x >= 1920 - sprite.getWidth()) {
+                        walkAwayDirection *= -1;
+                    }
+                    
+                    // Despawn chance after wandering
+                    if (searchTimer > 300 && director.tick(SpawnDirector.GIVE_UP)) {
+                        inClassroom = false;
+                        currentClassroom = null;
+                        despawn();
+                    }
+                }
+            } else {
+                // Chase visible player in classroom
+                searchTimer = 0;
+                hasReachedLastKnownPosition = false;
+                chaseTicks++;
+                
+                int direction = (x > playerX) ? -1 : 1;
+                x += direction * MONSTER_SPEED;
+                
+                lastKnownPlayerX = playerX; // Update last known position
+            }
+            
+            // Keep monster in classroom bounds
+            x = Math.max(0, Math.min(x, 1920 - sprite.getWidth()));
+            return;
+        }
+        
+        // NORMAL SPAWNING LOGIC (only in main world)
+        if (!active && !inClassroom) {
+            if (!playerHiding && !playerInClassroom && monsterTimer > 180 && director.tick(SpawnDirector.SPAWN)) {
+                active = true;
+                monsterStateTimer = 0;
+                searchTimer = 0;
+                isPaused = false;
+                pauseTimer = 0;
+                hasReachedLastKnownPosition = false;
+                
+                // SPAWN ON RANDOM FLOOR (can be different from player)
+                currentFloor = itemManager.pickMonsterFloor(director);
+                lastPlayerFloor = playerFloor;
+                
+                spawnSide = director.nextInt(2);
+                int minSpawnDistance = 800;
+                int spawnBuffer = 200;
+                
+                if (spawnSide == 0) {
+                    x = playerX - minSpawnDistance - director.nextInt(spawnBuffer);
+                } else {
+                    x = playerX + minSpawnDistance + director.nextInt(spawnBuffer);
+                }
+                
+                x = Math.max(0, Math.min(x, worldWidth - sprite.getWidth()));
+                
+                // Never spawn inside an obstacle
+                if (nav != null) {
+                    x = nav.clampToRegion(nav.regionOf(currentFloor, null, x), x);
+                }
+                
+                if (Math.abs(x - playerX) < 600) {
+                    despawn();
+                    return;
+                }
+            }
+        } else if (active && !inClassroom && currentFloor == playerFloor) {
+            monsterStateTimer++;
+            
+            int leftEdge = cameraX;
+            int rightEdge = cameraX + screenWidth;
+            
+            if (playerHiding || playerInClassroom) {
+                searchTimer++;
+                
+                if (!hasReachedLastKnownPosition) {
+                    int target = (nav != null) ? nav.clampToRegion(region, lastKnownPlayerX) : lastKnownPlayerX;
+                    int direction = (x > target) ? -1 : 1;
+                    x += direction * MONSTER_SPEED;
+                    
+                    if (Math.abs(x - target) <= MONSTER_SPEED * 2) {
+                        hasReachedLastKnownPosition = true;
+                        pauseTimer = 120 + director.nextInt(120);
+                        walkAwayDirection = director.nextBoolean() ? -1 : 1;
+                    }
+                } else if (pauseTimer > 0) {
+                    pauseTimer--;
+                } else {
+                    x += walkAwayDirection * MONSTER_SPEED;
+                    
+                    // Turn around at obstacles and the ends of the hallway
+                    if (nav != null && nav.clampToRegion(region, x) != x) {
+                        walkAwayDirection *= -1;
+                    }
+                    
+                    // DESPAWN ONLY WHEN: off-screen + lost player + not climbing
+                    boolean isWayOffScreen = (x + sprite.getWidth() < leftEdge - 500) || (x > rightEdge + 500);
+                    if (isWayOffScreen) {
+                        x = -2000;
+                        despawn();
+                        hasReachedLastKnownPosition = false;
+                    } else if (searchTimer > 300 && director.tick(SpawnDirector.GIVE_UP)) {
+                        // Boxed in by obstacles - give up the search
+                        x = -2000;
+                        despawn();
+                        hasReachedLastKnownPosition = false;
+                    }
+                }
+            } else {
+                // CHASE PLAYER
+                searchTimer = 0;
+                isPaused = false;
+                hasReachedLastKnownPosition = false;
+                chaseTicks++;
+                
+                int direction = (x > playerX) ? -1 : 1;
+                x += direction * MONSTER_SPEED;
+                
+                // DESPAWN CHECKS - ONLY WHEN NOT CLIMBING AND ON SAME FLOOR
+                boolean isWayOffScreen = (x + sprite.getWidth() < leftEdge - 500) || (x > rightEdge + 500);
+                
+                if (monsterStateTimer > MONSTER_APPEAR_TIME && isWayOffScreen && director.tick(SpawnDirector.LOSE_INTEREST)) {
+                    x = -2000;
+                    despawn();
+                } else if (monsterStateTimer > 240 && isWayOffScreen && Math.abs(x - playerX) > 1200) {
+                    x = -2000;
+                    despawn();
+                }
+            }
+            
+            // Obstacles block the monster just like the player
+            if (active && nav != null) {
+                x = nav.clampToRegion(region, x);
+            }
+        }
+        
+        // UPDATE LAST KNOWN POSITION
+        if (!playerHiding && !playerInClassroom && currentFloor == playerFloor) {
+            lastKnownPlayerX = playerX;
+        }
+    }
+    
+    // Gone until the director brings it back
+    private void despawn() {
+        active = false;
+        monsterTimer = 0;
+        director.monsterLeft(chaseTicks);
+        chaseTicks = 0;
+    }
+    
+    // Walks toward the next portal on the route and passes through it on arrival
+    private void followRoute(NavGraph nav, NavRegion region, NavRegion playerRegion, int groundHeight, int speed) {
+        NavWaypoint waypoint = nav.route(region, x, playerRegion);
+        if (waypoint == null) {
+            // No way through from here - wait for the player to come back
+            isMovingToStairs = false;
+            return;
+        }
+        
+        isMovingToStairs = waypoint.isStairs();
+        if (Math.abs(x - waypoint.x) > speed) {
+            int direction = (x > waypoint.x) ? -1 : 1;
+            x += direction * speed;
+            return;
+        }
+        
+        if (waypoint.isStairs()) {
+            x = waypoint.x;
+            currentFloor = waypoint.linkFloor; // Change floor immediately
+            isMovingToStairs = false;
+            isClimbingStairs = true;
+        } else if (waypoint.partner.region.isClassroom()) {
+            inClassroom = true;
+            currentClassroom = waypoint.partner.region.classroom;
+            x = waypoint.partner.x;
+            y = currentClassroom.getClassroomGroundY() - sprite.getHeight();
+        } else {
+            inClassroom = false;
+            currentClassroom = null;
+            x = waypoint.partner.x;
+            y = groundHeight - sprite.getHeight();
+        }
+        
+        // New region - the search starts over from where the monster came in
+        lastKnownPlayerX = x;
+        hasReachedLastKnownPosition = false;
+        searchTimer = 0;
+    }
+    
+public void draw(Graphics g, int cameraX, int screenWidth, int currentPlayerFloor, ItemManager itemManager) {
+    // DRAW MONSTER IN CLASSROOM
+    if (active && inClassroom && currentClassroom != null) {
+        // Draw monster in classroom - full screen positioning
+        g.drawImage(sprite, x, y, null);
+        
+        if (isMovingToStairs) {
+            g.setColor(Color.ORANGE);
+            g.setFont(new Font("Arial", Font.BOLD, 12));
+            g.drawString("MOVING TO STAIRS", x, y - 10);
+        } else if (isClimbingStairs) {
+            g.setColor(Color.RED);
+            g.setFont(new Font("Arial", Font.BOLD, 12));
+            g.drawString("CLIMBING", x, y - 10);
+        }
+    }
+    // DRAW MONSTER IN MAIN WORLD
+    else if (active && !inClassroom && currentFloor == currentPlayerFloor) {
+        int drawX = x - cameraX;
+        if (drawX > -sprite.getWidth() && drawX < screenWidth) {
+            g.drawImage(sprite, drawX, y, null);
+            
+            if (isMovingToStairs) {
+                g.setColor(Color.ORANGE);
+                g.setFont(new Font("Arial", Font.BOLD, 12));
+                g.drawString("MOVING TO STAIRS", drawX, y - 10);
+            } else if (isClimbingStairs) {
+                g.setColor(Color.RED);
+                g.setFont(new Font("Arial", Font.BOLD, 12));
+                g.drawString("CLIMBING", drawX, y - 10);
+            }
+        }
+    }
+}
+    
+    public Rectangle getBounds() {
+        return new Rectangle(x, y, sprite.getWidth(), sprite.getHeight());
+    }
+    
+    // Getters
+    public boolean isActive() { return active; }
+    public int getStateCode() {
+        if (!active) return STATE_INACTIVE;
+        if (isClimbingStairs || isMovingToStairs) return STATE_STAIRS;
+        return searchTimer > 0 ? STATE_SEARCHING : STATE_HUNTING;
+    }
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public int getCurrentFloor() { return currentFloor; }
+    public boolean isClimbingStairs() { return isClimbingStairs || isMovingToStairs; }
+    public boolean isInClassroom() { return inClassroom; }
+    public boolean isInClassroom(Classroom classroom) { return inClassroom && currentClassroom == classroom; }
+}
\ No newline at end of file
@@ -0,0 +1,141 @@
+public class MusicDirector {
+    // Layered music in place of switching between the ambience and the chase loop. Three
+    // stems play all the time: the ambience, a tension stem and the full chase. The game
+    // only has the one chase loop, so the tension stem is a second voice on the chase
+    // stream - which keeps it sample-aligned - low-passed to a dull pulse; moving from
+    // tension to chase opens it up without the music restarting.
+    //
+    // The monster's state and distance pick an intensity level, and each level is a gain
+    // per stem. Changes are ramps the mixer starts on the music's own grid: rising
+    // intensity comes in on the next beat, so a chase is never late by more than a beat;
+    // falling intensity waits for the next bar and fades over a bar. The stems stream from
+    // disk, and a change is only a few queued commands.
+    public static final int CALM = 0;    // no monster
+    public static final int UNEASE = 1;  // out, but on another floor or the stairs
+    public static final int TENSION = 2; // on this floor
+    public static final int DREAD = 3;   // on this floor and getting close
+    public static final int CHASE = 4;   // near enough to chase
+
+    // The chase loop is ten bars of 4/4 at about 127 BPM
+    private static final int BARS_PER_LOOP = 10;
+    private static final int BEATS_PER_BAR = 4;
+    // Stem gains per level
+    private static final float[] AMBIENCE_GAIN = {0.4f, 0.35f, 0.25f, 0.15f, 0f};
+    private static final float[] TENSION_GAIN = {0f, 0.2f, 0.35f, 0.5f, 0f};
+    private static final float[] CHASE_GAIN = {0f, 0f, 0f, 0f, 0.6f};
+    private static final float TENSION_CUTOFF = 700f;
+    // Within this distance the monster is close enough for DREAD; leaving takes a little
+    // more, so standing on the edge does not flip the music back and forth
+    private static final int DREAD_DISTANCE = 900;
+    private static final int DREAD_HYSTERESIS = 100;
+    private static final float START_FADE = 1.5f;
+    private static final float STOP_FADE = 0.4f;
+
+    private final AudioMixer mixer;
+    private final PcmStream ambience;
+    private final PcmStream chase;
+    private final float barFrames;
+    private final float beatFrames;
+    private int ambienceVoice = 0;
+    private int tensionVoice = 0;
+    private int chaseVoice = 0;
+    private int level = CALM;
+
+    public MusicDirector(AudioMixer mixer, PcmStream ambience, PcmStream chase) {
+        this.mixer = mixer;
+        this.ambience = ambience;
+        this.chase = chase;
+        barFrames = chase != null ? chase.frames / (float) BARS_PER_LOOP : 0f;
+        beatFrames = barFrames / BEATS_PER_BAR;
+    }
+
+    // Starts any stems that are not playing, at the calm level
+    public void start() {
+        calm();
+        if (ambienceVoice == 0) {
+            ambienceVoice = mixer.fadeIn(ambience, AMBIENCE_GAIN[CALM], START_FADE);
+        }
+        if (chaseVoice == 0 && chase != null) {
+            chaseVoice = mixer.play(chase, 0f);
+            // The chase leans towards the monster but never drops below half volume
+            mixer.setSpatial(chaseVoice, 0.4f, 0.5f);
+            tensionVoice = mixer.play(chase, 0f);
+            mixer.setTone(tensionVoice, TENSION_CUTOFF);
+        }
+    }
+
+    // Fades every stem out and releases them
+    public void stop() {
+        mixer.fadeOut(ambienceVoice, STOP_FADE);
+        mixer.fadeOut(tensionVoice, STOP_FADE);
+        mixer.fadeOut(chaseVoice, STOP_FADE);
+        ambienceVoice = 0;
+        tensionVoice = 0;
+        chaseVoice = 0;
+        level = CALM;
+    }
+
+    // Cuts every stem at once, for the jumpscare
+    public void cut() {
+        mixer.stop(ambienceVoice);
+        mixer.stop(tensionVoice);
+        mixer.stop(chaseVoice);
+        ambienceVoice = 0;
+        tensionVoice = 0;
+        chaseVoice = 0;
+        level = CALM;
+    }
+
+    // Back to calm straight away instead of on the grid, for a new run
+    public void calm() {
+        if (level == CALM) return;
+        level = CALM;
+        mixer.ramp(ambienceVoice, AMBIENCE_GAIN[CALM], STOP_FADE, true, 0f);
+        mixer.ramp(tensionVoice, TENSION_GAIN[CALM], STOP_FADE, true, 0f);
+        mixer.ramp(chaseVoice, CHASE_GAIN[CALM], STOP_FADE, true, 0f);
+    }
+
+    // Once per tick. monsterState is one of Monster's STATE_ codes; distance is how far
+    // the monster is from the player, or -1 when it is on another floor.
+    public void update(int monsterState, boolean monsterIsNear, int distance) {
+        if (chaseVoice == 0) return;
+
+        int target;
+        if (monsterState == Monster.STATE_INACTIVE) {
+            target = CALM;
+        } else if (monsterIsNear) {
+            target = CHASE;
+        } else if (distance < 0 || monsterState == Monster.STATE_STAIRS) {
+            target = UNEASE;
+        } else {
+            int dreadDistance = level >= DREAD ? DREAD_DISTANCE + DREAD_HYSTERESIS : DREAD_DISTANCE;
+            // A monster that has lost the player is tense, not dreadful
+            target = distance < dreadDistance && monsterState != Monster.STATE_SEARCHING ? DREAD : TENSION;
+        }
+        if (target != level) {
+            setLevel(target);
+        }
+    }
+
+    private void setLevel(int target) {
+        boolean rising = target > level;
+        level = target;
+        float grid = rising ? beatFrames : barFrames;
+        float seconds = grid / AudioMixer.SAMPLE_RATE;
+        mixer.rampOnGrid(ambienceVoice, AMBIENCE_GAIN[level], seconds, true, chaseVoice, grid);
+        mixer.rampOnGrid(tensionVoice, TENSION_GAIN[level], seconds, true, chaseVoice, grid);
+        mixer.rampOnGrid(chaseVoice, CHASE_GAIN[level], seconds, true, chaseVoice, grid);
+    }
+
+    public int getLevel() { return level; }
+
+    public int getAmbienceVoice() { return ambienceVoice; }
+
+    public float getAmbienceGain() { return AMBIENCE_GAIN[level]; }
+
+    // Closes the streams; only once the mixer has been shut down
+    public void close() {
+        if (ambience != null) ambience.close();
+        if (chase != null) chase.close();
+    }
+}
@@ -0,0 +1,466 @@
+import java.awt.Rectangle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+public class NavGraph {
+    // Walk costs for passing through a portal, in pixels of equivalent walking
+    static final int DOOR_COST = 60;
+    static final int UNREACHABLE = Integer.MAX_VALUE / 4;
+
+    // Regions are hallway segments between obstacles and classroom interiors. Waypoints
+    // are the two sides of every portal (classroom doors and staircases). Each floor keeps
+    // an all-pairs distance table over its waypoints, built once when the floor is added.
+    // Across floors only the staircases are joined up: a table of the shortest walks
+    // between every pair of loaded staircases, redone on the first route() after floors
+    // are added or removed. A walk between any two waypoints is a floor table at each end
+    // with at most one staircase-to-staircase walk in between.
+    //
+    // On top of those, a next-hop table says which portal to take next. It is filled in
+    // one target region at a time, the first time a route to that region is asked for,
+    // so a floor load or evict never redoes the whole building's routes at once.
+    //
+    // Which portal is best can depend on where in its region the agent stands, so an
+    // entry in the table is the exits worth taking, sorted by x, with the positions at
+    // which one takes over from the next. A lookup is a binary search over those few.
+    private HashMap<Integer, NavFloor> floors = new HashMap<>();
+    private ArrayList<NavRegion> regions = new ArrayList<>();
+    private ArrayList<NavWaypoint> stairs = new ArrayList<>();
+    private int[][] stairsDist = new int[0][0];
+    private int waypointCount = 0;
+    // hops[target][from], with a target's column left null until it is first needed
+    private NavHop[][] hops = new NavHop[0][];
+    private boolean linksDirty = true;
+    private int worldWidth;
+    private int agentWidth;
+    private int classroomWidth;
+
+    public NavGraph(int worldWidth, int agentWidth, int classroomWidth) {
+        this.worldWidth = worldWidth;
+        this.agentWidth = agentWidth;
+        this.classroomWidth = classroomWidth;
+    }
+
+    public void addFloor(int floor, ArrayList<Obstacle> obstacles, ArrayList<Classroom> classrooms,
+                         int stairsUpX, int upFloor, int stairsDownX, int downFloor) {
+        NavFloor navFloor = new NavFloor(floor);
+
+        // Split the hallway into walkable segments between obstacles
+        ArrayList<Obstacle> sortedObstacles = new ArrayList<>(obstacles);
+        sortedObstacles.sort((a, b) -> Integer.compare(a.getX(), b.getX()));
+        int segmentStart = 0;
+        for (Obstacle obstacle : sortedObstacles) {
+            Rectangle bounds = obstacle.getBounds();
+            if (bounds.x > segmentStart) {
+                navFloor.addRegion(new NavRegion(floor, null, segmentStart, bounds.x));
+            }
+            segmentStart = Math.max(segmentStart, bounds.x + bounds.width);
+        }
+        navFloor.addRegion(new NavRegion(floor, null, segmentStart, worldWidth));
+
+        for (Classroom classroom : classrooms) {
+            NavRegion interior = new NavRegion(floor, classroom, 0, classroomWidth);
+            navFloor.addRegion(interior);
+
+            Rectangle entrance = classroom.getEntranceBounds();
+            Rectangle exit = classroom.getExitBounds();
+            Rectangle classroomEntrance = classroom.getClassroomEntranceBounds();
+            Rectangle classroomExit = classroom.getClassroomExitBounds();
+
+            linkDoor(navFloor, entrance.x + 20, interior, classroomEntrance.x);
+            linkDoor(navFloor, exit.x + 20, interior, classroomExit.x - agentWidth);
+        }
+
+        if (stairsUpX >= 0) {
+            navFloor.addStairs(clampStairsX(stairsUpX), upFloor);
+        }
+        if (stairsDownX >= 0) {
+            navFloor.addStairs(clampStairsX(stairsDownX), downFloor);
+        }
+
+        navFloor.computeDistances();
+        floors.put(floor, navFloor);
+        linksDirty = true;
+    }
+
+    public void removeFloor(int floor) {
+        if (floors.remove(floor) != null) {
+            linksDirty = true;
+        }
+    }
+
+    private void linkDoor(NavFloor navFloor, int hallwayX, NavRegion interior, int interiorX) {
+        NavRegion hallway = navFloor.hallwayAt(hallwayX);
+        NavWaypoint outside = navFloor.addWaypoint(new NavWaypoint(hallway, hallwayX));
+        NavWaypoint inside = navFloor.addWaypoint(new NavWaypoint(interior, interiorX));
+        outside.partner = inside;
+        inside.partner = outside;
+    }
+
+    private int clampStairsX(int stairsX) {
+        return Math.max(0, Math.min(stairsX, worldWidth - agentWidth));
+    }
+
+    public NavRegion regionOf(int floor, Classroom classroom, int x) {
+        NavFloor navFloor = floors.get(floor);
+        if (navFloor == null) return null;
+
+        if (classroom != null) {
+            return navFloor.interiorOf(classroom);
+        }
+        return navFloor.hallwayAt(x);
+    }
+
+    // Returns the portal the agent at x should walk to next, or null when it is already in
+    // the target region (walk straight at the target) or there is no way to get there.
+    // The agent always passes through the returned portal once it reaches it.
+    public NavWaypoint route(NavRegion from, int x, NavRegion to) {
+        if (from == null || to == null || from == to) return null;
+        if (linksDirty) {
+            linkFloors();
+        }
+        if (from.id < 0 || to.id < 0) return null;
+
+        if (hops[to.id] == null) {
+            hops[to.id] = buildHopsTo(to);
+        }
+        NavHop hop = hops[to.id][from.id];
+        return hop != null ? hop.exitAt(x) : null;
+    }
+
+    // Numbers the loaded regions and waypoints, points every portal at where it comes out
+    // and finds the shortest walks between the loaded staircases. The floors' own tables
+    // are kept as they are, so this only costs a table over the staircases.
+    private void linkFloors() {
+        linksDirty = false;
+        for (NavRegion region : regions) {
+            region.id = -1;
+        }
+        regions.clear();
+        stairs.clear();
+        waypointCount = 0;
+        for (NavFloor navFloor : floors.values()) {
+            for (NavRegion region : navFloor.getRegions()) {
+                region.id = regions.size();
+                regions.add(region);
+            }
+            for (NavWaypoint waypoint : navFloor.getWaypoints()) {
+                waypoint.id = waypointCount++;
+                waypoint.arrival = waypoint.isStairs() ? arrivalOf(waypoint) : waypoint.partner;
+            }
+            for (NavWaypoint waypoint : navFloor.getStairs()) {
+                waypoint.stairsId = stairs.size();
+                stairs.add(waypoint);
+            }
+        }
+
+        // Walks within a floor come from its own table; taking the stairs joins the floors
+        int n = stairs.size();
+        stairsDist = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            NavWaypoint a = stairs.get(i);
+            NavFloor navFloor = floors.get(a.region.floor);
+            for (int j = 0; j < n; j++) {
+                NavWaypoint b = stairs.get(j);
+                stairsDist[i][j] = (a.region.floor == b.region.floor) ? navFloor.distance(a, b) : UNREACHABLE;
+            }
+        }
+        for (NavWaypoint waypoint : stairs) {
+            if (waypoint.arrival != null) {
+                int[] row = stairsDist[waypoint.stairsId];
+                row[waypoint.arrival.stairsId] = Math.min(row[waypoint.arrival.stairsId], crossingCost(waypoint));
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            int[] viaK = stairsDist[k];
+            for (int i = 0; i < n; i++) {
+                int toK = stairsDist[i][k];
+                if (toK >= UNREACHABLE) continue;
+                int[] row = stairsDist[i];
+                for (int j = 0; j < n; j++) {
+                    int candidate = toK + viaK[j];
+                    if (candidate < row[j]) {
+                        row[j] = candidate;
+                    }
+                }
+            }
+        }
+
+        hops = new NavHop[regions.size()][];
+    }
+
+    // The exits worth taking from every loaded region toward one target. From a waypoint
+    // the cheapest way in is either a walk on the target's own floor or a walk to one of
+    // its floor's staircases and on from there.
+    private NavHop[] buildHopsTo(NavRegion target) {
+        NavFloor targetFloor = floors.get(target.floor);
+
+        // Cost from each staircase into the target, through the target floor's staircases
+        int[] stairsToTarget = new int[stairs.size()];
+        Arrays.fill(stairsToTarget, UNREACHABLE);
+        for (NavWaypoint arrival : targetFloor.getStairs()) {
+            int into = targetFloor.distanceInto(arrival, target);
+            if (into >= UNREACHABLE) continue;
+            for (int i = 0; i < stairs.size(); i++) {
+                stairsToTarget[i] = Math.min(stairsToTarget[i], stairsDist[i][arrival.stairsId] + into);
+            }
+        }
+
+        int[] toTarget = new int[waypointCount];
+        for (NavFloor navFloor : floors.values()) {
+            for (NavWaypoint waypoint : navFloor.getWaypoints()) {
+                int best = (navFloor == targetFloor) ? navFloor.distanceInto(waypoint, target) : UNREACHABLE;
+                for (NavWaypoint staircase : navFloor.getStairs()) {
+                    best = Math.min(best, navFloor.distance(waypoint, staircase) + stairsToTarget[staircase.stairsId]);
+                }
+                toTarget[waypoint.id] = best;
+            }
+        }
+
+        NavHop[] column = new NavHop[regions.size()];
+        for (NavRegion from : regions) {
+            if (from != target) {
+                column[from.id] = NavHop.build(from, toTarget);
+            }
+        }
+        return column;
+    }
+
+    // Where a staircase comes out: the linked floor's staircase back, if that floor is loaded
+    private NavWaypoint arrivalOf(NavWaypoint stairs) {
+        NavFloor linked = floors.get(stairs.linkFloor);
+        if (linked == null) return null;
+        NavWaypoint best = null;
+        for (NavWaypoint waypoint : linked.getWaypoints()) {
+            if (waypoint.linkFloor == stairs.region.floor
+                && (best == null || Math.abs(waypoint.x - stairs.x) < Math.abs(best.x - stairs.x))) {
+                best = waypoint;
+            }
+        }
+        return best;
+    }
+
+    // Cost of passing through a portal, including any offset between a staircase's ends
+    static int crossingCost(NavWaypoint exit) {
+        if (exit.arrival == null) return UNREACHABLE;
+        return exit.isStairs() ? DOOR_COST + Math.abs(exit.x - exit.arrival.x) : DOOR_COST;
+    }
+
+    // Every region an agent can get to from start through doors and stairs
+    public HashSet<NavRegion> reachableFrom(NavRegion start) {
+        HashSet<NavRegion> seen = new HashSet<>();
+        if (start == null) return seen;
+
+        ArrayDeque<NavRegion> queue = new ArrayDeque<>();
+        seen.add(start);
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            NavRegion region = queue.poll();
+            for (NavWaypoint exit : region.exits) {
+                // Stairs arrive at the same x on the linked floor
+                NavRegion next = exit.isStairs() ? regionOf(exit.linkFloor, null, exit.x) : exit.partner.region;
+                if (next != null && seen.add(next)) {
+                    queue.add(next);
+                }
+            }
+        }
+        return seen;
+    }
+
+    // Keeps an agent inside the walkable span of its region
+    public int clampToRegion(NavRegion region, int x) {
+        if (region == null) return x;
+        int maxX = Math.max(region.minX, region.maxX - agentWidth);
+        return Math.max(region.minX, Math.min(x, maxX));
+    }
+}
+
+class NavFloor {
+    final int floor;
+    private ArrayList<NavRegion> regions = new ArrayList<>();
+    private ArrayList<NavWaypoint> waypoints = new ArrayList<>();
+    private ArrayList<NavWaypoint> stairs = new ArrayList<>();
+    private int[][] dist = new int[0][0];
+
+    NavFloor(int floor) {
+        this.floor = floor;
+    }
+
+    void addRegion(NavRegion region) {
+        regions.add(region);
+    }
+
+    NavWaypoint addWaypoint(NavWaypoint waypoint) {
+        waypoint.index = waypoints.size();
+        waypoints.add(waypoint);
+        waypoint.region.exits.add(waypoint);
+        return waypoint;
+    }
+
+    void addStairs(int x, int linkFloor) {
+        NavWaypoint waypoint = addWaypoint(new NavWaypoint(hallwayAt(x), x));
+        waypoint.linkFloor = linkFloor;
+        stairs.add(waypoint);
+    }
+
+    NavRegion hallwayAt(int x) {
+        NavRegion nearest = null;
+        int nearestGap = Integer.MAX_VALUE;
+        for (NavRegion region : regions) {
+            if (region.classroom != null) continue;
+            if (x >= region.minX && x < region.maxX) return region;
+
+            int gap = (x < region.minX) ? region.minX - x : x - region.maxX + 1;
+            if (gap < nearestGap) {
+                nearestGap = gap;
+                nearest = region;
+            }
+        }
+        return nearest;
+    }
+
+    NavRegion interiorOf(Classroom classroom) {
+        for (NavRegion region : regions) {
+            if (region.classroom == classroom) return region;
+        }
+        return null;
+    }
+
+    ArrayList<NavRegion> getRegions() { return regions; }
+
+    ArrayList<NavWaypoint> getWaypoints() { return waypoints; }
+
+    ArrayList<NavWaypoint> getStairs() { return stairs; }
+
+    int distance(NavWaypoint from, NavWaypoint to) {
+        return dist[from.index][to.index];
+    }
+
+    // Cheapest walk on this floor from a waypoint to stepping into one of its regions
+    int distanceInto(NavWaypoint from, NavRegion region) {
+        int best = NavGraph.UNREACHABLE;
+        for (NavWaypoint entry : region.exits) {
+            best = Math.min(best, distance(from, entry));
+        }
+        return best;
+    }
+
+    // Floyd-Warshall over the waypoints of this floor - a floor only has a handful of
+    // portals, so this stays cheap and runs once per floor after generation
+    void computeDistances() {
+        int n = waypoints.size();
+        dist = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            NavWaypoint a = waypoints.get(i);
+            for (int j = 0; j < n; j++) {
+                NavWaypoint b = waypoints.get(j);
+                if (i == j) {
+                    dist[i][j] = 0;
+                } else if (a.region == b.region) {
+                    dist[i][j] = Math.abs(a.x - b.x);
+                } else if (a.partner == b) {
+                    dist[i][j] = NavGraph.DOOR_COST;
+                } else {
+                    dist[i][j] = NavGraph.UNREACHABLE;
+                }
+            }
+        }
+
+        for (int k = 0; k < n; k++) {
+            int[] viaK = dist[k];
+            for (int i = 0; i < n; i++) {
+                int toK = dist[i][k];
+                if (toK >= NavGraph.UNREACHABLE) continue;
+                int[] row = dist[i];
+                for (int j = 0; j < n; j++) {
+                    int candidate = toK + viaK[j];
+                    if (candidate < row[j]) {
+                        row[j] = candidate;
+                    }
+                }
+            }
+        }
+    }
+}
+
+class NavHop {
+    // The exits of one region worth taking toward one target region, sorted by x. Exit i
+    // is the best for an agent standing before splits[i], exit i + 1 from there on.
+    private final NavWaypoint[] exits;
+    private final int[] splits;
+
+    private NavHop(NavWaypoint[] exits, int[] splits) {
+        this.exits = exits;
+        this.splits = splits;
+    }
+
+    NavWaypoint exitAt(int x) {
+        int low = 0, high = splits.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (x < splits[mid]) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return exits[low];
+    }
+
+    // Total cost through exit e from x is |x - e.x| + cost(e). An exit another one beats
+    // from every x is dropped; of the rest, left to right, each takes over from the one
+    // before halfway between them, shifted by the difference in their costs.
+    // toTarget is the cost from each waypoint into the target; null if it cannot be reached.
+    static NavHop build(NavRegion from, int[] toTarget) {
+        int count = from.exits.size();
+        NavWaypoint[] candidates = new NavWaypoint[count];
+        long[] costs = new long[count];
+        int n = 0;
+        for (NavWaypoint exit : from.exits) {
+            if (exit.arrival == null) continue;
+            long cost = (long) NavGraph.crossingCost(exit) + toTarget[exit.arrival.id];
+            if (cost >= NavGraph.UNREACHABLE) continue;
+            candidates[n] = exit;
+            costs[n++] = cost;
+        }
+        if (n == 0) return null;
+
+        // Sort by x (a region has a handful of exits)
+        for (int i = 1; i < n; i++) {
+            for (int j = i; j > 0 && candidates[j].x < candidates[j - 1].x; j--) {
+                NavWaypoint exit = candidates[j];
+                candidates[j] = candidates[j - 1];
+                candidates[j - 1] = exit;
+                long cost = costs[j];
+                costs[j] = costs[j - 1];
+                costs[j - 1] = cost;
+            }
+        }
+
+        NavWaypoint[] kept = new NavWaypoint[n];
+        long[] keptCosts = new long[n];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            boolean beaten = false;
+            for (int j = 0; j < n && !beaten; j++) {
+                long through = costs[j] + Math.abs(candidates[i].x - candidates[j].x);
+                // Ties go to the leftmost exit, so equal exits keep only one
+                beaten = j != i && (through < costs[i] || (through == costs[i] && j < i));
+            }
+            if (!beaten) {
+                kept[k] = candidates[i];
+                keptCosts[k++] = costs[i];
+            }
+        }
+
+        int[] splits = new int[k - 1];
+        for (int i = 0; i < k - 1; i++) {
+            splits[i] = (int) Math.floorDiv(kept[i].x + kept[i + 1].x + keptCosts[i + 1] - keptCosts[i] + 1, 2L);
+        }
+        NavWaypoint[] exits = new NavWaypoint[k];
+        System.arraycopy(kept, 0, exits, 0, k);
+        return new NavHop(exits, splits);
+    }
+}
@@ -0,0 +1,19 @@
+import java.util.ArrayList;
+
+class NavRegion {
+    final int floor;
+    final Classroom classroom;
+    final int minX, maxX;
+    final ArrayList<NavWaypoint> exits = new ArrayList<>();
+    // Index in the next-hop table, -1 while not in it
+    int id = -1;
+
+    NavRegion(int floor, Classroom classroom, int minX, int maxX) {
+        this.floor = floor;
+        this.classroom = classroom;
+        this.minX = minX;
+        this.maxX = maxX;
+    }
+
+    public boolean isClassroom() { return classroom != null; }
+}
@@ -0,0 +1,23 @@
+class NavWaypoint {
+    final NavRegion region;
+    final int x;
+    // Other side of a classroom door, or null for stairs
+    NavWaypoint partner;
+    // Floor a staircase leads to, or -1 for doors
+    int linkFloor = -1;
+    // Where passing through comes out: the partner, or the linked floor's staircase
+    // (null while that floor is not loaded)
+    NavWaypoint arrival;
+    // Index on its floor, and in the next-hop table
+    int index;
+    int id;
+    // Index in the table of walks between staircases, for stairs only
+    int stairsId = -1;
+
+    NavWaypoint(NavRegion region, int x) {
+        this.region = region;
+        this.x = x;
+    }
+
+    public boolean isStairs() { return linkFloor >= 0; }
+}
@@ -0,0 +1,21 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+class Obstacle {
+    private BufferedImage sprite;
+    private int x, y;
+    
+    public Obstacle(BufferedImage sprite, int x, int y) {
+        this.sprite = sprite;
+        this.x = x;
+        this.y = y;
+    }
+    
+    public Rectangle getBounds() {
+        return new Rectangle(x, y, sprite.getWidth(), sprite.getHeight());
+    }
+    
+    public BufferedImage getSprite() { return sprite; }
+    public int getX() { return x; }
+    public int getY() { return y; }
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+class PcmBuffer {
+    // A whole sound decoded into the mixer's format, shared by every voice playing it, or
+    // the ring buffer of a stream
+    final String name;
+    final short[] samples;
+    final int frames;
+    // The stream filling this buffer if it is a stream's ring, otherwise null
+    final PcmStream stream;
+
+    PcmBuffer(String name, short[] samples) {
+        this(name, samples, null);
+    }
+
+    PcmBuffer(String name, short[] samples, PcmStream stream) {
+        this.name = name;
+        this.samples = samples;
+        this.frames = samples.length / AudioMixer.CHANNELS;
+        this.stream = stream;
+    }
+}
@@ -0,0 +1,183 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class PcmStream {
+    // A looping music track played straight from its WAV file instead of being decoded
+    // into memory. The mixer thread reads the file a chunk at a time, converts it to the
+    // mixer's format the same way SoundLoader does (resampling through the same sinc
+    // filter), and writes it into a small ring buffer just ahead of the voices playing
+    // it; the ring is a PcmBuffer that voices loop over like any other. Resident memory
+    // is the ring and one read chunk, however long the track is.
+    //
+    // A stream has one playhead: every voice on it plays the same frames, so several
+    // voices (the music's stems) stay in step for free. The playhead only moves while a
+    // voice is playing the stream.
+    private static final int RING_FRAMES = 16384; // about 370ms
+    private static final int READ_FRAMES = 4096;
+    // How far past the current block a refill reaches, so the file is read in batches
+    private static final int FILL_AHEAD = 4096;
+
+    final String name;
+    final PcmBuffer ring;
+    // Length of one pass of the track, in mixer frames
+    final int frames;
+
+    private final FileChannel channel;
+    private final WavFormat format;
+    private final Resampler resampler; // null when the file is already at the mixer's rate
+    // Source frames the resampler needs before and after the one it is centred on
+    private final int before, after;
+
+    // Frames (in mixer frames, counted since the stream opened) consumed, and written
+    private long readFrame = 0;
+    private long filledTo = 0;
+    // The block that last used the stream, which is consumed when the next one starts
+    private long preparedAt = -1;
+    private int preparedFrames = 0;
+    private double sourcePosition = 0;
+
+    // Source frames chunkStart onwards as stereo floats; frames past the end of the
+    // track are its start again, and frames before the start its end
+    private final ByteBuffer bytes;
+    private final float[] chunk;
+    private final float[] frame = new float[2];
+    private long chunkStart = 0;
+    private int chunkFrames = 0;
+    private boolean failed = false;
+
+    public PcmStream(String filename) throws IOException {
+        name = filename;
+        channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        try {
+            format = SoundLoader.readHeader(channel, filename);
+            if (format == null) {
+                throw new IOException("Cannot stream " + filename + ": not a WAV file");
+            }
+            if (format.frames < Resampler.TAPS) {
+                throw new IOException("Cannot stream " + filename + ": too short");
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        int mixerRate = (int) AudioMixer.SAMPLE_RATE;
+        resampler = format.rate != mixerRate ? new Resampler(format.rate, mixerRate) : null;
+        before = resampler != null ? Resampler.HALF - 1 : 0;
+        after = resampler != null ? Resampler.HALF : 0;
+        frames = (int) Math.round(format.frames * (double) mixerRate / format.rate);
+
+        int chunkCapacity = READ_FRAMES + before + after + 1;
+        bytes = ByteBuffer.allocateDirect(chunkCapacity * format.blockAlign).order(ByteOrder.LITTLE_ENDIAN);
+        chunk = new float[chunkCapacity * AudioMixer.CHANNELS];
+        ring = new PcmBuffer(filename, new short[RING_FRAMES * AudioMixer.CHANNELS], this);
+    }
+
+    // Where in the ring the next block starts; a voice starting now starts there
+    int ringPosition(long blockStart) {
+        return (int) (nextReadFrame(blockStart) % RING_FRAMES);
+    }
+
+    // Where in the track the next block starts, for lining changes up with the music
+    int trackPosition(long blockStart) {
+        return (int) (nextReadFrame(blockStart) % frames);
+    }
+
+    private long nextReadFrame(long blockStart) {
+        return (preparedAt >= 0 && preparedAt != blockStart) ? readFrame + preparedFrames : readFrame;
+    }
+
+    // Called by the mixer for every block a voice plays this stream, before mixing;
+    // makes sure the block's frames are in the ring. Further calls for the block do nothing.
+    void prepare(long blockStart, int blockFrames) {
+        if (preparedAt == blockStart) return;
+        readFrame = nextReadFrame(blockStart);
+        preparedAt = blockStart;
+        preparedFrames = blockFrames;
+
+        long needed = readFrame + blockFrames;
+        if (filledTo >= needed) return;
+        long target = Math.min(readFrame + RING_FRAMES, needed + FILL_AHEAD);
+        short[] out = ring.samples;
+        double step = resampler != null ? resampler.step : 1.0;
+        while (filledTo < target) {
+            int center = (int) sourcePosition;
+            if (center - before < chunkStart || center + after >= chunkStart + chunkFrames) {
+                loadChunk(center - before);
+            }
+            int o = (int) (filledTo % RING_FRAMES) * 2;
+            int c = (int) (center - chunkStart);
+            if (resampler != null) {
+                resampler.interpolate(chunk, c, (float) (sourcePosition - center), frame, 0);
+                out[o] = SoundLoader.toShort(frame[0]);
+                out[o + 1] = SoundLoader.toShort(frame[1]);
+            } else {
+                out[o] = SoundLoader.toShort(chunk[2 * c]);
+                out[o + 1] = SoundLoader.toShort(chunk[2 * c + 1]);
+            }
+
+            sourcePosition += step;
+            if (sourcePosition >= format.frames) {
+                // Back to the start; the chunk is renumbered so what it holds stays usable
+                sourcePosition -= format.frames;
+                chunkStart -= format.frames;
+            }
+            filledTo++;
+        }
+    }
+
+    // Fills chunk with source frames from start on, wrapping round the track. A read
+    // error is reported once and plays as silence.
+    private void loadChunk(long start) {
+        chunkStart = start;
+        chunkFrames = chunk.length / 2;
+        if (!failed) {
+            try {
+                int total = format.frames;
+                int first = (int) Math.floorMod(start, (long) total);
+                int filled = 0;
+                while (filled < chunkFrames) {
+                    int from = (first + filled) % total;
+                    int count = Math.min(chunkFrames - filled, total - from);
+                    bytes.clear().limit(count * format.blockAlign);
+                    long position = format.dataOffset + (long) from * format.blockAlign;
+                    while (bytes.hasRemaining()) {
+                        if (channel.read(bytes, position + bytes.position()) < 0) {
+                            throw new IOException("Unexpected end of " + name);
+                        }
+                    }
+                    for (int i = 0; i < count; i++) {
+                        chunk[2 * (filled + i)] = format.sample(bytes, i, 0);
+                        chunk[2 * (filled + i) + 1] = format.sample(bytes, i, 1);
+                    }
+                    filled += count;
+                }
+                return;
+            } catch (IOException e) {
+                System.err.println("Error streaming " + name + ": " + e.getMessage());
+                failed = true;
+            }
+        }
+        for (int i = 0; i < chunk.length; i++) {
+            chunk[i] = 0f;
+        }
+    }
+
+    // Bytes held in memory for this stream
+    public int getResidentBytes() {
+        return ring.samples.length * 2 + chunk.length * 4 + bytes.capacity();
+    }
+
+    // Once no mixer will play the stream again
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing " + name + ": " + e.getMessage());
+        }
+    }
+}
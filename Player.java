@@ -0,0 +1,194 @@
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import javax.imageio.ImageIO;
+
+class Player {
+    private static final int PLAYER_SPEED = 8;
+    private BufferedImage sprite;
+    private int x, y;
+    private boolean isHiding = false;
+    private int hideCooldown = 0;
+    private SoundManager soundManager;
+    private int hideCount = 0;
+    private ScoreKeeper scoreKeeper = null;
+    
+    public Player(int startX, int groundHeight, SoundManager soundManager) {
+        this.soundManager = soundManager;
+        try {
+            sprite = ImageIO.read(new File("player.png"));
+            this.x = startX;
+            this.y = groundHeight - sprite.getHeight();
+        } catch (IOException e) {
+            System.err.println("Error loading player.png: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    // Puts the player back at the start of a run without reloading the sprite
+    public void reset(int startX, int groundHeight) {
+        x = startX;
+        y = groundHeight - sprite.getHeight();
+        isHiding = false;
+        hideCooldown = 0;
+        hideCount = 0;
+    }
+    
+    public void setScoreKeeper(ScoreKeeper scoreKeeper) {
+        this.scoreKeeper = scoreKeeper;
+    }
+    
+    public void saveState(ByteBuffer out) {
+        out.putInt(x);
+        out.putInt(y);
+        out.put((byte) (isHiding ? 1 : 0));
+        out.putInt(hideCooldown);
+        out.putInt(hideCount);
+    }
+    
+    public void restoreState(ByteBuffer in) {
+        x = in.getInt();
+        y = in.getInt();
+        isHiding = in.get() != 0;
+        hideCooldown = in.getInt();
+        hideCount = in.getInt();
+    }
+    
+    public void update() {
+        if (hideCooldown > 0) {
+            hideCooldown--;
+        }
+    }
+    
+    public void handleKeyPress(KeyEvent e, ArrayList<Locker> lockers, ItemManager itemManager, int groundHeight) {
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_LEFT:
+            case KeyEvent.VK_A:
+                if (!isHiding && !itemManager.checkPlayerObstacleCollision(this)) {
+                    int newX = Math.max(0, x - PLAYER_SPEED);
+                    // Check if new position would collide with obstacle
+                    int tempX = x;
+                    x = newX;
+                    if (itemManager.checkPlayerObstacleCollision(this)) {
+                        x = tempX; // Revert if collision
+                    }
+                    itemManager.onPlayerMoved(this);
+                }
+                break;
+            case KeyEvent.VK_RIGHT:
+            case KeyEvent.VK_D:
+                if (!isHiding && !itemManager.checkPlayerObstacleCollision(this)) {
+                    int newX = Math.min(itemManager.getWorldWidth() - sprite.getWidth(), x + PLAYER_SPEED);
+                    // Check if new position would collide with obstacle
+                    int tempX = x;
+                    x = newX;
+                    if (itemManager.checkPlayerObstacleCollision(this)) {
+                        x = tempX; // Revert if collision
+                    }
+                    itemManager.onPlayerMoved(this);
+                }
+                break;
+case KeyEvent.VK_E:
+    if (itemManager.isInClassroom()) {
+        // In classroom - check for BOTH doors to exit AND lockers to hide
+        if (itemManager.checkClassroomExit(this)) {
+            itemManager.exitClassroom(this);
+        } else {
+            // TRY TO USE LOCKERS IN CLASSROOM
+            handleLockerInteraction(itemManager.getCurrentFloorLockers());
+        }
+    } else {
+        // In main world - check for BOTH doors to enter classroom
+        if (itemManager.checkClassroomEnter(this)) {
+            itemManager.enterClassroom(this);
+        } else {
+            handleLockerInteraction(lockers);
+        }
+    }
+    break;
+            case KeyEvent.VK_W:
+                if (itemManager.checkStaircaseUp(this)) {
+                    itemManager.changeFloor(itemManager.getBuilding().getUpFloor(itemManager.getCurrentFloor()));
+                }
+                break;
+            case KeyEvent.VK_S:
+                if (itemManager.checkStaircaseDown(this)) {
+                    itemManager.changeFloor(itemManager.getBuilding().getDownFloor(itemManager.getCurrentFloor()));
+                }
+                break;
+        }
+    }
+    
+private void handleLockerInteraction(ArrayList<Locker> lockers) {
+    if (isHiding) {
+        // Exit locker - WORKS IN BOTH MAIN WORLD AND CLASSROOM
+        isHiding = false;
+        hideCooldown = 60;
+        if (soundManager != null) {
+            soundManager.playLockerSound();
+        }
+    } else if (hideCooldown == 0) {
+        // Try to enter locker - WORKS IN BOTH MAIN WORLD AND CLASSROOM
+        for (Locker locker : lockers) {
+            if (getBounds().intersects(locker.getBounds())) {
+                isHiding = true;
+                hideCount++; // Track hide count for scoring
+                if (scoreKeeper != null) {
+                    scoreKeeper.hideStarted();
+                }
+                if (soundManager != null) {
+                    soundManager.playLockerSound();
+                }
+                break;
+            }
+        }
+    }
+}
+    
+    public void draw(Graphics g, int cameraX) {
+        if (!isHiding) {
+            int drawX = x - cameraX;
+            g.drawImage(sprite, drawX, y, null);
+        }
+    }
+    
+    public void drawInClassroom(Graphics g) {
+        if (!isHiding) {
+            // Draw player in classroom - full screen positioning
+            g.drawImage(sprite, x, y, null);
+        }
+    }
+    
+    public Rectangle getBounds() {
+        return new Rectangle(x, y, sprite.getWidth(), sprite.getHeight());
+    }
+    
+    public boolean collidesWith(Monster monster, int currentFloor, ItemManager itemManager) {
+        if (!monster.isActive() || monster.getX() < -1000) {
+            return false;
+        }
+        
+        // If in classroom, only check collision if monster is also in same classroom
+        if (itemManager.isInClassroom()) {
+            return monster.isInClassroom(itemManager.getActiveClassroom()) && getBounds().intersects(monster.getBounds());
+        } else {
+            return !monster.isInClassroom() && monster.getCurrentFloor() == currentFloor && getBounds().intersects(monster.getBounds());
+        }
+    }
+    
+    // Getters
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public boolean isHiding() { return isHiding; }
+    public int getHideCount() { return hideCount; }
+    
+    // Setters for classroom positioning
+    public void setPosition(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+}
\ No newline at end of file
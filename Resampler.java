@@ -0,0 +1,87 @@
+class Resampler {
+    // Band-limited rate conversion: each output sample is a Kaiser-windowed sinc over
+    // the nearest TAPS input samples, with the filter taken from a table of PHASES
+    // fractional offsets (interpolated between neighbours). The cutoff sits just under
+    // the lower of the two Nyquist frequencies, so downsampling does not alias.
+    static final int TAPS = 64;
+    static final int HALF = TAPS / 2;
+    private static final int PHASES = 256;
+    private static final double KAISER_BETA = 10.0;
+
+    final int inRate;
+    final int outRate;
+    final double step; // input frames per output frame
+    private final float[] table = new float[(PHASES + 1) * TAPS];
+
+    Resampler(int inRate, int outRate) {
+        this.inRate = inRate;
+        this.outRate = outRate;
+        this.step = inRate / (double) outRate;
+        double cutoff = 0.95 * Math.min(1.0, outRate / (double) inRate);
+        for (int phase = 0; phase <= PHASES; phase++) {
+            double fraction = phase / (double) PHASES;
+            double sum = 0;
+            for (int tap = 0; tap < TAPS; tap++) {
+                // Distance from the output point to input sample (tap - HALF + 1)
+                double x = tap - HALF + 1 - fraction;
+                double sinc = x == 0 ? 1.0 : Math.sin(Math.PI * cutoff * x) / (Math.PI * cutoff * x);
+                double w = x / HALF;
+                double window = Math.abs(w) >= 1 ? 0 : bessel(KAISER_BETA * Math.sqrt(1 - w * w)) / bessel(KAISER_BETA);
+                table[phase * TAPS + tap] = (float) (cutoff * sinc * window);
+                sum += cutoff * sinc * window;
+            }
+            // Unity gain at DC for every phase
+            for (int tap = 0; tap < TAPS; tap++) {
+                table[phase * TAPS + tap] /= (float) sum;
+            }
+        }
+    }
+
+    private static double bessel(double x) {
+        double sum = 1, term = 1;
+        for (int k = 1; k < 30; k++) {
+            term *= (x / (2 * k)) * (x / (2 * k));
+            sum += term;
+        }
+        return sum;
+    }
+
+    int outputFrames(int inputFrames) {
+        return (int) Math.ceil(inputFrames / step);
+    }
+
+    // A whole interleaved stereo buffer; silence is assumed before and after it
+    float[] resample(float[] in) {
+        int inFrames = in.length / 2;
+        float[] padded = new float[(inFrames + TAPS) * 2];
+        System.arraycopy(in, 0, padded, HALF * 2, in.length);
+        int outFrames = outputFrames(inFrames);
+        float[] out = new float[outFrames * 2];
+        for (int i = 0; i < outFrames; i++) {
+            double position = i * step;
+            int frame = (int) position;
+            interpolate(padded, frame + HALF, (float) (position - frame), out, 2 * i);
+        }
+        return out;
+    }
+
+    // Writes the stereo frame at center + fraction into out[at] and out[at + 1]. The
+    // input needs HALF - 1 frames before center and HALF after it.
+    void interpolate(float[] in, int center, float fraction, float[] out, int at) {
+        float scaled = fraction * PHASES;
+        // A fraction just under 1 can round up to it in float
+        int phase = Math.min((int) scaled, PHASES - 1);
+        float blend = scaled - phase;
+        int a = phase * TAPS;
+        int b = a + TAPS;
+        int first = (center - HALF + 1) * 2;
+        float left = 0f, right = 0f;
+        for (int tap = 0; tap < TAPS; tap++) {
+            float weight = table[a + tap] + (table[b + tap] - table[a + tap]) * blend;
+            left += in[first + 2 * tap] * weight;
+            right += in[first + 2 * tap + 1] * weight;
+        }
+        out[at] = left;
+        out[at + 1] = right;
+    }
+}
@@ -0,0 +1,204 @@
+import java.nio.ByteBuffer;
+
+public class RewindBuffer {
+    // The last few seconds of game state, one snapshot per tick, for rewinding after a
+    // death and for stepping through a bug tick by tick. Every keyframe-interval-th tick
+    // is stored whole; the ticks in between store only the byte runs that differ from
+    // their keyframe, which for a snapshot of about a hundred bytes is a few dozen. Tick
+    // t always lives in slot t % capacity, and every slot's array is reused once it is
+    // big enough, so recording stops allocating after the first pass round the ring.
+    private static final int MAX_RUN = 255;
+    // Equal bytes shorter than this between two changed runs are folded into one run,
+    // since a run header costs three bytes
+    private static final int MERGE_GAP = 3;
+
+    private final int capacity;
+    private final int keyframeInterval;
+    private final byte[][] slots;
+    private final int[] encodedLengths;
+    private final int[] frameLengths;
+    private final boolean[] whole;
+
+    private ByteBuffer scratch = ByteBuffer.allocate(1024);
+    private byte[] decoded = new byte[1024];
+    // Ticks of the newest recorded frame and of the frame being looked at; -1 when empty
+    private long newest = -1;
+    private long cursor = -1;
+    // Oldest tick whose slot has not been overwritten. Only ever moves forward: after a
+    // rewind newest drops back, but the slots past it still hold the discarded future
+    private long oldest = 0;
+
+    // Capacity is rounded up to a whole number of keyframe intervals
+    public RewindBuffer(int capacity, int keyframeInterval) {
+        this.keyframeInterval = keyframeInterval;
+        this.capacity = ((capacity + keyframeInterval - 1) / keyframeInterval) * keyframeInterval;
+        this.slots = new byte[this.capacity][];
+        this.encodedLengths = new int[this.capacity];
+        this.frameLengths = new int[this.capacity];
+        this.whole = new boolean[this.capacity];
+    }
+
+    public void clear() {
+        newest = -1;
+        cursor = -1;
+        oldest = 0;
+    }
+
+    // Buffer to write the next frame into; finish with commitFrame()
+    public ByteBuffer beginFrame() {
+        scratch.clear();
+        return scratch;
+    }
+
+    // For a frame that did not fit in beginFrame's buffer - call beginFrame again after
+    public void growFrame() {
+        scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+    }
+
+    // Stores the frame as the tick after the cursor, dropping anything that had been
+    // recorded after it (after rewinding, the old future is gone)
+    public void commitFrame() {
+        long tick = cursor + 1;
+        int slot = (int) (tick % capacity);
+        int length = scratch.position();
+        byte[] frame = scratch.array();
+
+        int keySlot = (int) ((tick - tick % keyframeInterval) % capacity);
+        if (slot == keySlot || length > 0xFFFF) {
+            byte[] out = reserve(slot, length);
+            System.arraycopy(frame, 0, out, 0, length);
+            encodedLengths[slot] = length;
+            whole[slot] = true;
+        } else {
+            encodedLengths[slot] = encodeDelta(slot, frame, length, slots[keySlot], frameLengths[keySlot]);
+            whole[slot] = false;
+        }
+        frameLengths[slot] = length;
+        oldest = Math.max(oldest, tick - capacity + 1);
+        newest = tick;
+        cursor = tick;
+    }
+
+    // Runs of (u16 offset, u8 length, bytes) where the frame differs from the keyframe;
+    // keyframe bytes past its end count as zero
+    private int encodeDelta(int slot, byte[] frame, int length, byte[] base, int baseLength) {
+        byte[] out = reserve(slot, length + 3 * (length / (MERGE_GAP + 1) + length / MAX_RUN + 2));
+        int n = 0;
+        int i = 0;
+        while (i < length) {
+            if (frame[i] == baseAt(base, baseLength, i)) {
+                i++;
+                continue;
+            }
+
+            int start = i;
+            int end = i + 1;
+            int equal = 0;
+            while (end < length && end - start < MAX_RUN) {
+                if (frame[end] == baseAt(base, baseLength, end)) {
+                    if (equal == MERGE_GAP) break;
+                    equal++;
+                } else {
+                    equal = 0;
+                }
+                end++;
+            }
+            end -= equal;
+
+            out[n++] = (byte) (start >>> 8);
+            out[n++] = (byte) start;
+            out[n++] = (byte) (end - start);
+            System.arraycopy(frame, start, out, n, end - start);
+            n += end - start;
+            i = end;
+        }
+        return n;
+    }
+
+    private static byte baseAt(byte[] base, int baseLength, int i) {
+        return i < baseLength ? base[i] : 0;
+    }
+
+    private byte[] reserve(int slot, int size) {
+        if (slots[slot] == null || slots[slot].length < size) {
+            slots[slot] = new byte[Math.max(size, 64)];
+        }
+        return slots[slot];
+    }
+
+    // Oldest tick that can still be rebuilt - its keyframe must not have been overwritten
+    private long oldestAvailable() {
+        return ((oldest + keyframeInterval - 1) / keyframeInterval) * keyframeInterval;
+    }
+
+    public boolean isEmpty() {
+        return newest < 0;
+    }
+
+    public boolean stepBack() {
+        if (cursor - 1 < oldestAvailable()) return false;
+        cursor--;
+        return true;
+    }
+
+    public boolean stepForward() {
+        if (cursor >= newest) return false;
+        cursor++;
+        return true;
+    }
+
+    // Moves the cursor up to ticks before the newest frame; false if nothing is recorded
+    public boolean seekBack(int ticks) {
+        if (newest < 0) return false;
+        cursor = Math.max(oldestAvailable(), newest - ticks);
+        return true;
+    }
+
+    public void seekNewest() {
+        cursor = newest;
+    }
+
+    // Rebuilds the frame at the cursor into getFrame() and returns its length
+    public int readFrame() {
+        int slot = (int) (cursor % capacity);
+        int length = frameLengths[slot];
+        if (decoded.length < length) {
+            decoded = new byte[Math.max(length, decoded.length * 2)];
+        }
+        if (whole[slot]) {
+            System.arraycopy(slots[slot], 0, decoded, 0, length);
+            return length;
+        }
+
+        int keySlot = (int) ((cursor - cursor % keyframeInterval) % capacity);
+        int baseLength = Math.min(frameLengths[keySlot], length);
+        System.arraycopy(slots[keySlot], 0, decoded, 0, baseLength);
+        for (int i = baseLength; i < length; i++) {
+            decoded[i] = 0;
+        }
+
+        byte[] delta = slots[slot];
+        int n = 0;
+        while (n < encodedLengths[slot]) {
+            int offset = ((delta[n] & 0xFF) << 8) | (delta[n + 1] & 0xFF);
+            int runLength = delta[n + 2] & 0xFF;
+            System.arraycopy(delta, n + 3, decoded, offset, runLength);
+            n += 3 + runLength;
+        }
+        return length;
+    }
+
+    public byte[] getFrame() { return decoded; }
+
+    // How far the cursor is behind the newest frame, in ticks
+    public int getTicksBehind() { return (int) (newest - cursor); }
+
+    // Bytes the stored frames take up, for checking the delta encoding pays off
+    public long getStoredBytes() {
+        long total = 0;
+        for (long tick = oldest; tick <= newest; tick++) {
+            total += encodedLengths[(int) (tick % capacity)];
+        }
+        return total;
+    }
+}
@@ -0,0 +1,150 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+public class RewindBufferCheck {
+    // Headless check of RewindBuffer against a plain model of what it should hold: every
+    // tick written to a slot is remembered whole, and stepping back from the newest frame
+    // must decode each frame exactly and stop at the first tick the model cannot rebuild.
+    // Runs the rewind-then-record case that once let stepBack() walk into the discarded
+    // future, then random sessions of recording, seeking back and stepping. Exits with
+    // status 1 on any mismatch.
+    //
+    // Run with: java RewindBufferCheck [sessions]
+    private static final int CAPACITY = 600;
+    private static final int KEYFRAME_INTERVAL = 30;
+    private static final int MAX_FAILURES_SHOWN = 20;
+
+    public static void main(String[] args) {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        RewindBufferCheck check = new RewindBufferCheck();
+
+        // Record ten seconds and more, rewind three seconds, play on a little
+        check.record(1000);
+        check.seekBack(180);
+        check.record(11);
+        check.stepToOldest("record 1000, rewind 180, record 11");
+
+        Random random = new Random(1);
+        for (int session = 0; session < sessions; session++) {
+            check.reset();
+            int steps = 1 + random.nextInt(20);
+            for (int i = 0; i < steps; i++) {
+                check.record(1 + random.nextInt(700));
+                if (random.nextBoolean()) {
+                    check.seekBack(random.nextInt(900));
+                }
+            }
+            check.stepToOldest("random session " + session);
+        }
+
+        System.out.println(String.format("%d sessions, %d frames checked, %d failures", sessions + 1, check.framesChecked, check.failures));
+        if (check.failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private RewindBuffer buffer;
+    // What the buffer should hold: the tick last written to each slot and its bytes
+    private long[] slotTicks;
+    private byte[][] slotFrames;
+    private long newest;
+    private long cursor;
+    private int framesChecked;
+    private int failures;
+
+    public RewindBufferCheck() {
+        buffer = new RewindBuffer(CAPACITY, KEYFRAME_INTERVAL);
+        slotTicks = new long[CAPACITY];
+        slotFrames = new byte[CAPACITY][];
+        reset();
+    }
+
+    private void reset() {
+        buffer.clear();
+        Arrays.fill(slotTicks, -1);
+        newest = -1;
+        cursor = -1;
+    }
+
+    // Records frames after the cursor, the way the game does after a rewind
+    private void record(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            long tick = cursor + 1;
+            byte[] frame = frame(tick);
+            ByteBuffer out = buffer.beginFrame();
+            while (out.remaining() < frame.length) {
+                buffer.growFrame();
+                out = buffer.beginFrame();
+            }
+            out.put(frame);
+            buffer.commitFrame();
+
+            int slot = (int) (tick % CAPACITY);
+            slotTicks[slot] = tick;
+            slotFrames[slot] = frame;
+            newest = tick;
+            cursor = tick;
+        }
+    }
+
+    private void seekBack(int ticks) {
+        if (!buffer.seekBack(ticks)) return;
+        cursor = newest - buffer.getTicksBehind();
+    }
+
+    // Walks from the newest frame back as far as the buffer allows, checking every frame
+    private void stepToOldest(String name) {
+        buffer.seekNewest();
+        cursor = newest;
+        long expectedOldest = oldestRebuildable();
+        int mismatches = 0;
+        while (true) {
+            int length = buffer.readFrame();
+            byte[] expected = slotFrames[(int) (cursor % CAPACITY)];
+            framesChecked++;
+            if (length != expected.length || !Arrays.equals(Arrays.copyOf(buffer.getFrame(), length), expected)) {
+                mismatches++;
+                if (failures + mismatches <= MAX_FAILURES_SHOWN) {
+                    System.out.println(String.format("%s: tick %d decoded as %d", name, cursor, tickOf(buffer.getFrame(), length)));
+                }
+            }
+            if (!buffer.stepBack()) break;
+            cursor--;
+        }
+        if (cursor != expectedOldest) {
+            mismatches++;
+            System.out.println(String.format("%s: stepping back stopped at tick %d, expected %d", name, cursor, expectedOldest));
+        }
+        failures += mismatches;
+    }
+
+    // Oldest tick from which every frame up to the newest is still in the ring along
+    // with its keyframe
+    private long oldestRebuildable() {
+        long tick = newest;
+        while (tick > 0 && rebuildable(tick - 1)) {
+            tick--;
+        }
+        return tick;
+    }
+
+    private boolean rebuildable(long tick) {
+        long keyframe = tick - tick % KEYFRAME_INTERVAL;
+        return slotTicks[(int) (tick % CAPACITY)] == tick && slotTicks[(int) (keyframe % CAPACITY)] == keyframe;
+    }
+
+    // A snapshot-sized frame that mostly matches its neighbours, like real game state,
+    // so that ticks between keyframes really are stored as deltas
+    private static byte[] frame(long tick) {
+        Random random = new Random(tick / 7);
+        byte[] frame = new byte[96 + (int) (tick / 50 % 5) * 8];
+        random.nextBytes(frame);
+        ByteBuffer.wrap(frame).putLong(tick);
+        return frame;
+    }
+
+    private static long tickOf(byte[] frame, int length) {
+        return length >= 8 ? ByteBuffer.wrap(frame).getLong() : -1;
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.Arrays;
+
+public class RoomReverb {
+    // The room the player is in, applied to everything the mixer plays: the long hard
+    // tail of a school hallway, a short damped classroom, or the cramped, boxy inside of a
+    // locker, where the outside world is also muffled through the door.
+    //
+    // Each room is a feedback delay network: eight delay lines fed back through a Hadamard
+    // matrix, with a low-pass in each line so the tail darkens as it decays. Delay lengths
+    // set the size of the room, per-line feedback gains its decay time. Changing the
+    // lengths of a ringing network would bend its pitch, so there are two networks: on a
+    // room change the idle one is set up for the new room and takes over the input while
+    // the old one's tail fades out. A change that arrives mid-fade waits for it to finish.
+    //
+    // Everything is allocated up front for the longest room; process() does not allocate.
+    static final int LINES = 8;
+    // Delay lengths of the largest room, in seconds; no two share a common period
+    private static final float[] BASE_DELAYS = {0.0297f, 0.0371f, 0.0411f, 0.0437f, 0.0533f, 0.0599f, 0.0677f, 0.0739f};
+    // Per room, indexed by AudioMixer's ENVIRONMENT_ levels: size (scales the delays),
+    // decay time to -60dB, damping cutoff, wet level, and the low-pass cutoff (0 for none)
+    // and gain of the direct sound
+    private static final float[] SIZE = {1.0f, 0.45f, 0.08f};
+    private static final float[] DECAY_SECONDS = {1.8f, 0.6f, 0.25f};
+    private static final float[] DAMPING_CUTOFF = {5000f, 3500f, 1800f};
+    private static final float[] WET = {0.28f, 0.18f, 0.35f};
+    private static final float[] DRY_CUTOFF = {0f, 0f, 900f};
+    private static final float[] DRY_GAIN = {1.0f, 1.0f, 0.75f};
+    private static final float FADE_SECONDS = 0.3f;
+    // Fraction of the way to the new direct-sound settings covered each block
+    private static final float DRY_GLIDE = 0.1f;
+
+    private final float sampleRate;
+    private final ReverbTank[] tanks = new ReverbTank[2];
+    private int current = 0;
+    private int environment = -1;
+    private int fadeRemaining = 0;
+    private final int fadeFrames;
+
+    private float dryCoefficient = 1f;
+    private float dryGain = 1f;
+    private float dryLeft = 0f, dryRight = 0f;
+    private final float[] input = new float[AudioMixer.BLOCK_FRAMES];
+
+    private long processNanos = 0;
+    private long processedBlocks = 0;
+
+    public RoomReverb(float sampleRate) {
+        this.sampleRate = sampleRate;
+        int longest = (int) Math.ceil(BASE_DELAYS[LINES - 1] * SIZE[0] * sampleRate) + 1;
+        int capacity = Integer.highestOneBit(longest - 1) << 1;
+        for (int i = 0; i < tanks.length; i++) {
+            tanks[i] = new ReverbTank(capacity);
+        }
+        fadeFrames = Math.round(FADE_SECONDS * sampleRate);
+        setUp(tanks[0], AudioMixer.ENVIRONMENT_HALL);
+        environment = AudioMixer.ENVIRONMENT_HALL;
+        dryCoefficient = cutoffCoefficient(DRY_CUTOFF[environment]);
+        dryGain = DRY_GAIN[environment];
+    }
+
+    private void setUp(ReverbTank tank, int room) {
+        tank.clear();
+        tank.damping = cutoffCoefficient(DAMPING_CUTOFF[room]);
+        tank.wet = WET[room];
+        for (int i = 0; i < LINES; i++) {
+            int delay = Math.max(1, Math.round(BASE_DELAYS[i] * SIZE[room] * sampleRate));
+            tank.delays[i] = delay;
+            // Loses 60dB over the decay time, however often the line goes round in it
+            tank.feedback[i] = (float) Math.pow(10.0, -3.0 * delay / (DECAY_SECONDS[room] * sampleRate));
+        }
+    }
+
+    private float cutoffCoefficient(float cutoff) {
+        if (cutoff <= 0f) return 1f;
+        return 1f - (float) Math.exp(-2.0 * Math.PI * cutoff / sampleRate);
+    }
+
+    // Adds the room to a block of interleaved stereo, in place
+    public void process(float[] block, int frames, int room) {
+        long start = System.nanoTime();
+        if (room != environment && fadeRemaining == 0) {
+            environment = room;
+            current ^= 1;
+            setUp(tanks[current], room);
+            fadeRemaining = fadeFrames;
+        }
+
+        float startCoefficient = dryCoefficient;
+        float startGain = dryGain;
+        dryCoefficient += (cutoffCoefficient(DRY_CUTOFF[environment]) - dryCoefficient) * DRY_GLIDE;
+        dryGain += (DRY_GAIN[environment] - dryGain) * DRY_GLIDE;
+        float coefficientStep = (dryCoefficient - startCoefficient) / frames;
+        float gainStep = (dryGain - startGain) / frames;
+
+        // The networks read the untouched input, so a muffled locker still hears the room
+        // it is in; the direct sound is then filtered in place
+        for (int i = 0; i < frames; i++) {
+            input[i] = (block[2 * i] + block[2 * i + 1]) * 0.5f;
+            float coefficient = startCoefficient + coefficientStep * i;
+            float gain = startGain + gainStep * i;
+            dryLeft += coefficient * (block[2 * i] - dryLeft);
+            dryRight += coefficient * (block[2 * i + 1] - dryRight);
+            block[2 * i] = dryLeft * gain;
+            block[2 * i + 1] = dryRight * gain;
+        }
+
+        tanks[current].render(input, block, frames, 1f, 0f);
+        if (fadeRemaining > 0) {
+            int fadingFrames = Math.min(fadeRemaining, frames);
+            // The old room gets no more input and fades out under the new one
+            for (int i = 0; i < fadingFrames; i++) {
+                input[i] = 0f;
+            }
+            tanks[current ^ 1].render(input, block, fadingFrames, fadeRemaining / (float) fadeFrames, -1f / fadeFrames);
+            fadeRemaining -= fadingFrames;
+        }
+        processNanos += System.nanoTime() - start;
+        processedBlocks++;
+    }
+
+    // Average cost of one block, for keeping an eye on the DSP budget
+    public double getAverageProcessMicros() {
+        long blocks = processedBlocks;
+        return blocks == 0 ? 0.0 : processNanos / 1000.0 / blocks;
+    }
+}
+
+class ReverbTank {
+    // One feedback delay network. The lines share one flat buffer, each in its own
+    // power-of-two slice so positions wrap with a mask.
+    final int[] delays = new int[RoomReverb.LINES];
+    final float[] feedback = new float[RoomReverb.LINES];
+    float damping;
+    float wet;
+
+    private final float[] buffer;
+    private final int capacity;
+    private final int mask;
+    private int position = 0;
+    private final float[] lowpass = new float[RoomReverb.LINES];
+
+    ReverbTank(int capacity) {
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.buffer = new float[capacity * RoomReverb.LINES];
+    }
+
+    void clear() {
+        Arrays.fill(buffer, 0f);
+        Arrays.fill(lowpass, 0f);
+        position = 0;
+    }
+
+    // Runs the network over a block of mono input and adds its output into out
+    // (interleaved stereo), scaled by a gain that starts at gain and moves by gainStep
+    // each frame. The lines are unrolled into locals; this loop is most of the cost.
+    void render(float[] input, float[] out, int frames, float gain, float gainStep) {
+        final float[] line = buffer;
+        final int c = capacity;
+        final int m = mask;
+        final float d = damping;
+        int d0 = delays[0], d1 = delays[1], d2 = delays[2], d3 = delays[3];
+        int d4 = delays[4], d5 = delays[5], d6 = delays[6], d7 = delays[7];
+        float g0 = feedback[0], g1 = feedback[1], g2 = feedback[2], g3 = feedback[3];
+        float g4 = feedback[4], g5 = feedback[5], g6 = feedback[6], g7 = feedback[7];
+        float l0 = lowpass[0], l1 = lowpass[1], l2 = lowpass[2], l3 = lowpass[3];
+        float l4 = lowpass[4], l5 = lowpass[5], l6 = lowpass[6], l7 = lowpass[7];
+        float scale = 0.35355339f; // 1/sqrt(8), keeps the Hadamard matrix lossless
+        int p = position;
+
+        for (int i = 0; i < frames; i++) {
+            // Each line's output, darkened and turned down for its trip round the loop
+            l0 += d * (line[((p - d0) & m)] - l0);
+            l1 += d * (line[c + ((p - d1) & m)] - l1);
+            l2 += d * (line[2 * c + ((p - d2) & m)] - l2);
+            l3 += d * (line[3 * c + ((p - d3) & m)] - l3);
+            l4 += d * (line[4 * c + ((p - d4) & m)] - l4);
+            l5 += d * (line[5 * c + ((p - d5) & m)] - l5);
+            l6 += d * (line[6 * c + ((p - d6) & m)] - l6);
+            l7 += d * (line[7 * c + ((p - d7) & m)] - l7);
+            float t0 = l0 * g0, t1 = l1 * g1, t2 = l2 * g2, t3 = l3 * g3;
+            float t4 = l4 * g4, t5 = l5 * g5, t6 = l6 * g6, t7 = l7 * g7;
+
+            // Stereo from alternate lines, which are uncorrelated enough to sound wide
+            float level = wet * (gain + gainStep * i);
+            out[2 * i] += (t0 + t2 + t4 + t6) * level;
+            out[2 * i + 1] += (t1 + t3 + t5 + t7) * level;
+
+            // Fast Hadamard transform
+            float a0 = t0 + t1, a1 = t0 - t1, a2 = t2 + t3, a3 = t2 - t3;
+            float a4 = t4 + t5, a5 = t4 - t5, a6 = t6 + t7, a7 = t6 - t7;
+            float b0 = a0 + a2, b1 = a1 + a3, b2 = a0 - a2, b3 = a1 - a3;
+            float b4 = a4 + a6, b5 = a5 + a7, b6 = a4 - a6, b7 = a5 - a7;
+
+            // The input goes in with alternating signs so the lines do not start in step
+            float feed = input[i];
+            line[p] = (b0 + b4 + feed) * scale;
+            line[c + p] = (b1 + b5 - feed) * scale;
+            line[2 * c + p] = (b2 + b6 + feed) * scale;
+            line[3 * c + p] = (b3 + b7 - feed) * scale;
+            line[4 * c + p] = (b0 - b4 + feed) * scale;
+            line[5 * c + p] = (b1 - b5 - feed) * scale;
+            line[6 * c + p] = (b2 - b6 + feed) * scale;
+            line[7 * c + p] = (b3 - b7 - feed) * scale;
+            p = (p + 1) & m;
+        }
+
+        lowpass[0] = l0; lowpass[1] = l1; lowpass[2] = l2; lowpass[3] = l3;
+        lowpass[4] = l4; lowpass[5] = l5; lowpass[6] = l6; lowpass[7] = l7;
+        position = p;
+    }
+}
@@ -0,0 +1,129 @@
+public class ScoreKeeper {
+    // The run's score, kept up to date from game events instead of being rebuilt from
+    // scratch every frame. Pickups and hides adjust their part of the score when they
+    // happen; each tick only adds hiding time and recomputes the total when something it
+    // depends on changed, which is at most once a second outside of lockers.
+    //
+    // While playing, the base score decays to nothing over 30 minutes. Escaping fixes the
+    // score with the full base. Being caught scores nothing.
+    public static final int BASE_SCORE = 10000;
+    public static final int NOTE_BONUS = 500;
+    public static final int KEY_BONUS = 1000;
+    public static final int HIDE_PENALTY = 100; // per time the player hides
+    public static final int HIDING_PENALTY_PER_SECOND = 120; // 2 points per frame at 60fps
+    private static final int BASE_DECAY_SECONDS = 1800;
+
+    private int objectiveBonus = 0;
+    private int hideCountPenalty = 0;
+    private long hidingNanos = 0;
+    private int hidingPenalty = 0;
+    private int seconds = 0;
+    private int score = 0;
+    private boolean dirty = true;
+    private boolean finished = false;
+
+    public void reset() {
+        objectiveBonus = 0;
+        hideCountPenalty = 0;
+        hidingNanos = 0;
+        hidingPenalty = 0;
+        seconds = 0;
+        score = 0;
+        dirty = true;
+        finished = false;
+    }
+
+    // Rebuilds the parts of the score from a restored run
+    public void restore(int notes, boolean hasKey, int hides, long hidingTime, int elapsedSeconds) {
+        reset();
+        objectiveBonus = notes * NOTE_BONUS + (hasKey ? KEY_BONUS : 0);
+        hideCountPenalty = hides * HIDE_PENALTY;
+        hidingNanos = hidingTime;
+        hidingPenalty = (int) (hidingNanos * HIDING_PENALTY_PER_SECOND / 1000000000L);
+        seconds = elapsedSeconds;
+        recompute();
+    }
+
+    public void noteCollected() {
+        objectiveBonus += NOTE_BONUS;
+        dirty = true;
+    }
+
+    public void keyCollected() {
+        objectiveBonus += KEY_BONUS;
+        dirty = true;
+    }
+
+    public void hideStarted() {
+        hideCountPenalty += HIDE_PENALTY;
+        dirty = true;
+    }
+
+    // Once per playing tick, after the clock has ticked
+    public void tick(GameClock clock, boolean hiding) {
+        if (finished) return;
+
+        if (hiding) {
+            hidingNanos += clock.getLastTickNanos();
+            int penalty = (int) (hidingNanos * HIDING_PENALTY_PER_SECOND / 1000000000L);
+            if (penalty != hidingPenalty) {
+                hidingPenalty = penalty;
+                dirty = true;
+            }
+        }
+        int now = clock.getElapsedSeconds();
+        if (now != seconds) {
+            seconds = now;
+            dirty = true;
+        }
+        if (dirty) {
+            recompute();
+        }
+    }
+
+    private void recompute() {
+        int base = finished ? BASE_SCORE : getDecayedBase();
+        score = Math.max(0, (int) ((base + objectiveBonus - hidingPenalty - hideCountPenalty) * getTimeMultiplier()));
+        dirty = false;
+    }
+
+    // Fixes the score for an escape at the given run time
+    public void escaped(int elapsedSeconds) {
+        seconds = elapsedSeconds;
+        finished = true;
+        recompute();
+    }
+
+    public void caught() {
+        finished = true;
+        score = 0;
+    }
+
+    public int getScore() { return score; }
+
+    public boolean isFinished() { return finished; }
+
+    public int getDecayedBase() {
+        return Math.max(0, (int) (BASE_SCORE * (1.0 - (seconds / (double) BASE_DECAY_SECONDS))));
+    }
+
+    public int getObjectiveBonus() { return objectiveBonus; }
+
+    public int getHidingPenalty() { return hidingPenalty; }
+
+    public int getHideCountPenalty() { return hideCountPenalty; }
+
+    public long getHidingNanos() { return hidingNanos; }
+
+    public double getTimeMultiplier() {
+        if (seconds < 300) { // Under 5 minutes
+            return 3.0;
+        } else if (seconds < 600) { // Under 10 minutes
+            return 2.0;
+        } else if (seconds < 900) { // Under 15 minutes
+            return 1.5;
+        } else {
+            return 1.0;
+        }
+    }
+}
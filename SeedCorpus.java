@@ -0,0 +1,343 @@
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+public class SeedCorpus {
+    // Headless generator validation. Generates worlds from consecutive run seeds in
+    // parallel, checks that every one is solvable, reports how long generation took and
+    // which seeds failed, and lists seeds with chosen traits (for curated challenges).
+    // A seed here is the run seed handed to ItemManager.prepareWorld. Exits with status
+    // 1 if any seed failed, so a generator change that breaks one cannot slip through.
+    //
+    // Run with: java -Djava.awt.headless=true SeedCorpus [options]
+    //   -seeds N        number of seeds to check (default 100000)
+    //   -start S        first seed (default 0)
+    //   -threads T      worker threads (default: all cores)
+    //   -floors F       check a tower of F floors instead of the standard school
+    //   -trait NAME     list seeds with this trait; repeat to require several
+    //   -limit K        how many matching seeds to print (default 20)
+    private static final int WORLD_WIDTH = 3840;
+    private static final int GROUND_HEIGHT = 900;
+    private static final int PLAYER_START_X = 200;
+    private static final int LOCKERS_PER_FLOOR = 3;
+    private static final int MAX_FAILURES_SHOWN = 50;
+
+    // Trait bits recorded for every seed
+    static final int KEY_IN_CLASSROOM = 1;
+    static final int ALL_NOTES_IN_CLASSROOMS = 1 << 1;
+    static final int NO_CLASSROOMS = 1 << 2;
+    static final int CLASSROOM_ON_EVERY_FLOOR = 1 << 3;
+    private static final String[] TRAIT_NAMES = {
+        "key-in-classroom", "all-notes-in-classrooms", "no-classrooms", "classroom-on-every-floor"
+    };
+
+    public static void main(String[] args) throws Exception {
+        long seeds = 100000;
+        long start = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int limit = 20;
+        BuildingDescriptor building = BuildingDescriptor.standard(WORLD_WIDTH);
+        int wanted = 0;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-seeds": seeds = Long.parseLong(value); break;
+                case "-start": start = Long.parseLong(value); break;
+                case "-threads": threads = Integer.parseInt(value); break;
+                case "-limit": limit = Integer.parseInt(value); break;
+                case "-floors": building = BuildingDescriptor.tower(Integer.parseInt(value), WORLD_WIDTH); break;
+                case "-trait": wanted |= traitBit(value); break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+        // One run covers at most an int's worth of seeds; use -start for the rest
+        if (seeds < 1 || seeds > Integer.MAX_VALUE) {
+            System.err.println("-seeds must be between 1 and " + Integer.MAX_VALUE);
+            System.exit(1);
+        }
+
+        SeedCorpus corpus = new SeedCorpus(building);
+        long startTime = System.nanoTime();
+        corpus.run(start, (int) seeds, threads);
+        long elapsed = System.nanoTime() - startTime;
+
+        corpus.report(elapsed, threads);
+        if (wanted != 0) {
+            corpus.query(wanted, limit);
+        }
+        if (corpus.hasFailures()) {
+            System.exit(1);
+        }
+    }
+
+    private static int traitBit(String name) {
+        for (int i = 0; i < TRAIT_NAMES.length; i++) {
+            if (TRAIT_NAMES[i].equals(name)) return 1 << i;
+        }
+        System.err.println("Unknown trait: " + name + " - known traits: " + String.join(", ", TRAIT_NAMES));
+        System.exit(1);
+        return 0;
+    }
+
+    private BuildingDescriptor building;
+    private FloorGenerator generator;
+    private int playerWidth;
+    private Rectangle exitBounds;
+    private long firstSeed;
+    private int[] generateNanos;
+    private byte[] traits;
+    private ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+
+    public SeedCorpus(BuildingDescriptor building) {
+        this.building = building;
+        ItemSprites sprites = ItemSprites.load();
+        this.generator = new FloorGenerator(building, sprites, GROUND_HEIGHT);
+        this.playerWidth = new Player(PLAYER_START_X, GROUND_HEIGHT, null).getBounds().width;
+        this.exitBounds = new Rectangle(building.getExitX(), GROUND_HEIGHT - sprites.exit.getHeight(),
+                                        sprites.exit.getWidth(), sprites.exit.getHeight());
+    }
+
+    public void run(long start, int count, int threads) throws Exception {
+        firstSeed = start;
+        generateNanos = new int[count];
+        traits = new byte[count];
+        failures.clear();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> LongStream.range(0, count).parallel().forEach(i -> check((int) i))).get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Generates one world exactly as prepareWorld would and checks it
+    private void check(int index) {
+        long runSeed = firstSeed + index;
+        int floorCount = building.getFloorCount();
+
+        long start = System.nanoTime();
+        Floor[] floors = new Floor[floorCount];
+        for (int floor = 0; floor < floorCount; floor++) {
+            floors[floor] = generator.generate(floor, runSeed);
+        }
+        generateNanos[index] = (int) Math.min(Integer.MAX_VALUE, System.nanoTime() - start);
+
+        ArrayList<String> problems = new ArrayList<>();
+        traits[index] = (byte) validate(floors, problems);
+        if (!problems.isEmpty()) {
+            failures.add(runSeed + ": " + String.join("; ", problems));
+        }
+    }
+
+    // Checks the solvability invariants and returns the world's trait bits
+    int validate(Floor[] floors, ArrayList<String> problems) {
+        NavGraph nav = new NavGraph(WORLD_WIDTH, playerWidth, 1920);
+        for (Floor f : floors) {
+            nav.addFloor(f.index, f.obstacles, f.classrooms,
+                         building.getStairsUpX(f.index), building.getUpFloor(f.index),
+                         building.getStairsDownX(f.index), building.getDownFloor(f.index));
+        }
+        HashSet<NavRegion> reachable = nav.reachableFrom(nav.regionOf(0, null, PLAYER_START_X));
+
+        int notes = 0;
+        int classroomNotes = 0;
+        int keys = 0;
+        int result = 0;
+        boolean everyFloorHasClassroom = true;
+
+        for (Floor f : floors) {
+            // Notes and the key must be somewhere the player can walk to
+            for (GameEntity note : f.notes) {
+                if (!isReachable(nav, reachable, f, note.getBounds())) {
+                    problems.add("floor " + f.index + " note at " + note.x + " unreachable");
+                }
+            }
+            for (GameEntity note : f.classroomNotes) {
+                if (!isClassroomReachable(nav, reachable, f)) {
+                    problems.add("floor " + f.index + " classroom note unreachable");
+                }
+            }
+            notes += f.notes.size() + f.classroomNotes.size();
+            classroomNotes += f.classroomNotes.size();
+
+            if (f.key != null) {
+                keys++;
+                if (!isReachable(nav, reachable, f, f.key.getBounds())) {
+                    problems.add("floor " + f.index + " key unreachable");
+                }
+            }
+            if (f.classroomKey != null) {
+                keys++;
+                result |= KEY_IN_CLASSROOM;
+                if (!isClassroomReachable(nav, reachable, f)) {
+                    problems.add("floor " + f.index + " classroom key unreachable");
+                }
+            }
+
+            // Three places to hide, counting the fallback into the hallway
+            int lockers = f.lockers.size() + f.classroomLockers.size();
+            if (lockers < LOCKERS_PER_FLOOR) {
+                problems.add("floor " + f.index + " has " + lockers + " lockers");
+            }
+
+            // Doors must never sit on an obstacle
+            for (Classroom classroom : f.classrooms) {
+                for (Obstacle obstacle : f.obstacles) {
+                    if (classroom.getEntranceBounds().intersects(obstacle.getBounds()) ||
+                        classroom.getExitBounds().intersects(obstacle.getBounds())) {
+                        problems.add("floor " + f.index + " door overlaps obstacle at " + obstacle.getX());
+                    }
+                }
+            }
+
+            if (f.index == building.getExitFloor()) {
+                checkExitClear(nav, reachable, f, problems);
+            }
+
+            if (f.classrooms.isEmpty()) {
+                everyFloorHasClassroom = false;
+            }
+        }
+
+        if (notes != building.getTotalNotes()) {
+            problems.add(notes + " notes generated, expected " + building.getTotalNotes());
+        }
+        if (building.getKeyFloor() >= 0 && keys != 1) {
+            problems.add(keys + " keys generated");
+        }
+
+        if (notes > 0 && classroomNotes == notes) result |= ALL_NOTES_IN_CLASSROOMS;
+        if (everyFloorHasClassroom) result |= CLASSROOM_ON_EVERY_FLOOR;
+        boolean anyClassroom = false;
+        for (Floor f : floors) {
+            anyClassroom |= !f.classrooms.isEmpty();
+        }
+        if (!anyClassroom) result |= NO_CLASSROOMS;
+        return result;
+    }
+
+    private void checkExitClear(NavGraph nav, HashSet<NavRegion> reachable, Floor f, ArrayList<String> problems) {
+        for (Obstacle obstacle : f.obstacles) {
+            if (exitBounds.intersects(obstacle.getBounds())) {
+                problems.add("exit blocked by obstacle at " + obstacle.getX());
+            }
+        }
+        for (Locker locker : f.lockers) {
+            if (exitBounds.intersects(locker.getBounds())) {
+                problems.add("exit blocked by locker at " + locker.getX());
+            }
+        }
+        for (Classroom classroom : f.classrooms) {
+            if (exitBounds.intersects(classroom.getEntranceBounds()) || exitBounds.intersects(classroom.getExitBounds())) {
+                problems.add("exit overlaps a classroom door");
+            }
+        }
+        if (!isReachable(nav, reachable, f, exitBounds)) {
+            problems.add("exit unreachable");
+        }
+    }
+
+    // The player reaches a hallway item if it reaches into a walkable segment they can get to
+    private boolean isReachable(NavGraph nav, HashSet<NavRegion> reachable, Floor f, Rectangle bounds) {
+        int left = bounds.x;
+        int right = bounds.x + bounds.width;
+        return touches(nav.regionOf(f.index, null, left), reachable, left, right) ||
+               touches(nav.regionOf(f.index, null, right - 1), reachable, left, right);
+    }
+
+    private boolean touches(NavRegion region, HashSet<NavRegion> reachable, int left, int right) {
+        return region != null && reachable.contains(region) && left < region.maxX && right > region.minX;
+    }
+
+    // Every classroom on a floor shares the interior, so any reachable one will do
+    private boolean isClassroomReachable(NavGraph nav, HashSet<NavRegion> reachable, Floor f) {
+        for (Classroom classroom : f.classrooms) {
+            if (reachable.contains(nav.regionOf(f.index, classroom, 0))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    public void report(long elapsedNanos, int threads) {
+        int count = generateNanos.length;
+        int[] sorted = generateNanos.clone();
+        Arrays.sort(sorted);
+
+        System.out.println(String.format("Checked %d worlds (%d floors each) from seed %d on %d threads in %.1f s",
+                count, building.getFloorCount(), firstSeed, threads, elapsedNanos / 1e9));
+        System.out.println(String.format("Generation per world (us): p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f",
+                percentile(sorted, 0.5), percentile(sorted, 0.9), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), sorted[count - 1] / 1e3));
+
+        int[] traitCounts = new int[TRAIT_NAMES.length];
+        for (byte bits : traits) {
+            for (int i = 0; i < TRAIT_NAMES.length; i++) {
+                if ((bits & (1 << i)) != 0) traitCounts[i]++;
+            }
+        }
+        for (int i = 0; i < TRAIT_NAMES.length; i++) {
+            System.out.println(String.format("  %-26s %10d  (%.2f%%)", TRAIT_NAMES[i], traitCounts[i], 100.0 * traitCounts[i] / count));
+        }
+
+        ArrayList<String> failed = new ArrayList<>(failures);
+        failed.sort((a, b) -> Long.compare(seedOf(a), seedOf(b)));
+        System.out.println("Failing seeds: " + failed.size());
+        for (int i = 0; i < Math.min(failed.size(), MAX_FAILURES_SHOWN); i++) {
+            System.out.println("  " + failed.get(i));
+        }
+        if (failed.size() > MAX_FAILURES_SHOWN) {
+            System.out.println("  ... " + (failed.size() - MAX_FAILURES_SHOWN) + " more");
+        }
+    }
+
+    private double percentile(int[] sorted, double fraction) {
+        int index = (int) Math.min(sorted.length - 1, Math.round(fraction * (sorted.length - 1)));
+        return sorted[index] / 1e3;
+    }
+
+    private static long seedOf(String failure) {
+        return Long.parseLong(failure.substring(0, failure.indexOf(':')));
+    }
+
+    // Seeds that have every trait in wanted and passed validation
+    public void query(int wanted, int limit) {
+        HashSet<Long> failed = new HashSet<>();
+        for (String failure : failures) {
+            failed.add(seedOf(failure));
+        }
+
+        ArrayList<String> names = new ArrayList<>();
+        for (int i = 0; i < TRAIT_NAMES.length; i++) {
+            if ((wanted & (1 << i)) != 0) names.add(TRAIT_NAMES[i]);
+        }
+
+        int matches = 0;
+        StringBuilder shown = new StringBuilder();
+        for (int i = 0; i < traits.length; i++) {
+            long seed = firstSeed + i;
+            if ((traits[i] & wanted) != wanted || failed.contains(seed)) continue;
+
+            if (matches < limit) {
+                shown.append(matches == 0 ? "" : " ").append(seed);
+            }
+            matches++;
+        }
+        System.out.println("Seeds with " + String.join(" + ", names) + ": " + matches);
+        if (matches > 0) {
+            System.out.println("  " + shown);
+        }
+    }
+}
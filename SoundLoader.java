@@ -0,0 +1,179 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import javax.sound.sampled.*;
+
+public class SoundLoader {
+    // Turns every sound file into the mixer's one format (44.1kHz, 16-bit, stereo) once,
+    // at load, so mixing is only adding buffers. WAV files are read here: 8, 16, 24 and
+    // 32-bit integer or 32-bit float samples, any channel count (mono is doubled, more
+    // than two keeps the first two), at any rate - a different rate goes through a
+    // windowed-sinc resampler instead of the platform's converter. Anything that is not a
+    // WAV falls back to Java Sound's decoding.
+    //
+    // The mixer stays at 44.1kHz because most of the sounds are recorded at it; only the
+    // 48kHz files are resampled.
+    //
+    // Print what each file converts to with: java SoundLoader [file or directory...]
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    // Totals over everything loaded, for the startup report
+    private static int loadedSounds = 0;
+    private static int resampledSounds = 0;
+    private static long sourceBytes = 0;
+    private static long convertedBytes = 0;
+
+    public static void main(String[] args) throws IOException {
+        String[] paths = args.length > 0 ? args : new String[] {"./sound"};
+        for (String path : paths) {
+            File file = new File(path);
+            File[] files = file.isDirectory() ? file.listFiles((dir, name) -> name.endsWith(".wav")) : new File[] {file};
+            Arrays.sort(files);
+            for (File each : files) {
+                try (FileChannel channel = FileChannel.open(each.toPath(), StandardOpenOption.READ)) {
+                    WavFormat format = readHeader(channel, each.getPath());
+                    long start = System.nanoTime();
+                    PcmBuffer buffer = load(each.getPath());
+                    System.out.println(String.format("%-28s %6d Hz %2d-bit %d ch %9.3f s -> %9d frames %8.1f KB %7.1f ms",
+                        each.getName(), format.rate, format.bits, format.channels, format.frames / (double) format.rate,
+                        buffer.frames, buffer.samples.length * 2 / 1024.0, (System.nanoTime() - start) / 1e6));
+                } catch (IOException e) {
+                    System.out.println(each.getName() + ": " + e.getMessage());
+                }
+            }
+        }
+        System.out.println(report());
+    }
+
+    // Decodes a sound file into the mixer's format
+    public static PcmBuffer load(String filename) throws IOException {
+        File soundFile = new File(filename);
+        if (!soundFile.exists()) {
+            throw new IOException("Sound file not found: " + filename);
+        }
+
+        short[] samples;
+        try (FileChannel channel = FileChannel.open(soundFile.toPath(), StandardOpenOption.READ)) {
+            WavFormat format = readHeader(channel, filename);
+            if (format == null) {
+                samples = loadWithJavaSound(soundFile);
+            } else {
+                ByteBuffer data = ByteBuffer.allocate(format.frames * format.blockAlign).order(ByteOrder.LITTLE_ENDIAN);
+                while (data.hasRemaining()) {
+                    if (channel.read(data, format.dataOffset + data.position()) < 0) break;
+                }
+                float[] stereo = new float[format.frames * AudioMixer.CHANNELS];
+                for (int i = 0; i < format.frames; i++) {
+                    stereo[2 * i] = format.sample(data, i, 0);
+                    stereo[2 * i + 1] = format.sample(data, i, 1);
+                }
+                if (format.rate != (int) AudioMixer.SAMPLE_RATE) {
+                    stereo = new Resampler(format.rate, (int) AudioMixer.SAMPLE_RATE).resample(stereo);
+                    synchronized (SoundLoader.class) {
+                        resampledSounds++;
+                    }
+                }
+                samples = new short[stereo.length];
+                for (int i = 0; i < stereo.length; i++) {
+                    samples[i] = toShort(stereo[i]);
+                }
+            }
+        }
+
+        synchronized (SoundLoader.class) {
+            loadedSounds++;
+            sourceBytes += soundFile.length();
+            convertedBytes += samples.length * 2L;
+        }
+        return new PcmBuffer(filename, samples);
+    }
+
+    private static short[] loadWithJavaSound(File soundFile) throws IOException {
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(soundFile);
+             AudioInputStream audioIn = AudioSystem.getAudioInputStream(AudioMixer.FORMAT, source)) {
+            byte[] bytes = audioIn.readAllBytes();
+            short[] samples = new short[bytes.length / 2];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (short) ((bytes[2 * i] & 0xFF) | (bytes[2 * i + 1] << 8));
+            }
+            return samples;
+        } catch (UnsupportedAudioFileException | IllegalArgumentException e) {
+            throw new IOException("Unsupported sound file " + soundFile + ": " + e.getMessage());
+        }
+    }
+
+    static short toShort(float sample) {
+        return (short) Math.max(-32768, Math.min(32767, Math.round(sample * 32768f)));
+    }
+
+    // Reads the format and where the samples are; null if the file is not a RIFF WAV
+    static WavFormat readHeader(FileChannel channel, String name) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+        header.limit(12);
+        if (!readFully(channel, header, 0)) return null;
+        if (header.getInt(0) != 0x46464952 || header.getInt(8) != 0x45564157) { // "RIFF", "WAVE"
+            return null;
+        }
+
+        // Walk the chunks for the format and the start of the samples
+        WavFormat format = null;
+        long size = channel.size();
+        long offset = 12;
+        while (offset + 8 <= size) {
+            header.clear().limit(8);
+            readFully(channel, header, offset);
+            int id = header.getInt(0);
+            long length = header.getInt(4) & 0xFFFFFFFFL;
+            if (id == 0x20746D66) { // "fmt "
+                header.clear().limit((int) Math.min(24, length));
+                readFully(channel, header, offset + 8);
+                int tag = header.getShort(0) & 0xFFFF;
+                format = new WavFormat();
+                format.channels = header.getShort(2);
+                format.rate = header.getInt(4);
+                format.blockAlign = header.getShort(12);
+                format.bits = header.getShort(14);
+                if (tag == FORMAT_EXTENSIBLE && length >= 26) {
+                    // The real tag is the start of the sub-format GUID
+                    ByteBuffer extension = ByteBuffer.allocate(2).order(ByteOrder.LITTLE_ENDIAN);
+                    readFully(channel, extension, offset + 8 + 24);
+                    tag = extension.getShort(0) & 0xFFFF;
+                }
+                format.floating = tag == FORMAT_FLOAT;
+                if ((tag != FORMAT_PCM && tag != FORMAT_FLOAT) || format.channels < 1 || format.rate <= 0
+                        || (format.floating ? format.bits != 32 : format.bits % 8 != 0 || format.bits < 8 || format.bits > 32)
+                        || format.blockAlign != format.channels * format.bits / 8) {
+                    throw new IOException("Unsupported WAV format in " + name + ": tag " + tag + ", " + format.bits + "-bit");
+                }
+            } else if (id == 0x61746164) { // "data"
+                if (format == null) {
+                    throw new IOException("No format before the samples in " + name);
+                }
+                format.dataOffset = offset + 8;
+                format.frames = (int) (Math.min(length, size - format.dataOffset) / format.blockAlign);
+                return format;
+            }
+            offset += 8 + length + (length & 1);
+        }
+        throw new IOException("No samples in " + name);
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) return false;
+        }
+        return true;
+    }
+
+    // One line for startup: how much the converted sounds take
+    public static synchronized String report() {
+        return String.format("Sounds: %d loaded (%d resampled), %.1f KB on disk, %.1f KB resident as %.0f Hz 16-bit stereo",
+                             loadedSounds, resampledSounds, sourceBytes / 1024.0, convertedBytes / 1024.0, AudioMixer.SAMPLE_RATE);
+    }
+}
@@ -1,16 +1,33 @@
-import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Random;
-import javax.sound.sampled.*;
 
 public class SoundManager {
-    private Clip ambientSound;
-    private Clip chaseMusic;
-    private Clip walkingSound;
-    private Clip lockerSound;
-    private Clip jumpscareSound;
-    private Clip[] randomAmbientSounds;
-    private boolean isChaseMusicPlaying = false;
+    // Decoded sounds, kept across SoundManagers so switching buildings does not decode
+    // everything again
+    private static final HashMap<String, PcmBuffer> decoded = new HashMap<>();
+    private static boolean reported = false;
+    
+    private AudioMixer mixer = new AudioMixer();
+    // Heartbeat and locker breathing, synthesized in the mixer
+    private HeartbeatSynth heartbeat = new HeartbeatSynth();
+    // The two music tracks are long, so they stream from disk instead of being decoded
+    private PcmStream ambientSound;
+    private PcmStream chaseMusic;
+    private PcmBuffer walkingSound;
+    private PcmBuffer lockerSound;
+    private PcmBuffer jumpscareSound;
+    private PcmBuffer[] randomAmbientSounds;
+    // The ambience and the chase, as layers that follow the monster
+    private MusicDirector music;
+    // Mixer voices of the sounds that get stopped again; 0 when not playing
+    private int walkingVoice = 0;
+    private int jumpscareVoice = 0;
+    // When the jumpscare's first frame was drawn, while measuring audio latency
+    private long jumpscareShownAt = 0L;
+    private int monsterStepsVoice = 0;
+    private int occlusion = AudioMixer.OCCLUSION_NONE;
+    private int environment = AudioMixer.ENVIRONMENT_HALL;
     private Random random = new Random();
     private int nextAmbientSoundTime = 0;
     private int nextRandomSoundTime = 0;
@@ -18,230 +35,241 @@ public class SoundManager {
     
     // Volume control (0.0 to 1.0)
     private float masterVolume = 0.7f;
-    private float ambientVolume = 0.4f;
-    private float chaseVolume = 0.6f;
     private float effectsVolume = 0.5f;
     private float randomAmbientVolume = 0.3f;
+    private float monsterStepsVolume = 0.6f;
+    
+    private static final float VARIATION_RAMP = 0.8f;
     
     public SoundManager() {
         loadSounds();
+        music = new MusicDirector(mixer, ambientSound, chaseMusic);
+        mixer.addGenerator(heartbeat);
         startAmbientSound();
     }
     
     private void loadSounds() {
         try {
-            // Load ambient sound (looping)
-            ambientSound = loadClip("./sound/ambient.wav");
+            // Open ambient sound (looping)
+            ambientSound = openStream("./sound/ambient.wav");
             
-            // Load chase music (looping)
-            chaseMusic = loadClip("./sound/chase_music.wav");
+            // Open chase music (looping)
+            chaseMusic = openStream("./sound/chase_music.wav");
             
             // Load effect sounds
-            walkingSound = loadClip("./sound/walking.wav");
-            lockerSound = loadClip("./sound/locker.wav");
+            walkingSound = loadSound("./sound/walking.wav");
+            lockerSound = loadSound("./sound/locker.wav");
             
             // Load jumpscare sound
-            jumpscareSound = loadClip("./sound/jumpscare.wav");
+            jumpscareSound = loadSound("./sound/jumpscare.wav");
             
             // Load random ambient sounds
-            randomAmbientSounds = new Clip[3];
+            randomAmbientSounds = new PcmBuffer[3];
             for (int i = 0; i < randomAmbientSounds.length; i++) {
                 try {
-                    randomAmbientSounds[i] = loadClip("./sound/random" + (i + 1) + ".wav");
+                    randomAmbientSounds[i] = loadSound("./sound/random" + (i + 1) + ".wav");
                 } catch (Exception e) {
                     System.err.println("Could not load random ambient sound " + (i + 1) + ": " + e.getMessage());
                     randomAmbientSounds[i] = null;
                 }
             }
             
-            setVolume(ambientSound, ambientVolume);
-            setVolume(chaseMusic, chaseVolume);
-            setVolume(walkingSound, effectsVolume);
-            setVolume(lockerSound, effectsVolume);
-            setVolume(jumpscareSound, 1.0f); // Full volume for jumpscare
-            
-            for (Clip clip : randomAmbientSounds) {
-                if (clip != null) {
-                    setVolume(clip, randomAmbientVolume);
-                }
-            }
-            
         } catch (Exception e) {
             System.err.println("Error loading sound files: " + e.getMessage());
             System.err.println("Game will continue without sound.");
         }
+        
+        // Once, when the sounds are first decoded
+        if (!reported) {
+            reported = true;
+            int streamed = (ambientSound != null ? ambientSound.getResidentBytes() : 0)
+                         + (chaseMusic != null ? chaseMusic.getResidentBytes() : 0);
+            System.out.println(SoundLoader.report() + String.format("; music streamed in %.1f KB", streamed / 1024.0));
+        }
     }
     
-    private Clip loadClip(String filename) throws IOException, UnsupportedAudioFileException, LineUnavailableException {
-        File soundFile = new File(filename);
-        if (!soundFile.exists()) {
-            throw new IOException("Sound file not found: " + filename);
+    private static PcmStream openStream(String filename) {
+        try {
+            return new PcmStream(filename);
+        } catch (IOException e) {
+            System.err.println("Could not open " + filename + ": " + e.getMessage());
+            return null;
         }
-        AudioInputStream audioIn = AudioSystem.getAudioInputStream(soundFile);
-        Clip clip = AudioSystem.getClip();
-        clip.open(audioIn);
-        return clip;
-    }
-    
-    private void setVolume(Clip clip, float volume) {
-        if (clip != null) {
-            try {
-                FloatControl gainControl = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
-                float dB = (float) (Math.log(volume) / Math.log(10.0) * 20.0);
-                gainControl.setValue(dB);
-            } catch (IllegalArgumentException e) {
-                // Some clips might not support volume control
+    }
+    
+    private static PcmBuffer loadSound(String filename) throws IOException {
+        synchronized (decoded) {
+            PcmBuffer buffer = decoded.get(filename);
+            if (buffer == null) {
+                buffer = SoundLoader.load(filename);
+                decoded.put(filename, buffer);
             }
+            return buffer;
         }
     }
     
+    // Starts the music at its calm level
     public void startAmbientSound() {
-        if (ambientSound != null && !isChaseMusicPlaying) {
-            ambientSound.loop(Clip.LOOP_CONTINUOUSLY);
-            ambientSound.start();
-            
-            // Schedule first random ambient sound
-            nextAmbientSoundTime = 120 + random.nextInt(300); // 2-7 seconds
-            nextRandomSoundTime = 300 + random.nextInt(600); // 5-15 seconds for first random sound
-        }
+        music.start();
+        
+        // Schedule first random ambient sound
+        nextAmbientSoundTime = 120 + random.nextInt(300); // 2-7 seconds
+        nextRandomSoundTime = 300 + random.nextInt(600); // 5-15 seconds for first random sound
     }
     
     public void stopAmbientSound() {
-        if (ambientSound != null && ambientSound.isRunning()) {
-            ambientSound.stop();
-        }
+        music.stop();
     }
     
-    public void startChaseMusic() {
-        if (chaseMusic != null && !isChaseMusicPlaying) {
-            stopAmbientSound();
-            chaseMusic.loop(Clip.LOOP_CONTINUOUSLY);
-            chaseMusic.start();
-            isChaseMusicPlaying = true;
-        }
+    // Drops the music back to calm at once, without waiting for the next bar
+    public void stopChaseMusic() {
+        music.calm();
     }
     
-    public void stopChaseMusic() {
-        if (chaseMusic != null && chaseMusic.isRunning()) {
-            chaseMusic.stop();
-        }
-        isChaseMusicPlaying = false;
-        startAmbientSound();
+    private boolean isChaseMusicPlaying() {
+        return music.getLevel() == MusicDirector.CHASE;
     }
     
     public void playWalkingSound(boolean isMoving) {
         if (walkingSound != null) {
-            if (isMoving && !walkingSound.isRunning()) {
-                walkingSound.loop(Clip.LOOP_CONTINUOUSLY);
-                walkingSound.start();
-            } else if (!isMoving && walkingSound.isRunning()) {
-                walkingSound.stop();
+            if (isMoving && walkingVoice == 0) {
+                walkingVoice = mixer.play(walkingSound, effectsVolume, true);
+            } else if (!isMoving && walkingVoice != 0) {
+                stopWalkingSound();
             }
         }
     }
     
+    // Every call gets its own voice, so a quick in-and-out overlaps instead of cutting off
     public void playLockerSound() {
-        if (lockerSound != null) {
-            // Stop if already playing and restart
-            if (lockerSound.isRunning()) {
-                lockerSound.stop();
-            }
-            lockerSound.setFramePosition(0);
-            lockerSound.start();
-        }
+        mixer.play(lockerSound, effectsVolume, false);
     }
     
     public void playJumpscareSound() {
         if (jumpscareSound != null) {
-            // Stop all other sounds
-            stopAmbientSound();
-            stopChaseMusic();
+            // Cut all other sounds
+            music.cut();
             stopWalkingSound();
+            stopMonsterSteps();
             
-            // Play jumpscare sound
-            if (jumpscareSound.isRunning()) {
-                jumpscareSound.stop();
-            }
-            jumpscareSound.setFramePosition(0);
-            jumpscareSound.start();
+            // Play jumpscare sound at full volume
+            mixer.stop(jumpscareVoice);
+            jumpscareVoice = mixer.play(jumpscareSound, 1.0f, false);
         }
     }
     
+    // Called when the jumpscare image is first drawn
+    public void jumpscareShown() {
+        if (AudioMixer.MEASURE_LATENCY) {
+            jumpscareShownAt = System.nanoTime();
+        }
+    }
+    
+    // How far the jumpscare sound came out behind its image (ahead if negative)
+    private void reportJumpscareSync() {
+        if (jumpscareShownAt == 0L) return;
+        long heardAt = mixer.getLastHeardNanos(jumpscareSound);
+        if (heardAt != 0L) {
+            System.out.println(String.format("Jumpscare heard %+.1f ms after its image was drawn",
+                (heardAt - jumpscareShownAt) / 1e6));
+        }
+        jumpscareShownAt = 0L;
+    }
+    
     public void stopWalkingSound() {
-        if (walkingSound != null && walkingSound.isRunning()) {
-            walkingSound.stop();
+        mixer.stop(walkingVoice);
+        walkingVoice = 0;
+    }
+    
+    // The monster's footsteps follow it around the stereo field while it is out; they
+    // reuse the walking sound since there is no separate one
+    private void playMonsterSteps(boolean monsterIsActive) {
+        if (walkingSound == null) return;
+        if (monsterIsActive && monsterStepsVoice == 0) {
+            monsterStepsVoice = mixer.fadeIn(walkingSound, monsterStepsVolume, 0.3f, true);
+            mixer.setSpatial(monsterStepsVoice, 1.0f, 0.0f);
+        } else if (!monsterIsActive && monsterStepsVoice != 0) {
+            stopMonsterSteps();
         }
     }
     
+    private void stopMonsterSteps() {
+        mixer.fadeOut(monsterStepsVoice, 0.3f);
+        monsterStepsVoice = 0;
+    }
+    
     public void playRandomAmbientSound() {
-        if (randomAmbientSounds != null && !isChaseMusicPlaying) {
+        if (randomAmbientSounds != null && !isChaseMusicPlaying()) {
             int soundIndex = random.nextInt(randomAmbientSounds.length);
-            Clip randomSound = randomAmbientSounds[soundIndex];
-            
-            if (randomSound != null) {
-                // Stop if already playing and restart
-                if (randomSound.isRunning()) {
-                    randomSound.stop();
-                }
-                randomSound.setFramePosition(0);
-                randomSound.start();
-            }
+            mixer.play(randomAmbientSounds[soundIndex], randomAmbientVolume, false);
         }
     }
     
-    public void update(boolean monsterIsActive, boolean monsterIsNearPlayer, boolean playerIsMoving, int playerX, int monsterX, int screenWidth) {
+    // monsterOcclusion is one of AudioMixer's OCCLUSION_ levels: what separates the
+    // player from the monster; monsterState is one of Monster's STATE_ codes
+    public void update(boolean monsterIsActive, boolean monsterIsNearPlayer, boolean playerIsMoving, int playerX, int monsterX, int screenWidth,
+                       int monsterOcclusion, boolean playerIsHiding, boolean playerInClassroom, int monsterState) {
         gameTimer++;
         
-        // Handle chase music based on monster proximity
-        if (monsterIsActive && monsterIsNearPlayer) {
-            if (!isChaseMusicPlaying) {
-                startChaseMusic();
-            }
-        } else {
-            if (isChaseMusicPlaying) {
-                stopChaseMusic();
-            }
+        // The mixer places the monster's sounds from these every audio block
+        mixer.setPositions(playerX, monsterX);
+        if (monsterOcclusion != occlusion) {
+            occlusion = monsterOcclusion;
+            mixer.setOcclusion(occlusion);
+        }
+        int room = playerIsHiding ? AudioMixer.ENVIRONMENT_LOCKER
+                 : playerInClassroom ? AudioMixer.ENVIRONMENT_CLASSROOM : AudioMixer.ENVIRONMENT_HALL;
+        if (room != environment) {
+            environment = room;
+            mixer.setEnvironment(environment);
         }
+        playMonsterSteps(monsterIsActive);
+        // The heart only races and the music only builds for a monster on the same floor
+        boolean monsterIsClose = monsterIsActive && monsterOcclusion != AudioMixer.OCCLUSION_FLOOR;
+        int monsterDistance = monsterIsClose ? Math.abs(monsterX - playerX) : -1;
+        heartbeat.setState(monsterDistance, playerIsHiding);
+        music.update(monsterState, monsterIsActive && monsterIsNearPlayer, monsterDistance);
         
         // Handle walking sounds
         playWalkingSound(playerIsMoving);
         
         // Play random ambient sounds intermittently (only when not in chase)
-        if (!isChaseMusicPlaying && gameTimer >= nextRandomSoundTime) {
+        if (!isChaseMusicPlaying() && gameTimer >= nextRandomSoundTime) {
             playRandomAmbientSound();
             nextRandomSoundTime = gameTimer + 600 + random.nextInt(900); // 10-25 seconds until next random sound
         }
         
-        // Play subtle ambient variations (only when not in chase)
-        if (!isChaseMusicPlaying && ambientSound != null && gameTimer >= nextAmbientSoundTime) {
-            // Slight volume variation for ambient sounds
+        // Play subtle ambient variations (only while the music is calm)
+        int ambientVoice = music.getAmbienceVoice();
+        if (music.getLevel() == MusicDirector.CALM && ambientVoice != 0 && gameTimer >= nextAmbientSoundTime) {
+            // Slight volume variation for ambient sounds, drifting back after 1-3 seconds;
+            // both ramps run in the mixer
+            float ambientVolume = music.getAmbienceGain();
             float variation = 0.3f + random.nextFloat() * 0.4f;
-            setVolume(ambientSound, ambientVolume * variation);
-            
-            // Reset volume after a short time
-            new Thread(() -> {
-                try {
-                    Thread.sleep(1000 + random.nextInt(2000));
-                    setVolume(ambientSound, ambientVolume);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }).start();
+            mixer.ramp(ambientVoice, ambientVolume * variation, VARIATION_RAMP, true, 0f);
+            mixer.ramp(ambientVoice, ambientVolume, VARIATION_RAMP, true, 1.0f + random.nextFloat() * 2.0f);
             
             nextAmbientSoundTime = gameTimer + 180 + random.nextInt(420); // 3-10 seconds until next ambient variation
         }
     }
     
+    // Silences everything left over from the last run so the sounds can be reused
+    public void reset() {
+        stopWalkingSound();
+        stopMonsterSteps();
+        reportJumpscareSync();
+        mixer.stop(jumpscareVoice);
+        jumpscareVoice = 0;
+        music.calm();
+        gameTimer = 0;
+    }
+    
     public void cleanup() {
-        if (ambientSound != null) ambientSound.close();
-        if (chaseMusic != null) chaseMusic.close();
-        if (walkingSound != null) walkingSound.close();
-        if (lockerSound != null) lockerSound.close();
-        if (jumpscareSound != null) jumpscareSound.close();
-        if (randomAmbientSounds != null) {
-            for (Clip clip : randomAmbientSounds) {
-                if (clip != null) clip.close();
-            }
+        reportJumpscareSync();
+        if (AudioMixer.MEASURE_LATENCY) {
+            System.out.println(mixer.getLatencyReport());
         }
+        mixer.shutdown();
+        music.close();
     }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+import java.nio.ByteBuffer;
+
+public class SpawnDirector {
+    // Decides when the monster's chance events happen: appearing, giving up a search,
+    // leaving a classroom the player has gone from, and losing interest in a player far
+    // off screen. Each used to be a 1-in-N roll on every tick it was allowed. Now the
+    // director draws once how many allowed ticks there are until the event and the
+    // monster only counts them down, so a tick costs no random numbers. The count is
+    // geometric with mean N, which gives the same odds as the old roll.
+    //
+    // Appearances follow a tension curve on top of that. The longer the monster chased
+    // the player last time, the longer the next appearance is held off, so a chase is
+    // followed by a breather; tension eases with each appearance. The draws come from a
+    // seeded stream that is saved with the run, and the monster takes its other random
+    // choices (where it appears, how long it pauses) from the same stream, so a save or a
+    // rewind plays out the same.
+    static final int SPAWN = 0;
+    static final int GIVE_UP = 1;         // searching for a hidden player
+    static final int LEAVE_CLASSROOM = 2; // stuck in a classroom the player has left
+    static final int LOSE_INTEREST = 3;   // chasing a player it is far behind
+    private static final int EVENTS = 4;
+
+    // Mean allowed ticks until each event, as the old 1-in-N rolls had
+    private static final float[] MEAN_TICKS = {300f, 200f, 300f, 200f};
+    // Chase ticks that count as a full chase, and how much longer (as a share of the
+    // mean) the next appearance waits after one
+    private static final float FULL_CHASE_TICKS = 600f;
+    private static final float RELIEF = 1.0f;
+    // Share of the tension left after each appearance
+    private static final float TENSION_KEPT = 0.5f;
+    // Keeps the run seed and this stream apart
+    private static final long SALT = 0x6A09E667F3BCC909L;
+
+    // Allowed ticks left until each event; 0 when none is drawn yet
+    private final int[] remaining = new int[EVENTS];
+    private float tension = 0f;
+    private long state = SALT;
+
+    // For a new run; the same seed gives the same pacing
+    public void seed(long runSeed) {
+        state = runSeed ^ SALT;
+        for (int i = 0; i < EVENTS; i++) {
+            remaining[i] = 0;
+        }
+        tension = 0f;
+    }
+
+    // Called on each tick the event is allowed on; true on the tick it happens
+    public boolean tick(int event) {
+        if (remaining[event] == 0) {
+            remaining[event] = draw(meanTicks(event));
+        }
+        return --remaining[event] == 0;
+    }
+
+    // The monster has gone; chaseTicks is how long it chased the player this time
+    public void monsterLeft(int chaseTicks) {
+        tension = Math.min(1f, tension * TENSION_KEPT + chaseTicks / FULL_CHASE_TICKS);
+        // The next appearance is drawn afresh against the new tension
+        remaining[SPAWN] = 0;
+    }
+
+    private float meanTicks(int event) {
+        return event == SPAWN ? MEAN_TICKS[SPAWN] * (1f + RELIEF * tension) : MEAN_TICKS[event];
+    }
+
+    // Uniform in [0, bound)
+    public int nextInt(int bound) {
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    // Ticks up to and including the first success of a 1-in-mean chance per tick
+    private int draw(float mean) {
+        if (mean <= 1f) return 1;
+        double u = (nextLong() >>> 11) * 0x1.0p-53;
+        double ticks = 1.0 + Math.floor(Math.log1p(-u) / Math.log1p(-1.0 / mean));
+        return (int) Math.min(ticks, Integer.MAX_VALUE);
+    }
+
+    // SplitMix64, like the floor seeds; its whole state is one long
+    private long nextLong() {
+        state += 0x9E3779B97F4A7C15L;
+        long z = state;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public void saveState(ByteBuffer out) {
+        out.putLong(state);
+        out.putFloat(tension);
+        for (int i = 0; i < EVENTS; i++) {
+            out.putInt(remaining[i]);
+        }
+    }
+
+    public void restoreState(ByteBuffer in) {
+        state = in.getLong();
+        tension = in.getFloat();
+        for (int i = 0; i < EVENTS; i++) {
+            remaining[i] = in.getInt();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.TreeMap;
+import javax.imageio.ImageIO;
+
+public class TelemetryHeatmap {
+    // Offline tool: reads every telemetry session in a directory (in parallel) and builds
+    // per-floor heatmaps along the hallway of where players died, where they hid and where
+    // the monster was on top of them. Prints the hottest spots and writes one PNG per
+    // floor with a strip for each map.
+    //
+    // Run with: java -Djava.awt.headless=true TelemetryHeatmap <session dir> [bucket width] [out dir]
+    private static final int MAPS = 3;
+    private static final int DEATHS = 0;
+    private static final int HIDING = 1;
+    private static final int PRESSURE = 2;
+    private static final String[] MAP_NAMES = {"deaths", "hiding", "monster pressure"};
+    // Monster this close on the same floor counts as pressure on the player
+    private static final int PRESSURE_DISTANCE = 600;
+    private static final int HOTSPOTS_SHOWN = 5;
+    private static final int STRIP_HEIGHT = 40;
+    private static final int CELL_WIDTH = 4;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: TelemetryHeatmap <session dir> [bucket width] [out dir]");
+            System.exit(1);
+        }
+        File directory = new File(args[0]);
+        int bucketWidth = (args.length > 1) ? Integer.parseInt(args[1]) : 128;
+        File outDir = new File(args.length > 2 ? args[2] : "heatmaps");
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(TelemetryRecorder.EXTENSION));
+        if (files == null || files.length == 0) {
+            System.err.println("No telemetry sessions in " + directory);
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        Heatmaps total = Arrays.stream(files).parallel()
+            .map(file -> load(file, bucketWidth))
+            .reduce(new Heatmaps(bucketWidth), Heatmaps::merge);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(String.format("%d sessions, %d ticks, %d deaths, %d wins - read in %.1f s",
+                total.sessions, total.ticks, total.deaths, total.wins, elapsed / 1e9));
+        outDir.mkdirs();
+        for (int floor : total.floors.keySet()) {
+            long[][] maps = total.floors.get(floor);
+            System.out.println();
+            System.out.println("Floor " + (floor + 1));
+            for (int map = 0; map < MAPS; map++) {
+                System.out.println("  " + MAP_NAMES[map] + ": " + hotspots(maps[map], bucketWidth));
+            }
+            writeImage(new File(outDir, "floor-" + (floor + 1) + ".png"), maps);
+        }
+        System.out.println();
+        System.out.println("Images written to " + outDir);
+    }
+
+    // One session's counts; a file that cannot be read contributes nothing
+    private static Heatmaps load(File file, int bucketWidth) {
+        Heatmaps maps = new Heatmaps(bucketWidth);
+        TelemetrySession session;
+        try {
+            session = TelemetryRecorder.read(file);
+        } catch (IOException e) {
+            System.err.println("Skipping " + file + ": " + e.getMessage());
+            return maps;
+        }
+
+        maps.sessions = 1;
+        maps.ticks = session.ticks;
+        for (int t = 0; t < session.ticks; t++) {
+            // Classroom interiors have their own coordinates - only hallway ticks count
+            if (session.playerRoom[t] != 0) continue;
+
+            int floor = session.playerFloor[t];
+            int x = session.playerX[t];
+            if (session.playerHiding[t] != 0) {
+                maps.add(floor, HIDING, x, 1);
+            }
+            if (session.monsterState[t] != Monster.STATE_INACTIVE && session.monsterFloor[t] == floor
+                    && Math.abs(session.monsterX[t] - x) < PRESSURE_DISTANCE) {
+                maps.add(floor, PRESSURE, x, 1);
+            }
+        }
+
+        if (session.ticks > 0) {
+            int last = session.ticks - 1;
+            if (session.outcome == TelemetryRecorder.OUTCOME_CAUGHT) {
+                maps.deaths = 1;
+                if (session.playerRoom[last] == 0) {
+                    maps.add(session.playerFloor[last], DEATHS, session.playerX[last], 1);
+                }
+            } else if (session.outcome == TelemetryRecorder.OUTCOME_WON) {
+                maps.wins = 1;
+            }
+        }
+        return maps;
+    }
+
+    private static String hotspots(long[] counts, int bucketWidth) {
+        Integer[] order = new Integer[counts.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(counts[b], counts[a]));
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < Math.min(HOTSPOTS_SHOWN, order.length) && counts[order[i]] > 0; i++) {
+            int bucket = order[i];
+            text.append(String.format("x %d-%d (%d)  ", bucket * bucketWidth, (bucket + 1) * bucketWidth, counts[bucket]));
+        }
+        return text.length() == 0 ? "none" : text.toString();
+    }
+
+    // One strip per map, black through red to yellow, each scaled to its own maximum
+    private static void writeImage(File file, long[][] maps) throws IOException {
+        int buckets = maps[0].length;
+        BufferedImage image = new BufferedImage(buckets * CELL_WIDTH, STRIP_HEIGHT * MAPS, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        for (int map = 0; map < MAPS; map++) {
+            long max = 1;
+            for (long count : maps[map]) max = Math.max(max, count);
+
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                float heat = (float) Math.sqrt((double) maps[map][bucket] / max);
+                g.setColor(new Color(Math.min(1f, heat * 2), Math.max(0f, heat * 2 - 1), 0f));
+                g.fillRect(bucket * CELL_WIDTH, map * STRIP_HEIGHT, CELL_WIDTH, STRIP_HEIGHT - 2);
+            }
+        }
+        g.dispose();
+        ImageIO.write(image, "png", file);
+    }
+}
+
+class Heatmaps {
+    // Per floor, per map, counts per hallway bucket; merged across sessions
+    final int bucketWidth;
+    final TreeMap<Integer, long[][]> floors = new TreeMap<>();
+    int buckets = 1;
+    long sessions, ticks, deaths, wins;
+
+    Heatmaps(int bucketWidth) {
+        this.bucketWidth = bucketWidth;
+    }
+
+    void add(int floor, int map, int x, long count) {
+        int bucket = Math.max(0, x / bucketWidth);
+        long[][] maps = floors.computeIfAbsent(floor, f -> new long[3][buckets]);
+        if (bucket >= maps[map].length) {
+            buckets = Math.max(buckets, bucket + 1);
+            for (int i = 0; i < maps.length; i++) {
+                maps[i] = Arrays.copyOf(maps[i], buckets);
+            }
+        }
+        maps[map][bucket] += count;
+    }
+
+    Heatmaps merge(Heatmaps other) {
+        Heatmaps merged = new Heatmaps(bucketWidth);
+        for (Heatmaps source : new Heatmaps[] {this, other}) {
+            merged.sessions += source.sessions;
+            merged.ticks += source.ticks;
+            merged.deaths += source.deaths;
+            merged.wins += source.wins;
+            for (int floor : source.floors.keySet()) {
+                long[][] maps = source.floors.get(floor);
+                for (int map = 0; map < maps.length; map++) {
+                    for (int bucket = 0; bucket < maps[map].length; bucket++) {
+                        if (maps[map][bucket] != 0) {
+                            merged.add(floor, map, bucket * bucketWidth, maps[map][bucket]);
+                        }
+                    }
+                }
+            }
+        }
+        // Every floor the same width so the images line up
+        for (long[][] maps : merged.floors.values()) {
+            for (int i = 0; i < maps.length; i++) {
+                if (maps[i].length < merged.buckets) maps[i] = Arrays.copyOf(maps[i], merged.buckets);
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,311 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class TelemetryRecorder {
+    // Optional per-tick state log, one file per run, for finding where players actually
+    // struggle. Ticks are gathered into fixed blocks of columns (player x, floor, room,
+    // hiding; monster x, floor, state; score) on the game thread and handed to a writer
+    // thread through a bounded queue. Blocks come from a fixed pool, so recording never
+    // allocates and never waits: if the writer falls behind, ticks are dropped and counted.
+    // Every block carries its session's header fields and the writer starts the file on
+    // the first block of a session it sees, so losing any block costs only its ticks; a
+    // lost last block loses the outcome too, and the file reads as quit.
+    //
+    // File layout, gzip-compressed: int magic "AHTL", short version, int world width,
+    // long run seed, byte endless; then blocks of (varint tick count, then each column in
+    // turn, as zigzag varint deltas from the previous tick); then varint 0 and the outcome.
+    static final int MAGIC = 0x4148544C;
+    static final short VERSION = 1;
+    static final int OUTCOME_QUIT = 0;
+    static final int OUTCOME_CAUGHT = 1;
+    static final int OUTCOME_WON = 2;
+    static final String EXTENSION = ".ahtl";
+
+    static final int BLOCK_TICKS = 1024;
+    static final int COLUMNS = 8;
+    private static final int POOL_SIZE = 8;
+
+    private final File directory;
+    private final ArrayBlockingQueue<TelemetryBlock> free = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final ArrayBlockingQueue<TelemetryBlock> full = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final Thread writer;
+    private TelemetryBlock current = null;
+    private int session = 0;
+    private int worldWidth;
+    private long runSeed;
+    private boolean endless;
+    private boolean recording = false;
+    private long droppedTicks = 0;
+    private long droppedOutcomes = 0;
+
+    public TelemetryRecorder(File directory) {
+        this.directory = directory;
+        directory.mkdirs();
+        for (int i = 0; i < POOL_SIZE; i++) {
+            free.add(new TelemetryBlock());
+        }
+        writer = new Thread(this::writeLoop, "telemetry-writer");
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+    }
+
+    // Starts a new session file; ends the previous one as quit if it is still open
+    public void beginSession(int worldWidth, long runSeed, boolean endless) {
+        if (recording) {
+            endSession(OUTCOME_QUIT);
+        }
+        session++;
+        this.worldWidth = worldWidth;
+        this.runSeed = runSeed;
+        this.endless = endless;
+        recording = true;
+    }
+
+    public void record(int playerX, int playerFloor, int playerRoom, boolean playerHiding,
+                       int monsterX, int monsterFloor, int monsterState, int score) {
+        if (!recording) return;
+        if (current == null && (current = takeBlock()) == null) {
+            droppedTicks++;
+            return;
+        }
+
+        int[][] columns = current.columns;
+        int t = current.ticks++;
+        columns[0][t] = playerX;
+        columns[1][t] = playerFloor;
+        columns[2][t] = playerRoom;
+        columns[3][t] = playerHiding ? 1 : 0;
+        columns[4][t] = monsterX;
+        columns[5][t] = monsterFloor;
+        columns[6][t] = monsterState;
+        columns[7][t] = score;
+
+        if (current.ticks == BLOCK_TICKS) {
+            if (!full.offer(current)) {
+                // Writer is behind and the queue is full - lose this block rather than stall
+                droppedTicks += current.ticks;
+                current.ticks = 0;
+                return;
+            }
+            current = null;
+        }
+    }
+
+    // Closes the session. Like any block, the last one is dropped rather than waited
+    // for if the writer is behind.
+    public void endSession(int outcome) {
+        if (!recording) return;
+        recording = false;
+
+        TelemetryBlock last = (current != null) ? current : takeBlock();
+        current = null;
+        if (last == null) {
+            droppedOutcomes++;
+            return;
+        }
+        last.last = true;
+        last.outcome = outcome;
+        if (!full.offer(last)) {
+            droppedTicks += last.ticks;
+            droppedOutcomes++;
+            last.reset();
+            free.offer(last);
+        }
+    }
+
+    // A free block stamped with the session it is for, or null if the pool is empty
+    private TelemetryBlock takeBlock() {
+        TelemetryBlock block = free.poll();
+        if (block != null) {
+            block.start(session, worldWidth, runSeed, endless);
+        }
+        return block;
+    }
+
+    // Lets queued blocks reach the disk, waiting at most a second
+    public void shutdown() {
+        if (droppedTicks > 0 || droppedOutcomes > 0) {
+            System.err.println(String.format("Telemetry writer fell behind: %d ticks and %d session outcomes dropped",
+                    droppedTicks, droppedOutcomes));
+        }
+        writer.interrupt();
+        try {
+            writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        DataOutputStream out = null;
+        int openSession = -1;
+        boolean stopping = false;
+        while (true) {
+            TelemetryBlock block;
+            try {
+                block = stopping ? full.poll() : full.take();
+            } catch (InterruptedException e) {
+                stopping = true;
+                continue;
+            }
+            if (block == null) break;
+
+            try {
+                if (block.session != openSession) {
+                    if (out != null) {
+                        endFile(out, OUTCOME_QUIT);
+                    }
+                    out = null;
+                    openSession = block.session;
+                    out = startFile(block);
+                }
+                if (out != null) {
+                    writeBlock(out, block);
+                    if (block.last) {
+                        endFile(out, block.outcome);
+                        out = null;
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Telemetry write failed: " + e.getMessage());
+                out = null;
+            }
+            block.reset();
+            free.offer(block);
+        }
+        if (out != null) {
+            try {
+                endFile(out, OUTCOME_QUIT);
+            } catch (IOException e) {
+                System.err.println("Telemetry write failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private DataOutputStream startFile(TelemetryBlock block) throws IOException {
+        File file = new File(directory, "session-" + System.currentTimeMillis() + "-" + block.session + EXTENSION);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file), 8192)));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(block.worldWidth);
+        out.writeLong(block.runSeed);
+        out.writeByte(block.endless ? 1 : 0);
+        return out;
+    }
+
+    private void writeBlock(DataOutputStream out, TelemetryBlock block) throws IOException {
+        if (block.ticks == 0) return;
+
+        writeVarint(out, block.ticks);
+        for (int[] column : block.columns) {
+            int previous = 0;
+            for (int t = 0; t < block.ticks; t++) {
+                int delta = column[t] - previous;
+                writeVarint(out, (delta << 1) ^ (delta >> 31));
+                previous = column[t];
+            }
+        }
+    }
+
+    private void endFile(DataOutputStream out, int outcome) throws IOException {
+        writeVarint(out, 0);
+        out.writeByte(outcome);
+        out.close();
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Bad varint");
+    }
+
+    // Reads a whole session file back into columns. A file cut short by a crash reads up
+    // to its last complete block and counts as quit.
+    public static TelemetrySession read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), 8192)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a telemetry file: " + file);
+            short version = in.readShort();
+            if (version != VERSION) throw new IOException("Unsupported telemetry version " + version);
+
+            TelemetrySession session = new TelemetrySession(in.readInt(), in.readLong(), in.readByte() != 0);
+            int[][] columns = new int[COLUMNS][BLOCK_TICKS];
+            int ticks = 0;
+            try {
+                while (true) {
+                    int count = readVarint(in);
+                    if (count == 0) {
+                        session.outcome = in.readUnsignedByte();
+                        break;
+                    }
+                    if (ticks + count > columns[0].length) {
+                        for (int c = 0; c < COLUMNS; c++) {
+                            columns[c] = Arrays.copyOf(columns[c], Math.max(ticks + count, columns[c].length * 2));
+                        }
+                    }
+                    for (int[] column : columns) {
+                        int previous = 0;
+                        for (int t = ticks; t < ticks + count; t++) {
+                            int zigzag = readVarint(in);
+                            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                            column[t] = previous;
+                        }
+                    }
+                    ticks += count;
+                }
+            } catch (EOFException e) {
+                // Truncated file - keep what was complete
+            }
+            session.setColumns(columns, ticks);
+            return session;
+        }
+    }
+}
+
+class TelemetryBlock {
+    // One fixed-size batch of ticks; reused through the recorder's pool
+    final int[][] columns = new int[TelemetryRecorder.COLUMNS][TelemetryRecorder.BLOCK_TICKS];
+    int ticks = 0;
+    int session = 0;
+    boolean last = false;
+    int outcome = TelemetryRecorder.OUTCOME_QUIT;
+    int worldWidth;
+    long runSeed;
+    boolean endless;
+
+    void start(int session, int worldWidth, long runSeed, boolean endless) {
+        this.session = session;
+        this.worldWidth = worldWidth;
+        this.runSeed = runSeed;
+        this.endless = endless;
+    }
+
+    void reset() {
+        ticks = 0;
+        last = false;
+        outcome = TelemetryRecorder.OUTCOME_QUIT;
+    }
+}
@@ -0,0 +1,28 @@
+class TelemetrySession {
+    // A session file read back: one array per column, all the same length
+    final int worldWidth;
+    final long runSeed;
+    final boolean endless;
+    int outcome = TelemetryRecorder.OUTCOME_QUIT;
+    int ticks;
+    int[] playerX, playerFloor, playerRoom, playerHiding;
+    int[] monsterX, monsterFloor, monsterState, score;
+
+    TelemetrySession(int worldWidth, long runSeed, boolean endless) {
+        this.worldWidth = worldWidth;
+        this.runSeed = runSeed;
+        this.endless = endless;
+    }
+
+    void setColumns(int[][] columns, int ticks) {
+        this.ticks = ticks;
+        playerX = columns[0];
+        playerFloor = columns[1];
+        playerRoom = columns[2];
+        playerHiding = columns[3];
+        monsterX = columns[4];
+        monsterFloor = columns[5];
+        monsterState = columns[6];
+        score = columns[7];
+    }
+}
@@ -0,0 +1,54 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+class TriggerSpace {
+    ArrayList<TriggerVolume> volumes = new ArrayList<>();
+    boolean dirty = true;
+    int count = 0;
+    int cursor = 0;
+    // Each endpoint packs (position << 32) | (volume index << 1) | startBit so a plain
+    // long sort orders them by position
+    private long[] endpoints = new long[0];
+    private TriggerVolume[] sorted = new TriggerVolume[0];
+
+    void rebuild(int subjectWidth, int subjectX) {
+        volumes.removeIf(volume -> !volume.alive);
+
+        sorted = volumes.toArray(new TriggerVolume[0]);
+        count = sorted.length * 2;
+        endpoints = new long[count];
+        for (int i = 0; i < sorted.length; i++) {
+            // The player at x overlaps [minX, maxX) when minX - width < x < maxX
+            long start = sorted[i].minX - subjectWidth + 1;
+            long end = sorted[i].maxX;
+            endpoints[i * 2] = (start << 32) | ((long) i << 1) | 1L;
+            endpoints[i * 2 + 1] = (end << 32) | ((long) i << 1);
+        }
+        Arrays.sort(endpoints);
+
+        // Cursor = number of endpoints at or left of the player
+        int low = 0, high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (positionAt(mid) <= subjectX) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        cursor = low;
+        dirty = false;
+    }
+
+    int positionAt(int endpoint) {
+        return (int) (endpoints[endpoint] >> 32);
+    }
+
+    TriggerVolume volumeAt(int endpoint) {
+        return sorted[(int) ((endpoints[endpoint] & 0xFFFFFFFFL) >>> 1)];
+    }
+
+    boolean isStartAt(int endpoint) {
+        return (endpoints[endpoint] & 1L) != 0;
+    }
+}
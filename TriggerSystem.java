@@ -0,0 +1,172 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class TriggerSystem {
+    // Trigger volumes are tracked along the x axis only - everything the player can touch
+    // stands on the same ground line, so overlap is decided by the horizontal span alone.
+    // Each space (a hallway or a classroom interior) keeps its volume endpoints sorted and
+    // a cursor into them, so moving the player only does work when a boundary is crossed.
+    private HashMap<Integer, TriggerSpace> spaces = new HashMap<>();
+    private ArrayList<TriggerListener> listeners = new ArrayList<>();
+    private ArrayList<TriggerVolume> inside = new ArrayList<>();
+    private TriggerSpace currentSpace = null;
+    private int subjectWidth = 0;
+    private int subjectX = 0;
+
+    public void addListener(TriggerListener listener) {
+        listeners.add(listener);
+    }
+
+    public void setSubjectWidth(int width) {
+        subjectWidth = width;
+        for (TriggerSpace space : spaces.values()) {
+            space.dirty = true;
+        }
+    }
+
+    public void clear() {
+        spaces.clear();
+        inside.clear();
+        currentSpace = null;
+    }
+
+    public void removeSpace(int spaceKey) {
+        TriggerSpace space = spaces.remove(spaceKey);
+        if (space != null && space == currentSpace) {
+            inside.clear();
+            currentSpace = null;
+        }
+    }
+
+    public TriggerVolume add(int spaceKey, TriggerType type, int minX, int maxX, Object target) {
+        TriggerSpace space = spaces.get(spaceKey);
+        if (space == null) {
+            space = new TriggerSpace();
+            spaces.put(spaceKey, space);
+        }
+
+        TriggerVolume volume = new TriggerVolume(type, minX, maxX, target, space);
+        space.volumes.add(volume);
+        space.dirty = true;
+
+        // A volume that appears under the player counts as entered straight away
+        if (space == currentSpace && contains(volume, subjectX)) {
+            inside.add(volume);
+            fireEnter(volume);
+        }
+        return volume;
+    }
+
+    public void remove(TriggerVolume volume) {
+        if (!volume.alive) return;
+        volume.alive = false;
+        volume.space.dirty = true;
+
+        if (inside.remove(volume)) {
+            fireExit(volume);
+        }
+    }
+
+    // Switches the player into another space (floor change, classroom door), exiting
+    // everything from the old space and entering whatever is under the new position
+    public void enterSpace(int spaceKey, int x) {
+        for (int i = inside.size() - 1; i >= 0; i--) {
+            TriggerVolume volume = inside.remove(i);
+            fireExit(volume);
+        }
+
+        subjectX = x;
+        currentSpace = spaces.get(spaceKey);
+        if (currentSpace == null) return;
+
+        TriggerSpace space = currentSpace;
+        space.rebuild(subjectWidth, subjectX);
+        for (TriggerVolume volume : new ArrayList<>(space.volumes)) {
+            if (volume.alive && contains(volume, subjectX) && space == currentSpace) {
+                inside.add(volume);
+                fireEnter(volume);
+            }
+        }
+    }
+
+    public void moveTo(int x) {
+        if (x == subjectX) return;
+
+        TriggerSpace space = currentSpace;
+        if (space == null) {
+            subjectX = x;
+            return;
+        }
+        if (space.dirty) {
+            space.rebuild(subjectWidth, subjectX);
+        }
+
+        if (x > subjectX) {
+            while (space.cursor < space.count && space.positionAt(space.cursor) <= x && space == currentSpace) {
+                cross(space, space.cursor, true);
+                space.cursor++;
+            }
+        } else {
+            while (space.cursor > 0 && space.positionAt(space.cursor - 1) > x && space == currentSpace) {
+                space.cursor--;
+                cross(space, space.cursor, false);
+            }
+        }
+
+        if (space == currentSpace) {
+            subjectX = x;
+        }
+    }
+
+    private void cross(TriggerSpace space, int endpoint, boolean forward) {
+        TriggerVolume volume = space.volumeAt(endpoint);
+        if (!volume.alive) return;
+
+        // Moving right over a start edge or left over an end edge means entering
+        boolean entering = space.isStartAt(endpoint) == forward;
+        if (entering) {
+            if (!inside.contains(volume)) {
+                inside.add(volume);
+                fireEnter(volume);
+            }
+        } else if (inside.remove(volume)) {
+            fireExit(volume);
+        }
+    }
+
+    private boolean contains(TriggerVolume volume, int x) {
+        return x + subjectWidth > volume.minX && x < volume.maxX;
+    }
+
+    private void fireEnter(TriggerVolume volume) {
+        for (TriggerListener listener : listeners) {
+            listener.onTriggerEnter(volume);
+        }
+    }
+
+    private void fireExit(TriggerVolume volume) {
+        for (TriggerListener listener : listeners) {
+            listener.onTriggerExit(volume);
+        }
+    }
+
+    public boolean isInside(TriggerType type) {
+        return getInside(type) != null;
+    }
+
+    public TriggerVolume getInside(TriggerType type) {
+        for (TriggerVolume volume : inside) {
+            if (volume.type == type) {
+                return volume;
+            }
+        }
+        return null;
+    }
+
+    public int getSubjectX() { return subjectX; }
+}
+
+interface TriggerListener {
+    void onTriggerEnter(TriggerVolume volume);
+    void onTriggerExit(TriggerVolume volume);
+}
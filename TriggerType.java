@@ -0,0 +1 @@
+enum TriggerType { NOTE, KEY, LOCKER, DOOR_ENTRANCE, DOOR_EXIT, STAIRS_UP, STAIRS_DOWN, EXIT }
@@ -0,0 +1,15 @@
+class TriggerVolume {
+    public final TriggerType type;
+    public final int minX, maxX;
+    public final Object target;
+    final TriggerSpace space;
+    boolean alive = true;
+
+    TriggerVolume(TriggerType type, int minX, int maxX, Object target, TriggerSpace space) {
+        this.type = type;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.target = target;
+        this.space = space;
+    }
+}
@@ -0,0 +1,30 @@
+import java.nio.ByteBuffer;
+
+class WavFormat {
+    int channels;
+    int rate;
+    int bits;
+    int blockAlign;
+    boolean floating;
+    long dataOffset;
+    int frames;
+
+    // One channel of one frame from raw sample bytes, -1 to 1. Mono feeds both sides and
+    // channels past the second are dropped.
+    float sample(ByteBuffer data, int frame, int channel) {
+        int at = frame * blockAlign + Math.min(channel, channels - 1) * (bits / 8);
+        if (floating) {
+            return data.getFloat(at);
+        }
+        switch (bits) {
+            case 8:
+                return ((data.get(at) & 0xFF) - 128) / 128f;
+            case 16:
+                return data.getShort(at) / 32768f;
+            case 24:
+                return ((data.get(at) & 0xFF) | ((data.get(at + 1) & 0xFF) << 8) | (data.get(at + 2) << 16)) / 8388608f;
+            default:
+                return data.getInt(at) / 2147483648f;
+        }
+    }
+}
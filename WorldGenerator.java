@@ -1,18 +1,88 @@
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class WorldGenerator {
     private int worldWidth;
     private int groundHeight;
     private Random random;
-    
+    // The next run's world, generated in the background while the current run ends
+    private ExecutorService worker = null;
+    private Future<GeneratedWorld> nextWorld = null;
+    // When set, every run plays this level instead of a generated world
+    private LevelFile level = null;
+
     public WorldGenerator(int worldWidth, int groundHeight) {
         this.worldWidth = worldWidth;
         this.groundHeight = groundHeight;
         this.random = new Random();
     }
-    
+
+    public void setLevel(LevelFile level) {
+        this.level = level;
+    }
+
     public void generateWorld(ItemManager itemManager) {
+        if (level != null) {
+            itemManager.reset(level.readWorld());
+            return;
+        }
         // Generate items for all floors
-        itemManager.generateAllFloors(groundHeight, random);
+        itemManager.generateAllFloors(random);
+    }
+
+    // The world for a given run seed - also used to rebuild a saved run. A level file's
+    // floors are decoded afresh for every run, since a run removes what it collects.
+    public GeneratedWorld prepare(ItemManager itemManager, long runSeed) {
+        if (level != null) {
+            return level.readWorld();
+        }
+        return itemManager.prepareWorld(runSeed, ForkJoinPool.commonPool());
+    }
+
+    // Starts generating the next run on a worker thread; call as soon as a run ends
+    public void pregenerate(ItemManager itemManager) {
+        if (nextWorld != null) return;
+
+        if (worker == null) {
+            worker = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "world-pregen");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        long runSeed = random.nextLong();
+        nextWorld = worker.submit(() -> prepare(itemManager, runSeed));
+    }
+
+    // Returns the pregenerated world, waiting for it if it is not quite done, or generates
+    // one right here if pregeneration never started or failed
+    public GeneratedWorld takeWorld(ItemManager itemManager) {
+        Future<GeneratedWorld> future = nextWorld;
+        nextWorld = null;
+        if (future != null) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                System.err.println("Background world generation failed: " + e.getCause());
+            }
+        }
+        return prepare(itemManager, random.nextLong());
+    }
+
+    public void shutdown() {
+        if (nextWorld != null) {
+            nextWorld.cancel(true);
+            nextWorld = null;
+        }
+        if (worker != null) {
+            worker.shutdownNow();
+            worker = null;
+        }
     }
 }
\ No newline at end of file